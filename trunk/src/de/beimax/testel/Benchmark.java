@@ -0,0 +1,351 @@
+/**
+ * Datei: Benchmark.java
+ * Paket: de.beimax.testel
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import de.beimax.testel.mime.html.util.HTMLBufferTokenizer;
+import de.beimax.testel.mime.html.util.HTMLTokenizer;
+import de.beimax.testel.token.Token;
+import de.beimax.testel.token.TokenList;
+import de.beimax.testel.token.TokenSnapshot;
+import de.beimax.testel.token.impl.EOLToken;
+import de.beimax.testel.token.impl.MarkupToken;
+import de.beimax.testel.token.impl.PunctuationToken;
+import de.beimax.testel.token.impl.TestElTag;
+import de.beimax.testel.token.impl.TextToken;
+import de.beimax.testel.util.IOHelper;
+
+/**Kleine Mess-Programme für die zeitkritischen Teile von TestEl. Aufruf:
+ * <pre>
+ * java de.beimax.testel.Benchmark tokenlist [Anzahl Tokens...]
+ * java de.beimax.testel.Benchmark tokensnapshot [Anzahl Tokens...]
+ * java de.beimax.testel.Benchmark tokenizer [HTML-Dateien...]
+ * </pre>
+ * Die Zeiten sind grobe Richtwerte - jede Messung wird nach einem Aufwärmdurchlauf
+ * wiederholt und der beste Wert ausgegeben.
+ * @author mkalus
+ *
+ */
+public class Benchmark {
+	/**
+	 * Anzahl der Wiederholungen pro Messung
+	 */
+	private static final int RUNS = 3;
+	
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) throw new Exception("Benchmark als erstes Argument erwartet (tokenlist, tokensnapshot, tokenizer)");
+		
+		if (args[0].equalsIgnoreCase("tokenlist")) {
+			int[] sizes = getSizes(args);
+			for (int i = 0; i < sizes.length; i++) benchmarkTokenList(sizes[i]);
+		} else if (args[0].equalsIgnoreCase("tokensnapshot")) {
+			int[] sizes = getSizes(args);
+			for (int i = 0; i < sizes.length; i++) benchmarkTokenSnapshot(sizes[i]);
+		} else if (args[0].equalsIgnoreCase("tokenizer")) {
+			if (args.length == 1) benchmarkTokenizer("erzeugtes Dokument", createDocument(20000));
+			for (int i = 1; i < args.length; i++)
+				benchmarkTokenizer(args[i], IOHelper.filetoString(new File(args[i])));
+		} else throw new Exception("Unbekannter Benchmark " + args[0]);
+	}
+	
+	/**Liest die Anzahl der Tokens aus den Argumenten
+	 * @param args
+	 * @return
+	 */
+	private static int[] getSizes(String[] args) {
+		if (args.length == 1) return new int[] {10000, 100000};
+		int[] sizes = new int[args.length - 1];
+		for (int i = 1; i < args.length; i++) sizes[i - 1] = Integer.parseInt(args[i]);
+		return sizes;
+	}
+	
+	/**Vergleicht TokenList mit einer LinkedList (der früheren Implementierung) bei den
+	 * Zugriffen, die die Tagger verwenden: listIterator(i) und get(i) an beliebigen
+	 * Stellen sowie das Einfügen von Tag-Paaren von hinten nach vorne.
+	 * @param size Anzahl der Tokens
+	 */
+	public static void benchmarkTokenList(int size) {
+		//Anzahl der Operationen - begrenzt, damit die LinkedList fertig wird
+		int ops = Math.min(size, 10000);
+		System.out.println("TokenList mit " + size + " Tokens, " + ops + " Operationen:");
+		
+		List<Token> linked = new LinkedList<Token>();
+		fill(linked, size);
+		TokenList tokens = new TokenList();
+		fill(tokens, size);
+		
+		System.out.println("  listIterator(i)+next: LinkedList " + timeIterators(linked, ops) + "ms, TokenList " + timeIterators(tokens, ops) + "ms");
+		System.out.println("  get(i-2)+get(i):      LinkedList " + timeGet(linked, ops) + "ms, TokenList " + timeGet(tokens, ops) + "ms");
+		System.out.println("  Tags einfügen:        LinkedList " + timeInsert(linked, ops) + "ms, TokenList " + timeInsert(tokens, ops) + "ms");
+	}
+	
+	/**Vergleicht den belegten Speicher einer TokenList mit dem eines TokenSnapshot für eine
+	 * Liste, wie sie der HTML-Parser erzeugt (Markup mit Attributen, Text, Zeilenenden,
+	 * Tag-Paare), sowie die Zeit für die Umwandlung hin und zurück.
+	 * @param size Anzahl der Tokens
+	 */
+	public static void benchmarkTokenSnapshot(int size) {
+		System.out.println("TokenSnapshot mit " + size + " Tokens:");
+		
+		long before = usedMemory();
+		TokenList tokens = new TokenList();
+		fillDocument(tokens, size);
+		long listMemory = usedMemory() - before;
+		
+		long start = System.nanoTime();
+		TokenSnapshot snapshot = TokenSnapshot.fromList(tokens);
+		long toStore = (System.nanoTime() - start) / 1000000;
+		start = System.nanoTime();
+		TokenList back = snapshot.toTokenList();
+		long toList = (System.nanoTime() - start) / 1000000;
+		if (back.size() != tokens.size() || !back.toString().equals(tokens.toString()))
+			throw new IllegalStateException("Fehler im Benchmark: Liste wurde nicht korrekt wiederhergestellt");
+		back = null;
+		
+		tokens = null;
+		long snapshotMemory = usedMemory() - before;
+		if (snapshot.size() != size) throw new IllegalStateException("Fehler im Benchmark");
+		
+		System.out.println("  Speicher:   TokenList " + (listMemory / 1024) + "KB, TokenSnapshot " + (snapshotMemory / 1024) + "KB (" + snapshot.getSymbolCount() + " Symbole)");
+		System.out.println("  Umwandlung: fromList " + toStore + "ms, toTokenList " + toList + "ms");
+	}
+	
+	/**Vergleicht den HTMLTokenizer (Reader) mit dem HTMLBufferTokenizer auf einem Dokument
+	 * und gibt den Durchsatz in MB/s aus (MB = Millionen Zeichen). Vorher wird geprüft, ob
+	 * beide Tokenizer ab dem Body die selben Tokens liefern.
+	 * @param name
+	 * @param document
+	 * @throws IOException
+	 */
+	public static void benchmarkTokenizer(String name, String document) throws IOException {
+		System.out.println("Tokenizer für " + name + " (" + document.length() + " Zeichen):");
+		
+		//Vergleich der Tokens
+		HTMLTokenizer reader = new HTMLTokenizer(new StringReader(document));
+		HTMLBufferTokenizer buffer = new HTMLBufferTokenizer(document);
+		int type;
+		boolean start = false;
+		while (!start && (type = reader.nextToken()) != HTMLTokenizer.TT_EOF)
+			start = type == HTMLTokenizer.TT_TAG && reader.getToken().startsWith("body");
+		if (start != buffer.seekBody())
+			throw new IllegalStateException("Tokenizer unterscheiden sich beim Body-Tag");
+		if (start) reader.pushBack();
+		int count = 0;
+		do {
+			type = reader.nextToken();
+			if (type != buffer.nextToken()) throw new IllegalStateException("Tokenizer unterscheiden sich bei Token " + count + ": " + reader + " / " + buffer);
+			if (type != HTMLTokenizer.TT_EOF && (!reader.getToken().equals(buffer.getToken())
+					|| reader.getBeginningPos() != buffer.getBeginningPos() || reader.getEndPos() != buffer.getEndPos()))
+				throw new IllegalStateException("Tokenizer unterscheiden sich bei Token " + count + ": " + reader + " / " + buffer);
+			count++;
+		} while (type != HTMLTokenizer.TT_EOF);
+		
+		long readerTime = Long.MAX_VALUE, bufferTime = Long.MAX_VALUE, seekTime = Long.MAX_VALUE;
+		for (int run = 0; run <= RUNS; run++) {
+			long time = System.nanoTime();
+			reader = new HTMLTokenizer(new StringReader(document));
+			while (reader.nextToken() != HTMLTokenizer.TT_EOF) reader.getToken();
+			time = System.nanoTime() - time;
+			if (run > 0 && time < readerTime) readerTime = time; //erster Durchlauf zum Aufwärmen
+			
+			time = System.nanoTime();
+			buffer = new HTMLBufferTokenizer(document);
+			while (buffer.nextToken() != HTMLTokenizer.TT_EOF) buffer.getToken();
+			time = System.nanoTime() - time;
+			if (run > 0 && time < bufferTime) bufferTime = time;
+			
+			time = System.nanoTime();
+			buffer = new HTMLBufferTokenizer(document);
+			if (buffer.seekBody())
+				while (buffer.nextToken() != HTMLTokenizer.TT_EOF) buffer.getToken();
+			time = System.nanoTime() - time;
+			if (run > 0 && time < seekTime) seekTime = time;
+		}
+		
+		System.out.println("  " + count + " Tokens ab Body geprüft");
+		System.out.println("  HTMLTokenizer:       " + throughput(document, readerTime) + " MB/s");
+		System.out.println("  HTMLBufferTokenizer: " + throughput(document, bufferTime) + " MB/s, mit seekBody " + throughput(document, seekTime) + " MB/s");
+	}
+	
+	/**Berechnet den Durchsatz in Millionen Zeichen pro Sekunde
+	 * @param document
+	 * @param nanos
+	 * @return
+	 */
+	private static String throughput(String document, long nanos) {
+		double mbs = document.length() / (nanos / 1000.0);
+		return String.valueOf(Math.round(mbs * 10) / 10.0);
+	}
+	
+	/**Erzeugt ein HTML-Dokument mit einer Tabelle mit der angegebenen Anzahl von Zeilen
+	 * @param rows
+	 * @return
+	 */
+	private static String createDocument(int rows) {
+		StringBuffer doc = new StringBuffer("<html>\n<head>\n<title>Benchmark</title>\n");
+		doc.append("<style type=\"text/css\">td { font-size: 12px; }</style>\n</head>\n<body>\n<table>\n");
+		for (int i = 0; i < rows; i++) {
+			doc.append("<tr><td class=\"zelle").append(i % 5).append("\">wort").append(i % 500);
+			doc.append(" &amp; text, ").append(i).append(".</td>\n<td style=\"color: red\">&nbsp;</td></tr>\n");
+		}
+		doc.append("</table>\n</body>\n</html>\n");
+		return doc.toString();
+	}
+	
+	/**Gibt den belegten Speicher nach einer Speicherbereinigung zurück
+	 * @return
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	/**Füllt eine Liste mit Tokens, wie sie beim Parsen einer HTML-Tabelle entstehen
+	 * @param list
+	 * @param size
+	 */
+	private static void fillDocument(List<Token> list, int size) {
+		int pos = 0, row = 1;
+		for (int i = 0; list.size() < size; i++) {
+			Token tok;
+			switch (i % 6) {
+			case 0:
+				tok = new MarkupToken("td");
+				tok.addAttribute("class", "zelle" + (i % 5));
+				tok.addAttribute("font-size", "12");
+				tok.addAttribute("texttype", "normal");
+				break;
+			case 1: case 2: tok = new TextToken("wort" + (i % 500), "W"); break;
+			case 3: tok = new PunctuationToken(".", "STOP"); break;
+			case 4: tok = new MarkupToken("/td"); break;
+			default: tok = new EOLToken(); row++;
+			}
+			tok.initTextPosition(pos, row, i % 80, pos + 4, row, i % 80 + 4);
+			pos += 5;
+			list.add(tok);
+			//ab und zu ein Tag-Paar um das letzte Token
+			if (i % 50 == 49 && list.size() + 2 <= size) {
+				TestElTag startTag = new TestElTag("tag", "KF");
+				TestElTag stopTag = new TestElTag("/tag", "KF");
+				startTag.setReference(stopTag);
+				stopTag.setReference(startTag);
+				list.add(list.size() - 1, startTag);
+				list.add(stopTag);
+			}
+		}
+	}
+	
+	/**Füllt eine Liste mit Text-Tokens
+	 * @param list
+	 * @param size
+	 */
+	private static void fill(List<Token> list, int size) {
+		for (int i = 0; i < size; i++)
+			list.add(new TextToken("wort" + (i % 100), "W"));
+	}
+	
+	/**Misst listIterator(i) mit anschließendem next() an zufälligen Stellen
+	 * @param list
+	 * @param ops
+	 * @return beste Zeit in ms
+	 */
+	private static long timeIterators(List<Token> list, int ops) {
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run <= RUNS; run++) {
+			Random random = new Random(42);
+			long start = System.nanoTime();
+			int found = 0;
+			for (int i = 0; i < ops; i++) {
+				ListIterator<Token> it = list.listIterator(random.nextInt(list.size()));
+				if (it.hasNext() && it.next() != null) found++;
+			}
+			long time = (System.nanoTime() - start) / 1000000;
+			if (run > 0 && time < best) best = time; //erster Durchlauf zum Aufwärmen
+			if (found != ops) throw new IllegalStateException("Fehler im Benchmark");
+		}
+		return best;
+	}
+	
+	/**Misst get(i-2) und get(i) an zufälligen Stellen
+	 * @param list
+	 * @param ops
+	 * @return beste Zeit in ms
+	 */
+	private static long timeGet(List<Token> list, int ops) {
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run <= RUNS; run++) {
+			Random random = new Random(42);
+			long start = System.nanoTime();
+			int found = 0;
+			for (int i = 0; i < ops; i++) {
+				int pos = 2 + random.nextInt(list.size() - 2);
+				if (list.get(pos - 2) != null && list.get(pos) != null) found++;
+			}
+			long time = (System.nanoTime() - start) / 1000000;
+			if (run > 0 && time < best) best = time;
+			if (found != ops) throw new IllegalStateException("Fehler im Benchmark");
+		}
+		return best;
+	}
+	
+	/**Fügt von hinten nach vorne Start- und Endtags um einzelne Tokens ein (wie beim
+	 * Taggen) und entfernt sie danach wieder
+	 * @param list
+	 * @param ops
+	 * @return beste Zeit in ms
+	 */
+	private static long timeInsert(List<Token> list, int ops) {
+		long best = Long.MAX_VALUE;
+		int size = list.size();
+		int step = Math.max(1, size / ops);
+		for (int run = 0; run <= RUNS; run++) {
+			long start = System.nanoTime();
+			for (int pos = size - step; pos >= 0; pos -= step) {
+				list.add(pos + 1, new TestElTag("/match", "T"));
+				list.add(pos, new TestElTag("match", "T"));
+			}
+			long time = (System.nanoTime() - start) / 1000000;
+			if (run > 0 && time < best) best = time;
+			//Tags wieder entfernen
+			ListIterator<Token> it = list.listIterator();
+			while (it.hasNext())
+				if (it.next() instanceof TestElTag) it.remove();
+			if (list.size() != size) throw new IllegalStateException("Fehler im Benchmark");
+		}
+		return best;
+	}
+}
@@ -23,9 +23,11 @@
  */
 package de.beimax.testel;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.MalformedURLException;
@@ -35,6 +37,11 @@ import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -80,6 +87,27 @@ public class TestEl {
 	protected static boolean skipNormalizer = false;
 	protected static boolean fewertags = false;
 	protected static String charset = null;
+	
+	/**
+	 * Anzahl der parallel arbeitenden Handler (1 = sequentiell)
+	 */
+	protected static int threads = 1;
+	
+	/**
+	 * Anzahl der eingereihten, aber noch nicht ausgegebenen Handler pro Thread bei
+	 * paralleler Bearbeitung
+	 */
+	private static final int PARALLEL_WINDOW = 2;
+	
+	/**
+	 * Anzahl der Threads pro Stufe bei Bearbeitung in Stufen (null = nicht in Stufen)
+	 */
+	protected static int[] stages = null;
+	
+	/**
+	 * Port des Server-Modus (0 = kein Server)
+	 */
+	protected static int serverPort = 0;
 
 	/**
 	 * @param args
@@ -107,6 +135,19 @@ public class TestEl {
 		//Banner ausgeben
 		if (!quiet) printBanner(); //Banner drucken
 		
+		//Server-Modus: Server starten, die JVM läuft dann bis zum Abbruch weiter
+		if (serverPort > 0) {
+			try {
+				new TestElServer(serverPort, threads).start();
+			} catch (IOException e) {
+				logger.severe("Konnte TestEl-Server nicht starten:\n" + e.getLocalizedMessage());
+				System.err.println("Konnte TestEl-Server nicht starten:\n" + e.getLocalizedMessage());
+				System.exit(1);
+			}
+			if (!quiet) System.out.println("TestEl-Server hört auf http://localhost:" + serverPort + TestElServer.CONTEXT);
+			return;
+		}
+		
 		//Handlers holen
 		LinkedList<TestElHandler> handlers = null;
 		try {
@@ -117,30 +158,11 @@ public class TestEl {
 			System.exit(1); //mit Fehler beenden
 		}
 		
-		//Handler der Reihe nach Aufrufen
-		Iterator<TestElHandler> it = handlers.iterator();
-		TestElHandler h = null;
-		int errorcount = 0; //Fehlerzähler
-		while (it.hasNext()) {
-			try {
-				h = it.next();
-				h.handle();
-			} catch (Exception e) {
-				errorcount++; //Fehlerzähler um eins inkrementieren
-				String url;
-				if (h == null) url = "[unbekannt]";
-				else url = h.getURL().toString();
-				String msg = e.getLocalizedMessage();
-				if (msg == null) { //Message in String
-					StringWriter w = new StringWriter();
-					e.printStackTrace(new PrintWriter(w));
-					msg = w.toString();
-				}
-				logger.severe("Beim Bearbeiten von " + url + " trat ein Fehler auf:\n" + msg);
-				if (!quiet)
-					System.err.println("Beim Bearbeiten von " + url + " trat ein Fehler auf:\n" + msg);
-			} //Handle aufrufen
-		}
+		//Handler der Reihe nach bzw. parallel aufrufen
+		int errorcount; //Fehlerzähler
+		if (stages != null && handlers.size() > 1) errorcount = runStaged(handlers);
+		else if (threads > 1 && handlers.size() > 1) errorcount = runParallel(handlers);
+		else errorcount = runSequential(handlers);
 		
 		//ggf. Erfolgsmeldung am Ende
 		String endmess;
@@ -159,6 +181,120 @@ public class TestEl {
 		if (errorcount != 0) System.exit(3); //Fehler aufgetreten		
 	}
 
+	/**Ruft die Handler der Reihe nach auf
+	 * @param handlers
+	 * @return Anzahl der fehlerhaft bearbeiteten Dokumente
+	 */
+	private static int runSequential(LinkedList<TestElHandler> handlers) {
+		Iterator<TestElHandler> it = handlers.iterator();
+		int errorcount = 0; //Fehlerzähler
+		while (it.hasNext()) {
+			TestElHandler h = it.next();
+			try {
+				h.handle();
+			} catch (Exception e) {
+				errorcount++; //Fehlerzähler um eins inkrementieren
+				printHandlerError(h, e);
+			} //Handle aufrufen
+		}
+		return errorcount;
+	}
+	
+	/**Ruft die Handler parallel in einem Thread-Pool fester Größe auf. Jeder Handler
+	 * schreibt seine Ausgaben in einen eigenen Puffer, die Puffer und evt. Fehler werden
+	 * in der Reihenfolge der Handler ausgegeben - die Ausgabe entspricht damit der eines
+	 * sequentiellen Durchlaufs. Es sind höchstens threads * PARALLEL_WINDOW Handler
+	 * eingereiht, aber noch nicht ausgegeben; jeder Puffer wird nach der Ausgabe freigegeben.
+	 * @param handlers
+	 * @return Anzahl der fehlerhaft bearbeiteten Dokumente
+	 */
+	private static int runParallel(LinkedList<TestElHandler> handlers) {
+		logger.info("Bearbeite " + handlers.size() + " Dokumente mit " + threads + " Threads");
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		int window = threads * PARALLEL_WINDOW;
+		
+		//eingereihte, noch nicht ausgegebene Handler samt Puffer
+		LinkedList<TestElHandler> pending = new LinkedList<TestElHandler>();
+		LinkedList<Future<Object>> futures = new LinkedList<Future<Object>>();
+		LinkedList<ByteArrayOutputStream> buffers = new LinkedList<ByteArrayOutputStream>();
+		
+		int errorcount = 0; //Fehlerzähler
+		Iterator<TestElHandler> it = handlers.iterator();
+		while (it.hasNext() || !pending.isEmpty()) {
+			//Fenster in der Reihenfolge der Liste auffüllen
+			while (it.hasNext() && pending.size() < window) {
+				final TestElHandler h = it.next();
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				h.setOutputStream(new PrintStream(buffer, true));
+				pending.add(h);
+				buffers.add(buffer);
+				futures.add(pool.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						h.handle();
+						return null;
+					}
+				}));
+			}
+			
+			//ältesten Handler abwarten und ausgeben
+			TestElHandler h = pending.removeFirst();
+			ByteArrayOutputStream buffer = buffers.removeFirst();
+			Exception error = null;
+			try {
+				futures.removeFirst().get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Exception) error = (Exception) e.getCause();
+				else error = e;
+			} catch (InterruptedException e) {
+				error = e;
+			}
+			//gepufferte Ausgabe des Handlers weiterreichen
+			System.out.print(buffer.toString());
+			System.out.flush();
+			h.setOutputStream(System.out);
+			if (error != null) {
+				errorcount++; //Fehlerzähler um eins inkrementieren
+				printHandlerError(h, error);
+			}
+		}
+		pool.shutdown();
+		return errorcount;
+	}
+	
+	/**Ruft die Handler in Stufen (Laden/Normalisieren, Parsen/Taggen, Speichern) mit
+	 * eigenen Threads und begrenzten Warteschlangen auf (s. TestElStagedRunner)
+	 * @param handlers
+	 * @return Anzahl der fehlerhaft bearbeiteten Dokumente
+	 */
+	private static int runStaged(LinkedList<TestElHandler> handlers) {
+		int queueSize = 4;
+		String queueC = Config.getConfig("stage-queue");
+		if (queueC != null)
+			try {
+				queueSize = Integer.parseInt(queueC.trim());
+			} catch (NumberFormatException e) {
+				logger.warning("Ungültige Größe der Warteschlange stage-queue=" + queueC + " - verwende " + queueSize);
+			}
+		if (queueSize < 1) queueSize = 1;
+		
+		return new TestElStagedRunner(stages, queueSize).run(handlers);
+	}
+	
+	/**Gibt einen Fehler beim Bearbeiten eines Handlers aus
+	 * @param h
+	 * @param e
+	 */
+	static void printHandlerError(TestElHandler h, Exception e) {
+		String url;
+		if (h == null) url = "[unbekannt]";
+		else url = h.getURL().toString();
+		String msg = e.getLocalizedMessage();
+		if (msg == null) msg = getStackTrace(e); //Message in String
+		logger.severe("Beim Bearbeiten von " + url + " trat ein Fehler auf:\n" + msg);
+		if (!quiet)
+			System.err.println("Beim Bearbeiten von " + url + " trat ein Fehler auf:\n" + msg);
+	}
+
 	/**
 	 * Druckt den Banner.
 	 */
@@ -196,6 +332,14 @@ public class TestEl {
                 "  --skip-normalizer        : Überspringe Normalisierer\n" +
                 "                             (nur im Pretrain- & Tag-Modus)\n" +
                 "  --fewer-tags             : Nur match- und ref-Tags anzeigen (nur PreTrain)\n" +
+                "  --threads,-n [N]         : Bearbeite Verzeichnisse mit N parallelen Threads\n" +
+                "                             (Standard: 1, im Train-Modus immer 1)\n" +
+                "  --stages [L:P:S]         : Bearbeite Verzeichnisse in Stufen mit L Threads\n" +
+                "                             zum Laden/Normalisieren, P zum Parsen/Taggen und\n" +
+                "                             S zum Speichern (nicht im Train-Modus)\n" +
+                "  --server [port]          : Startet TestEl als lokalen HTTP-Server, der\n" +
+                "                             Anfragen an /tag beantwortet (Modelle bleiben\n" +
+                "                             geladen, --threads gibt Anzahl der Threads an)\n" +
 				"  --config,-c [file]       : Properties-Datei (Standard: testel.properties)\n" +
 				"  --logging-properties [f] : Properties-Datei für Logger\n" +
 				"  --loglevel,-l [level]    : Loglevel\n" +
@@ -237,6 +381,9 @@ public class TestEl {
 		CmdLineParser.Option fewerTagsO = parser.addBooleanOption("fewer-tags");
 		CmdLineParser.Option tokenLogO = parser.addStringOption("tokenlog");
 		CmdLineParser.Option encodingO = parser.addStringOption('e', "encoding");
+		CmdLineParser.Option threadsO = parser.addIntegerOption('n', "threads");
+		CmdLineParser.Option stagesO = parser.addStringOption("stages");
+		CmdLineParser.Option serverO = parser.addIntegerOption("server");
 
 		//Kommandozeile abarbeiten
 		try {
@@ -248,6 +395,9 @@ public class TestEl {
 					(String) parser.getOptionValue(typeO),
 					(Boolean) parser.getOptionValue(fewerTagsO));
 			
+			//Server-Modus
+			doServer((Integer) parser.getOptionValue(serverO));
+			
 			//Modus erkennen
 			doMode((String) parser.getOptionValue(modeO), modeO,
 					(Boolean) parser.getOptionValue(preTrainO),
@@ -272,6 +422,9 @@ public class TestEl {
 					(Boolean) parser.getOptionValue(skipnormalizerO));
 			//Encoding
 			doEncoding((String) parser.getOptionValue(encodingO));
+			//Threads
+			doThreads((Integer) parser.getOptionValue(threadsO));
+			doStages((String) parser.getOptionValue(stagesO));
 			
 			//Parameter-Check: sind die Parameter für einen Modus alle vorhanden?
 			doModeParamCheck();
@@ -340,8 +493,8 @@ public class TestEl {
 			else mode = TestElHandler.MODE_NORMALIZEONLY;
 		}
 		
-		//Kein Modus definiert: Fehler!
-		if (mode == 0) throw new TestelConfigException("Es wurde kein Modus definiert!");
+		//Kein Modus definiert: Fehler! (außer im Server-Modus, der Modus kommt dort pro Anfrage)
+		if (mode == 0 && serverPort == 0) throw new TestelConfigException("Es wurde kein Modus definiert!");
 	}
 
 	/**Lädt die logging.properties-Datei, bei 
@@ -472,6 +625,11 @@ public class TestEl {
 	 * @throws TestelConfigException
 	 */
 	private static void doModeParamCheck() throws TestelConfigException {
+		if (serverPort > 0) {
+			if (mode != 0) throw new TestelConfigException("Im Server-Modus wird der Modus pro Anfrage übergeben");
+			if (input != null) throw new TestelConfigException("Überfüssige Option --input");
+			return;
+		}
 		switch (mode) {
 		case TestElHandler.MODE_TAG:
 			//Im Pretraining und Tagging wird die Input-Option erwartet, das ist
@@ -585,6 +743,62 @@ public class TestEl {
 		logger.info("Eingabeformat ist " + encoding);
 	}
 
+	/**Server-Modus einstellen
+	 * @param port
+	 * @throws TestelConfigException
+	 */
+	private static void doServer(Integer port) throws TestelConfigException {
+		if (port == null) return; //kein Server
+		if (port < 1 || port > 65535) throw new TestelConfigException("Ungültiger Port " + port);
+		serverPort = port;
+	}
+
+	/**Anzahl der parallelen Threads einstellen
+	 * @param number
+	 * @throws TestelConfigException
+	 */
+	private static void doThreads(Integer number) throws TestelConfigException {
+		if (number == null) return; //Standard: sequentiell
+		if (number < 1) throw new TestelConfigException("Ungültige Anzahl an Threads " + number);
+		
+		//Im Trainingsmodus werden die gemeinsamen Klassifizierer- und Referenzdaten
+		//verändert, d.h. die Reihenfolge ist entscheidend
+		if (mode == TestElHandler.MODE_TRAIN && number > 1) {
+			logger.warning("Im Train-Modus wird immer sequentiell gearbeitet - ignoriere --threads " + number);
+			return;
+		}
+		threads = number;
+		logger.info("Anzahl der Threads ist " + threads);
+	}
+
+	/**Anzahl der Threads pro Stufe, Format L:P:S
+	 * @param stagestr
+	 * @throws TestelConfigException
+	 */
+	private static void doStages(String stagestr) throws TestelConfigException {
+		if (stagestr == null) return; //Standard: nicht in Stufen
+		
+		String[] parts = stagestr.split(":");
+		if (parts.length != TestElStagedRunner.stagename.length) throw new TestelConfigException("Ungültige Angabe --stages " + stagestr + " (Format L:P:S, z.B. 4:2:1)");
+		int[] numbers = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			try {
+				numbers[i] = Integer.parseInt(parts[i].trim());
+			} catch (NumberFormatException e) {
+				throw new TestelConfigException("Ungültige Angabe --stages " + stagestr + " (Format L:P:S, z.B. 4:2:1)");
+			}
+			if (numbers[i] < 1) throw new TestelConfigException("Ungültige Anzahl an Threads " + numbers[i] + " in --stages " + stagestr);
+		}
+		
+		//Im Trainingsmodus wird immer sequentiell gearbeitet (s. doThreads)
+		if (mode == TestElHandler.MODE_TRAIN) {
+			logger.warning("Im Train-Modus wird immer sequentiell gearbeitet - ignoriere --stages " + stagestr);
+			return;
+		}
+		stages = numbers;
+		logger.info("Threads pro Stufe: " + stagestr);
+	}
+
 	/**Holt sich die Liste der Handlers - ein Handler pro Datei
 	 * @return
 	 * @throws TestelException
@@ -25,6 +25,7 @@ package de.beimax.testel;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
@@ -44,7 +45,6 @@ import de.beimax.testel.mime.MimeFactory;
 import de.beimax.testel.mime.Normalizer;
 import de.beimax.testel.mime.Parser;
 import de.beimax.testel.mime.Statistician;
-import de.beimax.testel.token.Token;
 import de.beimax.testel.token.TokenList;
 import de.beimax.testel.util.IOHelper;
 
@@ -66,6 +66,11 @@ public class TestElHandler {
 	public static final int MODE_NORMALIZEONLY = 4;
 	public static final String[] modename = {"NN", "PreTrain", "Train", "Tag", "Normalize Only"}; 
 	
+	/**
+	 * Zuletzt vergebener Zeitstempel für Pretrained-Dateien
+	 */
+	private static long lastPretrainedStamp = 0;
+	
 	/**Aktueller Status
 	 */
 	private int mode = 0; //Mode
@@ -77,6 +82,7 @@ public class TestElHandler {
 	private boolean quiet;
 	private boolean inline = false;
 	private boolean skipnormalizer = false;
+	private boolean createresult = true;
 	private boolean fewertags = false;
 	private String charset = null;
 	
@@ -91,11 +97,27 @@ public class TestElHandler {
 	private File designatedOutputXML;
 	private Statistician statistician = null;
 	
+	/**
+	 * Ergebnis der Bearbeitung (getaggtes Dokument, XML-Beschreibung bzw. normalisiertes
+	 * Dokument) - bleibt im Gegensatz zu den anderen Daten nach handle() erhalten
+	 */
+	private String result = null;
+	
+	/**
+	 * Startzeit der Bearbeitung (s. begin())
+	 */
+	private long starttime;
+	
 	/**
 	 * tokenLog-Datei
 	 */
 	private File tokenLog;
 	
+	/**
+	 * Ziel der Bildschirmausgaben (Standard: System.out)
+	 */
+	private PrintStream out = System.out;
+	
 	/**
 	 * Factory-Klassen
 	 */
@@ -141,6 +163,14 @@ public class TestElHandler {
 		skipnormalizer = true;
 	}
 	
+	/**
+	 * Kein getaggtes Dokument bzw. keine XML-Beschreibung in tag() erstellen (getResult()
+	 * bleibt null) - z.B. wenn nur die Tokenliste gebraucht wird
+	 */
+	public void deactivateResult() {
+		createresult = false;
+	}
+	
 	/**Stelle Mime-Type auf einen bestimmten ein
 	 * @param mime Kurzform eines Mime-Typs, z.B. text/html
 	 */
@@ -163,6 +193,21 @@ public class TestElHandler {
 		return document;
 	}
 
+	/**Setzt das Rohdokument direkt (z.B. im Server-Modus) - es wird dann nicht mehr über
+	 * die URL geladen, die URL dient nur noch als Referenz.
+	 * @param document
+	 */
+	public void setDocument(String document) {
+		this.document = document;
+	}
+
+	/** Getter für result
+	 * @return result
+	 */
+	public String getResult() {
+		return result;
+	}
+
 	/** Getter für TokenList
 	 * @return tokenList
 	 */
@@ -247,6 +292,21 @@ public class TestElHandler {
 		tokenLog = output;
 	}
 
+	/**Setzt das Ziel der Bildschirmausgaben - wird z.B. beim parallelen Bearbeiten
+	 * gebraucht, damit die Ausgaben nicht durcheinander geraten
+	 * @param out
+	 */
+	public void setOutputStream(PrintStream out) {
+		this.out = out;
+	}
+
+	/** Getter für out
+	 * @return out
+	 */
+	public PrintStream getOutputStream() {
+		return out;
+	}
+
 	/**Setzt das Charset/Eincoding der Eingabedatei
 	 * @param output
 	 */
@@ -256,22 +316,62 @@ public class TestElHandler {
 
 	/**
 	 * Diese Methode wird zum Starten des eigentlichen Parsing/Tagging-Prozesses
-	 * aufgerufen.
+	 * aufgerufen. Sie ruft die einzelnen Arbeitsschritte load, normalize, parse, tag,
+	 * save und release der Reihe nach auf - diese können auch einzeln aufgerufen werden
+	 * (z.B. von TestElPipeline).
 	 */
 	public void handle() throws TestelException {
-		long starttime = System.currentTimeMillis();
+		begin();
+		load();
+		normalize();
+		parse(); //nicht im nur-Normalisierungsmodus
+		tag();
+		save();
 		
-		if (!quiet)
-			System.out.println("Bearbeite URL " + url);
+		//die wesentlichen Ressourcen freigeben, falls mehrere Handler aufgerufen werden
+		//(Speicherplatz kann freigegeben werden).
+		release();
+		finish();
+	}
+	
+	/**
+	 * Startet die Zeitmessung und meldet den Beginn der Bearbeitung
+	 */
+	public void begin() {
+		starttime = System.currentTimeMillis();
 		
-		//Tokens über aktuellen Handler informieren
-		Token.setHandler(this);
+		if (!quiet)
+			out.println("Bearbeite URL " + url);
+	}
+	
+	/**
+	 * Meldet das Ende der Bearbeitung samt Dauer (nicht im nur-Normalisierungsmodus)
+	 */
+	public void finish() {
+		if (mode == MODE_NORMALIZEONLY) return;
 		
-		//Dokument laden und Mime-Type feststellen
-		try {
-			loadRawDocument();
-		} catch (Exception e) {
-			throw new TestelException("Fehler beim Laden von " + url + ":\n" + TestEl.getStackTrace(e));
+		long timelength = System.currentTimeMillis() - starttime;
+		String msg = "URL " + url + " wurde in " + timelength + "ms abgearbeitet (Modus: " + modename[mode] + ").";
+		if (!quiet) out.println(msg);
+		logger.info(msg);
+	}
+	
+	/**Arbeitsschritt 1: Dokument laden (falls es nicht schon per setDocument gesetzt wurde)
+	 * und Factories laden
+	 * @throws TestelException
+	 */
+	public void load() throws TestelException {
+		//Dokument laden und Mime-Type feststellen, falls es nicht schon gesetzt wurde
+		result = null;
+		if (document == null)
+			try {
+				loadRawDocument();
+			} catch (Exception e) {
+				throw new TestelException("Fehler beim Laden von " + url + ":\n" + TestEl.getStackTrace(e));
+			}
+		else if (mimetype == null) {
+			mimetype = Config.getConfig("defaultcontent");
+			logger.info("Mimetype von " + url + " ist nicht angegeben - verwende Standardtyp " + mimetype);
 		}
 		//Dokument geladen?
 		if (document == null) throw new TestelException("Fehler beim Laden von " + url + ":\nDokument war leer");
@@ -282,8 +382,12 @@ public class TestElHandler {
 		} catch (Exception e) {
 			throw new TestelException("Fehler beim Laden der Factory-Klassen:\n" + TestEl.getStackTrace(e));
 		}
-		
-		//normalsieren, wenn Modus & Einstellung stimmt
+	}
+	
+	/**Arbeitsschritt 2: Dokument normalisieren, wenn Modus & Einstellung stimmt
+	 * @throws TestelException
+	 */
+	public void normalize() throws TestelException {
 		if (mode == MODE_PRETRAIN || mode == MODE_TAG || mode == MODE_NORMALIZEONLY) {
 			if (skipnormalizer)
 				logger.info("Überspringe Normalisierer, wie auf der Kommandozeile gewünscht");
@@ -296,15 +400,14 @@ public class TestElHandler {
 				}
 		}
 		if (document == null) throw new TestelException("Fehler beim Normalisieren von " + url + ":\nDokument wurde leer");
-		
-		//nur-Normalisierungsmodus:
-		if (mode == MODE_NORMALIZEONLY) {
-			//Ausgabedaten richtig setzen
-			makeOutputFiles();
-			//Dateien speichern
-			saveDocs(document);
-			return;
-		} //Ende nur-Normalisierungsmodus - Rückkehr in die aufrufende Methode
+	}
+	
+	/**Arbeitsschritt 3: Dokument parsen, Sprach-Tagger, Statistiker und TaggerCollection
+	 * aufrufen (nicht im nur-Normalisierungsmodus)
+	 * @throws TestelException
+	 */
+	public void parse() throws TestelException {
+		if (mode == MODE_NORMALIZEONLY) return;
 		
 		//Parser laden
 		try {
@@ -351,13 +454,21 @@ public class TestElHandler {
 		}
 		doTokenLog();
 		
-		//fertig ist die Tag-Liste - zumindest vor dem Taggen - das passiert unten
-
+		//fertig ist die Tag-Liste - zumindest vor dem Taggen - das passiert in tag()
+	}
+	
+	/**Arbeitsschritt 4: Ausgabedateien festlegen und je nach Modus trainieren oder
+	 * Referenzen und TestEl-Tags taggen - das Ergebnis steht danach in getResult()
+	 * @throws TestelException
+	 */
+	public void tag() throws TestelException {
 		//Ausgabedaten richtig setzen
 		makeOutputFiles();
-
+		
 		//nun Mode-spezifische Dinge tun
-		if (mode == MODE_TRAIN) {
+		if (mode == MODE_NORMALIZEONLY) {
+			result = document;
+		} else if (mode == MODE_TRAIN) {
 			//Trainer starten
 			Trainer trainer = new Trainer(this);
 			try {
@@ -365,42 +476,6 @@ public class TestElHandler {
 			} catch (TestelException e) {
 				throw new TestelException("Fehler beim Trainieren von " + url + ":\n" + TestEl.getStackTrace(e));
 			}
-			
-			//im Train-Modus die pretrain-Datei verschieben
-			if (!dryrun) {
-				String file, path;
-				File toPath;
-				try {
-					path = IOHelper.getPath(url);
-					file = IOHelper.getFileName(url);
-					toPath = new File(getMimeFactory().getMimeDir(), "trained");
-				} catch (MalformedURLException e) {
-					throw new TestelException("Konnte URL " + url + " nicht in Datei auflösen");
-				} catch (IOException e) {
-					throw new TestelException("Konnte Zielverzeichnis 'trained' für Mime-Typ " + getMimeType() + " nicht finden, um die pretrained-Datei zu verschieben\n" + TestEl.getStackTrace(e));
-				}
-				File from = new File(path, file);
-				File to = new File(toPath, file);
-				
-				//gzip für Ziel?
-				boolean gzip;
-				String gzipC = Config.getConfig("gzip_trained_" + getMimeType());
-				if (gzipC != null && gzipC.equalsIgnoreCase("true")) gzip = true;
-				else gzip = false;
-				
-				if (gzip) {
-					to = new File(toPath, file + ".gz");
-					try {
-						IOHelper.stringtoGzipFile(document, to);
-					} catch (IOException e) {
-						throw new TestelException("Konnte " + to + " nicht speichern:\n" + TestEl.getStackTrace(e));
-					}
-					if (!from.delete())
-						throw new TestelException("Konnte " + from + " nicht löschen");
-				} else //kein gzip: Einfach umbenennen
-					if (!from.renameTo(to))
-						throw new TestelException("Konnte " + from + " nicht nach " + to + " verschieben");
-			}
 		} else { //alle anderen Modi
 			//Referenz-Tagger laden
 			try {
@@ -419,33 +494,76 @@ public class TestElHandler {
 			doTokenLog();
 			
 			//DocumentTagger laden und getaggedes Dokument holen
-			String taggedDoc;
+			if (!createresult) return;
 			try {
 				DocumentTagger documentTagger = new DocumentTagger();
 				//komplett taggen
 				boolean allTags;
 				if (mode == MODE_PRETRAIN) allTags = true;
 				else allTags = false;
-				if (inline) taggedDoc = documentTagger.createInlineDocument(document, tokenList, allTags, fewertags);
-				else taggedDoc = documentTagger.createXMLDescription(document, tokenList, url, designatedOutput);
+				if (inline) result = documentTagger.createInlineDocument(document, tokenList, allTags, fewertags);
+				else result = documentTagger.createXMLDescription(document, tokenList, url, designatedOutput);
 			} catch (Exception e) {
 				throw new TestelException("Fehler beim Erstellen der Tag-Daten:\n" + TestEl.getStackTrace(e));
 			}
-				
+		}
+	}
+	
+	/**Arbeitsschritt 5: Ergebnisse speichern bzw. im Train-Modus die pretrain-Datei
+	 * verschieben
+	 * @throws TestelException
+	 */
+	public void save() throws TestelException {
+		if (mode != MODE_TRAIN) {
 			//Dateien speichern
-			saveDocs(taggedDoc);
+			saveDocs(result);
+			return;
 		}
 		
-		//die wesentlichen Ressourcen freigeben, falls mehrere Handler aufgerufen werden
-		//(Speicherplatz kann freigegeben werden).
+		//im Train-Modus die pretrain-Datei verschieben
+		if (!dryrun) {
+			String file, path;
+			File toPath;
+			try {
+				path = IOHelper.getPath(url);
+				file = IOHelper.getFileName(url);
+				toPath = new File(getMimeFactory().getMimeDir(), "trained");
+			} catch (MalformedURLException e) {
+				throw new TestelException("Konnte URL " + url + " nicht in Datei auflösen");
+			} catch (IOException e) {
+				throw new TestelException("Konnte Zielverzeichnis 'trained' für Mime-Typ " + getMimeType() + " nicht finden, um die pretrained-Datei zu verschieben\n" + TestEl.getStackTrace(e));
+			}
+			File from = new File(path, file);
+			File to = new File(toPath, file);
+			
+			//gzip für Ziel?
+			boolean gzip;
+			String gzipC = Config.getConfig("gzip_trained_" + getMimeType());
+			if (gzipC != null && gzipC.equalsIgnoreCase("true")) gzip = true;
+			else gzip = false;
+			
+			if (gzip) {
+				to = new File(toPath, file + ".gz");
+				try {
+					IOHelper.stringtoGzipFile(document, to);
+				} catch (IOException e) {
+					throw new TestelException("Konnte " + to + " nicht speichern:\n" + TestEl.getStackTrace(e));
+				}
+				if (!from.delete())
+					throw new TestelException("Konnte " + from + " nicht löschen");
+			} else //kein gzip: Einfach umbenennen
+				if (!from.renameTo(to))
+					throw new TestelException("Konnte " + from + " nicht nach " + to + " verschieben");
+		}
+	}
+	
+	/**
+	 * Arbeitsschritt 6: die wesentlichen Ressourcen freigeben (das Ergebnis bleibt erhalten)
+	 */
+	public void release() {
 		document = null;
 		tokenList = null;
 		statistician = null;
-		
-		long timelength = System.currentTimeMillis() - starttime;
-		String msg = "URL " + url + " wurde in " + timelength + "ms abgearbeitet (Modus: " + modename[mode] + ").";
-		if (!quiet) System.out.println(msg);
-		logger.info(msg);
 	}
 	
 	/**
@@ -521,14 +639,13 @@ public class TestElHandler {
 		String filename;
 		switch (mode) {
 		case MODE_PRETRAIN:
-			filename = System.currentTimeMillis() + getMimeFactory().getFileExtension();
 			File pretrained;
 			try {
 				pretrained = new File(getMimeFactory().getMimeDir(), "pretrained");
 			} catch (IOException e1) {
 				throw new TestelException("Konnte Mime-Corpus-Verzeichnis nicht öffnen:\n" + TestEl.getStackTrace(e1));
 			}
-			designatedOutput = new File(pretrained, filename);
+			designatedOutput = createPretrainedFile(pretrained, getMimeFactory().getFileExtension());
 			break;
 		default: //alle anderen Fälle, falls designatedOutput ein Verzeichnis ist
 			if (designatedOutput != null && designatedOutput.isDirectory()) {
@@ -548,6 +665,21 @@ public class TestElHandler {
 		}
 	}
 	
+	/**Erzeugt eine noch nicht vorhandene Datei mit Zeitstempel als Namen im
+	 * Pretrained-Verzeichnis - synchronisiert und mit zuletzt vergebenem Zeitstempel,
+	 * da parallel laufende Handler sonst denselben Dateinamen erhalten könnten
+	 * @param pretrained Verzeichnis
+	 * @param ext Dateiendung
+	 * @return
+	 */
+	private static synchronized File createPretrainedFile(File pretrained, String ext) {
+		long stamp = Math.max(System.currentTimeMillis(), lastPretrainedStamp + 1);
+		File file;
+		while ((file = new File(pretrained, stamp + ext)).exists()) stamp++;
+		lastPretrainedStamp = stamp;
+		return file;
+	}
+	
 	/**Speichert die Daten als Dateien ab
 	 * @param taggedDoc getaggte Datei - alle anderen Variablen sind Instanzvariablen
 	 * @throws TestelException
@@ -593,9 +725,9 @@ public class TestElHandler {
 			//Standard-Ausgabe
 			if (designatedOutput == null) {
 				//Doc schicken
-				System.out.println(saveDoc);
+				out.println(saveDoc);
 				//evt. XML-Daten
-				if (xmlDoc != null) System.out.println(xmlDoc);
+				if (xmlDoc != null) out.println(xmlDoc);
 				return;
 			}
 			
@@ -610,7 +742,7 @@ public class TestElHandler {
 			}
 			String msg = "Daten als Datei '" + designatedOutput + "' gespeichert";
 			logger.info(msg);
-			if (!quiet) System.out.println(msg);
+			if (!quiet) out.println(msg);
 			//evt. XML-Datei speichern
 			if (xmlDoc != null) {
 				try {
@@ -623,12 +755,12 @@ public class TestElHandler {
 				}
 				msg = "XML-Tags als Datei '" + designatedOutputXML + "' gespeichert";
 				logger.info(msg);
-				if (!quiet) System.out.println(msg);				
+				if (!quiet) out.println(msg);				
 			}
 		} else {
 			String msg = "Dryrun - keine Daten gespeichert";
 			logger.info(msg);
-			if (!quiet) System.out.println(msg);
+			if (!quiet) out.println(msg);
 		}
 	}
 	
@@ -682,7 +814,11 @@ public class TestElHandler {
 				throw new Exception("Fehler bei der Mime-Typ-Erkennung von '" + url.toString() + "':\n" + TestEl.getStackTrace(e));
 			}
 			
-			if (charset != null) //falls Charset manuell eingestellt wurde
+			File file = IOHelper.toFile(url);
+			if (file != null && file.isFile()) { //lokale Dateien direkt über den FileChannel dekodieren
+				connection.getInputStream().close(); //von der Mime-Typ-Erkennung geöffnet
+				dldocument = IOHelper.channelFiletoString(file, charset);
+			} else if (charset != null) //falls Charset manuell eingestellt wurde
 				dldocument = IOHelper.streamtoString(connection.getInputStream(), charset);
 			else dldocument = IOHelper.streamtoString(connection.getInputStream());
 		}
@@ -0,0 +1,288 @@
+/**
+ * Datei: TestElPipeline.java
+ * Paket: de.beimax.testel
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.logging.Logger;
+
+import de.beimax.testel.config.Config;
+import de.beimax.testel.exception.TestelConfigException;
+import de.beimax.testel.exception.TestelException;
+import de.beimax.testel.general.DocumentTagger;
+import de.beimax.testel.general.TestElSpan;
+import de.beimax.testel.lang.LangFactory;
+import de.beimax.testel.mime.MimeFactory;
+import de.beimax.testel.token.TokenSnapshot;
+import de.beimax.testel.util.IOHelper;
+
+/**Einbettbare Pipeline für TestEl: wird einmal aus der Konfiguration erstellt und kann
+ * danach beliebig oft (auch aus mehreren Threads) Dokumente im Speicher taggen, ohne dass
+ * Dateien gelesen oder geschrieben werden. Fabriken, Modelle und Lexika werden beim ersten
+ * Dokument geladen und danach wiederverwendet (s. ModelCache).
+ * 
+ * Beispiel:
+ * <pre>
+ * TestElPipeline pipeline = new TestElPipeline("testel.properties", "text/html");
+ * TestElResult result = pipeline.tag(html);
+ * for (TestElSpan span : result.getSpans()) ...
+ * </pre>
+ * Die Konfiguration (Config) gilt für den ganzen Prozess - alle Pipelines müssen daher
+ * dieselbe Konfigurationsdatei verwenden. Eine zweite Pipeline mit einer anderen Datei wird
+ * abgelehnt, statt die Konfiguration der ersten stillschweigend zu ändern.
+ * @author mkalus
+ *
+ */
+public class TestElPipeline {
+	//Logger
+	static final Logger logger = Logger.getLogger(TestElPipeline.class.getName());
+
+	/**
+	 * Mime-Typ der Dokumente
+	 */
+	private final String mimetype;
+	
+	/**
+	 * Einstellungen wie auf der Kommandozeile
+	 */
+	private int mode = TestElHandler.MODE_TAG;
+	private boolean inline = false;
+	private boolean skipnormalizer = false;
+	private boolean fewertags = false;
+	
+	/**
+	 * Tokenliste als kompakten Schnappschuss (TokenSnapshot) im Ergebnis behalten
+	 */
+	private boolean keeptokens = false;
+	
+	/**
+	 * Getaggtes Dokument bzw. XML-Beschreibung und getaggte Bereiche erstellen
+	 */
+	private boolean taggeddocument = true;
+	private boolean createspans = true;
+	
+	/**
+	 * Von einer Pipeline geladene Konfigurationsdatei (absoluter Pfad) - Config ist
+	 * prozessweit, daher kann es nur eine geben
+	 */
+	private static String loadedconfig = null;
+	
+	/**
+	 * URL, die als Ort der Dokumente angegeben wird
+	 */
+	private URL url;
+
+	/**Konstruktor - lädt die Konfigurationsdatei. Pro Prozess wird nur eine Konfiguration
+	 * unterstützt: wurde die Datei schon von einer anderen Pipeline geladen, wird sie nicht
+	 * neu gelesen, eine andere Datei führt zu einer TestelConfigException.
+	 * @param configfile Konfigurationsdatei (null = testel.properties)
+	 * @param mimetype Mime-Typ der Dokumente (null = defaultcontent der Konfiguration)
+	 * @throws TestelException
+	 */
+	public TestElPipeline(String configfile, String mimetype) throws TestelException {
+		loadConfig(configfile);
+		this.mimetype = init(mimetype);
+	}
+	
+	/**Konstruktor - verwendet die schon geladene Konfiguration
+	 * @param mimetype Mime-Typ der Dokumente (null = defaultcontent der Konfiguration)
+	 * @throws TestelException
+	 */
+	public TestElPipeline(String mimetype) throws TestelException {
+		this.mimetype = init(mimetype);
+	}
+	
+	/**Lädt die Konfigurationsdatei, falls noch keine Pipeline eine geladen hat
+	 * @param configfile
+	 * @throws TestelException
+	 */
+	private static synchronized void loadConfig(String configfile) throws TestelException {
+		String file = new File(configfile == null?"testel.properties":configfile).getAbsolutePath();
+		if (loadedconfig != null) {
+			if (loadedconfig.equals(file)) return;
+			throw new TestelConfigException("Konnte Konfiguration nicht laden:\nEs ist bereits " + loadedconfig +
+					" geladen - pro Prozess wird nur eine Konfiguration unterstützt");
+		}
+		try {
+			Config.init(configfile);
+		} catch (Exception e) {
+			throw new TestelConfigException("Konnte Konfiguration nicht laden:\n" + e.getLocalizedMessage());
+		}
+		loadedconfig = file;
+	}
+	
+	/**Erzeugt die Fabriken einmalig, damit Konfigurationsfehler gleich beim Erstellen
+	 * der Pipeline auffallen
+	 * @param mimetype
+	 * @return tatsächlicher Mime-Typ
+	 * @throws TestelException
+	 */
+	private String init(String mimetype) throws TestelException {
+		if (mimetype == null) mimetype = Config.getConfig("defaultcontent");
+		if (mimetype == null) throw new TestelConfigException("Kein Mime-Typ angegeben und keine Property defaultcontent gesetzt");
+		String lang = Config.getConfig("lang");
+		if (lang == null) throw new TestelConfigException("Konnte keine Sprachkonfiguration finden - ist die Property lang in der Property-Datei festgelegt?");
+
+		LangFactory.buildFactory(lang);
+		MimeFactory.buildFactory(mimetype);
+		
+		try {
+			url = new URL("file", "", "testel-pipeline");
+		} catch (MalformedURLException e) {
+			throw new TestelException("Konnte URL der Pipeline nicht erzeugen:\n" + e.getLocalizedMessage());
+		}
+		
+		logger.info("TestEl-Pipeline für Mime-Typ " + mimetype + " erstellt");
+		return mimetype;
+	}
+
+	/**Taggt ein Dokument
+	 * @param document
+	 * @return Ergebnis mit normalisiertem und getaggtem Dokument sowie den getaggten Bereichen
+	 * @throws TestelException
+	 */
+	public TestElResult tag(CharSequence document) throws TestelException {
+		if (document == null || document.length() == 0) throw new TestelException("Fehler beim Taggen:\nDokument war leer");
+		
+		//Handler erstellen: leise und ohne Dateien zu schreiben
+		TestElHandler handler = new TestElHandler(mode, url, null, true, true, fewertags);
+		if (inline) handler.activateInline();
+		if (skipnormalizer) handler.deactivateNormalizer();
+		else handler.activateNormalizer();
+		if (!taggeddocument) handler.deactivateResult();
+		handler.setMimeType(mimetype);
+		handler.setDocument(document.toString());
+		
+		//Arbeitsschritte ohne save() abarbeiten
+		handler.load();
+		handler.normalize();
+		handler.parse();
+		handler.tag();
+		
+		//Bereiche kommen aus der Annotationsschicht der Tokenliste
+		List<TestElSpan> spans = null;
+		if (createspans) {
+			try {
+				spans = new DocumentTagger().createSpanList(handler.getTokenList());
+			} catch (Exception e) {
+				throw new TestelException("Fehler beim Erstellen der Tag-Daten:\n" + TestEl.getStackTrace(e));
+			}
+		}
+		TokenSnapshot tokens = null;
+		if (keeptokens && handler.getTokenList() != null) tokens = TokenSnapshot.fromList(handler.getTokenList());
+		TestElResult result = new TestElResult(handler.getDocument(), handler.getResult(), spans, tokens);
+		handler.release();
+		
+		return result;
+	}
+
+	/**Taggt ein Dokument aus einem Stream
+	 * @param in
+	 * @param charset Zeichensatz des Streams (null = Standard)
+	 * @return
+	 * @throws TestelException
+	 */
+	public TestElResult tag(InputStream in, String charset) throws TestelException {
+		String document;
+		try {
+			if (charset == null) document = IOHelper.streamtoString(in);
+			else document = IOHelper.streamtoString(in, charset);
+		} catch (IOException e) {
+			throw new TestelException("Konnte Dokument nicht aus dem Stream lesen:\n" + e.getLocalizedMessage());
+		}
+		return tag(document);
+	}
+
+	/**Getter für mimetype
+	 * @return
+	 */
+	public String getMimeType() {
+		return mimetype;
+	}
+
+	/**PreTrain-Modus statt Tag-Modus verwenden (das getaggte Dokument enthält dann alle Tags)
+	 * @param pretrain
+	 */
+	public void setPretrain(boolean pretrain) {
+		if (pretrain) {
+			mode = TestElHandler.MODE_PRETRAIN;
+			inline = true;
+		} else mode = TestElHandler.MODE_TAG;
+	}
+
+	/**Inline-Ausgabe statt XML-Beschreibung
+	 * @param inline
+	 */
+	public void setInline(boolean inline) {
+		this.inline = inline;
+	}
+
+	/**Normalisierer überspringen
+	 * @param skipnormalizer
+	 */
+	public void setSkipNormalizer(boolean skipnormalizer) {
+		this.skipnormalizer = skipnormalizer;
+	}
+
+	/**Weniger Tags ausgeben (wie --fewer-tags)
+	 * @param fewertags
+	 */
+	public void setFewerTags(boolean fewertags) {
+		this.fewertags = fewertags;
+	}
+
+	/**Getaggtes Dokument (inline) bzw. XML-Beschreibung erstellen (Standard: true) - ist
+	 * es false, liefert TestElResult#getTaggedDocument() null
+	 * @param taggeddocument
+	 */
+	public void setTaggedDocument(boolean taggeddocument) {
+		this.taggeddocument = taggeddocument;
+	}
+
+	/**Getaggte Bereiche erstellen (Standard: true) - ist es false, liefert
+	 * TestElResult#getSpans() null
+	 * @param createspans
+	 */
+	public void setSpans(boolean createspans) {
+		this.createspans = createspans;
+	}
+
+	/**Getaggte Tokenliste als kompakten Schnappschuss (TokenSnapshot) im Ergebnis behalten (s. TestElResult#getTokens())
+	 * @param keeptokens
+	 */
+	public void setKeepTokens(boolean keeptokens) {
+		this.keeptokens = keeptokens;
+	}
+
+	/**Setzt die URL, die als Ort der Dokumente angegeben wird (z.B. in der XML-Beschreibung)
+	 * @param url
+	 */
+	public void setURL(URL url) {
+		this.url = url;
+	}
+}
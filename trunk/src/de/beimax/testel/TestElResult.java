@@ -0,0 +1,108 @@
+/**
+ * Datei: TestElResult.java
+ * Paket: de.beimax.testel
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel;
+
+import java.util.List;
+
+import de.beimax.testel.general.TestElSpan;
+import de.beimax.testel.token.TokenSnapshot;
+
+/**Ergebnis eines Aufrufs von TestElPipeline#tag: das (normalisierte) Dokument, das getaggte
+ * Dokument bzw. die XML-Beschreibung sowie die getaggten Bereiche.
+ * @author mkalus
+ *
+ */
+public class TestElResult {
+	/**
+	 * Normalisiertes Dokument - auf dieses beziehen sich die Positionen der Bereiche
+	 */
+	private final String document;
+	
+	/**
+	 * Getaggtes Dokument (inline) oder XML-Beschreibung (oder null, falls nicht angefordert)
+	 */
+	private final String taggedDocument;
+	
+	/**
+	 * Getaggte Bereiche (oder null, falls nicht angefordert)
+	 */
+	private final List<TestElSpan> spans;
+	
+	/**
+	 * Getaggte Tokenliste (oder null, falls nicht angefordert)
+	 */
+	private final TokenSnapshot tokens;
+
+	/**Konstruktor
+	 * @param document
+	 * @param taggedDocument
+	 * @param spans
+	 */
+	public TestElResult(String document, String taggedDocument, List<TestElSpan> spans) {
+		this(document, taggedDocument, spans, null);
+	}
+
+	/**Konstruktor
+	 * @param document
+	 * @param taggedDocument
+	 * @param spans
+	 * @param tokens
+	 */
+	public TestElResult(String document, String taggedDocument, List<TestElSpan> spans, TokenSnapshot tokens) {
+		this.document = document;
+		this.taggedDocument = taggedDocument;
+		this.spans = spans;
+		this.tokens = tokens;
+	}
+
+	/**Getter für document
+	 * @return
+	 */
+	public String getDocument() {
+		return document;
+	}
+
+	/**Getter für taggedDocument - null, falls mit TestElPipeline#setTaggedDocument
+	 * abgeschaltet
+	 * @return
+	 */
+	public String getTaggedDocument() {
+		return taggedDocument;
+	}
+
+	/**Getter für spans - null, falls mit TestElPipeline#setSpans abgeschaltet
+	 * @return
+	 */
+	public List<TestElSpan> getSpans() {
+		return spans;
+	}
+
+	/**Getter für tokens - die getaggte Tokenliste, falls mit TestElPipeline#setKeepTokens
+	 * angefordert, sonst null
+	 * @return
+	 */
+	public TokenSnapshot getTokens() {
+		return tokens;
+	}
+}
@@ -0,0 +1,224 @@
+/**
+ * Datei: TestElServer.java
+ * Paket: de.beimax.testel
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import de.beimax.testel.exception.TestelConfigException;
+import de.beimax.testel.exception.TestelException;
+import de.beimax.testel.util.IOHelper;
+
+/**Server-Modus von TestEl: ein lokaler HTTP-Server, der Dokumente annimmt und getaggt
+ * zurückgibt. Da die JVM weiterläuft, bleiben Fabriken, Klassifizierer-Kollektionen,
+ * Referenzlisten und Lexika der SubTagger nach der ersten Anfrage geladen (s. ModelCache).
+ *
+ * Anfragen gehen an /tag, Parameter werden in der Query übergeben:
+ * <ul>
+ * <li>mode: tag (Standard), pretrain oder normalize-only</li>
+ * <li>inline: true liefert das Dokument samt TestEl-Tags, sonst die XML-Beschreibung</li>
+ * <li>url: Ort des Dokuments - ohne Body wird das Dokument von dort geladen</li>
+ * <li>mime-type, encoding, skip-normalizer, fewer-tags: wie auf der Kommandozeile</li>
+ * </ul>
+ * Ein POST-Body wird als Dokument verwendet.
+ * @author mkalus
+ *
+ */
+public class TestElServer implements HttpHandler {
+	//Logger
+	static final Logger logger = Logger.getLogger(TestElServer.class.getName());
+
+	/**
+	 * Pfad, unter dem der Server Anfragen annimmt
+	 */
+	public static final String CONTEXT = "/tag";
+
+	/**
+	 * Port und Anzahl der Threads
+	 */
+	private final int port;
+	private final int threads;
+
+	private HttpServer server;
+
+	/**Konstruktor
+	 * @param port
+	 * @param threads Anzahl der parallel bearbeiteten Anfragen
+	 */
+	public TestElServer(int port, int threads) {
+		this.port = port;
+		this.threads = threads;
+	}
+
+	/**Startet den Server (nur auf der lokalen Adresse)
+	 * @throws IOException
+	 */
+	public void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("localhost"), port), 0);
+		server.createContext(CONTEXT, this);
+		server.setExecutor(Executors.newFixedThreadPool(threads));
+		server.start();
+		logger.info("TestEl-Server hört auf http://localhost:" + port + CONTEXT + " (" + threads + " Threads)");
+	}
+
+	/**
+	 * Hält den Server an
+	 */
+	public void stop() {
+		if (server != null) server.stop(0);
+		server = null;
+	}
+
+	/* (Kein Javadoc)
+	 * @see com.sun.net.httpserver.HttpHandler#handle(com.sun.net.httpserver.HttpExchange)
+	 */
+	public void handle(HttpExchange exchange) throws IOException {
+		long starttime = System.currentTimeMillis();
+		int status;
+		String answer, contentType = "text/plain; charset=UTF-8";
+
+		try {
+			TestElHandler handler = createHandler(exchange);
+			handler.handle();
+			answer = handler.getResult();
+			if (answer == null) answer = "";
+			if (handler.getMode() == TestElHandler.MODE_TAG && !handler.isInline())
+				contentType = "text/xml; charset=UTF-8";
+			else contentType = handler.getMimeType() + "; charset=UTF-8";
+			status = 200;
+		} catch (TestelConfigException e) {
+			answer = "Fehlerhafte Anfrage:\n" + e.getLocalizedMessage();
+			status = 400;
+		} catch (Exception e) {
+			String msg = e.getLocalizedMessage();
+			if (msg == null) msg = TestEl.getStackTrace(e);
+			answer = "Beim Bearbeiten der Anfrage trat ein Fehler auf:\n" + msg;
+			status = 500;
+		}
+		if (status != 200) logger.warning(answer);
+
+		//Antwort schicken
+		byte[] bytes = answer.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+
+		logger.info("Anfrage " + exchange.getRequestURI() + " wurde in " + (System.currentTimeMillis() - starttime) + "ms beantwortet (Status " + status + ")");
+	}
+
+	/**Erzeugt einen Handler aus einer Anfrage
+	 * @param exchange
+	 * @return
+	 * @throws TestelException
+	 */
+	protected TestElHandler createHandler(HttpExchange exchange) throws TestelException {
+		HashMap<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+		//Modus
+		int mode;
+		String modestr = params.get("mode");
+		if (modestr == null || modestr.equalsIgnoreCase("tag")) mode = TestElHandler.MODE_TAG;
+		else if (modestr.equalsIgnoreCase("pretrain")) mode = TestElHandler.MODE_PRETRAIN;
+		else if (modestr.equalsIgnoreCase("normalize-only")) mode = TestElHandler.MODE_NORMALIZEONLY;
+		else throw new TestelConfigException("Unbekannter Modus " + modestr + " (erlaubt: tag, pretrain, normalize-only)");
+
+		//Encoding
+		String encoding = params.get("encoding");
+
+		//Dokument aus dem Body
+		String document;
+		try {
+			document = IOHelper.streamtoString(exchange.getRequestBody(), encoding != null?encoding:"UTF-8");
+		} catch (IOException e) {
+			throw new TestelException("Konnte Dokument nicht aus der Anfrage lesen:\n" + e.getLocalizedMessage());
+		}
+		if (document.length() == 0) document = null;
+
+		//URL
+		URL url;
+		String urlstr = params.get("url");
+		try {
+			if (urlstr != null) url = IOHelper.createURL(urlstr);
+			else if (document != null) url = new URL("http", "localhost", port, CONTEXT);
+			else throw new TestelConfigException("Weder Dokument noch Parameter url angegeben");
+		} catch (MalformedURLException e) {
+			throw new TestelConfigException("Ungültige URL " + urlstr);
+		}
+
+		//Handler erstellen: leise und ohne Dateien zu schreiben, das Ergebnis wird über
+		//getResult() geholt
+		TestElHandler handler = new TestElHandler(mode, url, null, true, true, "true".equalsIgnoreCase(params.get("fewer-tags")));
+		if (mode == TestElHandler.MODE_PRETRAIN || "true".equalsIgnoreCase(params.get("inline")))
+			handler.activateInline();
+		if (params.get("mime-type") != null) handler.setMimeType(params.get("mime-type"));
+		if (encoding != null) handler.setEncoding(encoding);
+		if ("true".equalsIgnoreCase(params.get("skip-normalizer"))) handler.deactivateNormalizer();
+		else handler.activateNormalizer();
+		if (document != null) handler.setDocument(document);
+
+		return handler;
+	}
+
+	/**Zerlegt eine Query in Schlüssel und Werte
+	 * @param query
+	 * @return
+	 * @throws TestelConfigException
+	 */
+	protected static HashMap<String, String> parseQuery(String query) throws TestelConfigException {
+		HashMap<String, String> params = new HashMap<String, String>();
+		if (query == null) return params;
+
+		String[] pairs = query.split("&");
+		try {
+			for (int i = 0; i < pairs.length; i++) {
+				if (pairs[i].length() == 0) continue;
+				int pos = pairs[i].indexOf('=');
+				if (pos == -1) params.put(URLDecoder.decode(pairs[i], "UTF-8"), "true");
+				else params.put(URLDecoder.decode(pairs[i].substring(0, pos), "UTF-8"),
+						URLDecoder.decode(pairs[i].substring(pos + 1), "UTF-8"));
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new TestelConfigException("Konnte Query " + query + " nicht dekodieren");
+		} catch (IllegalArgumentException e) {
+			throw new TestelConfigException("Konnte Query " + query + " nicht dekodieren");
+		}
+
+		return params;
+	}
+}
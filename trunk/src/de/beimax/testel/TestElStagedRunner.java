@@ -0,0 +1,344 @@
+/**
+ * Datei: TestElStagedRunner.java
+ * Paket: de.beimax.testel
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+import de.beimax.testel.exception.TestelException;
+
+/**Bearbeitet die Handler in einer Pipeline aus Stufen, die jeweils eigene Threads haben und
+ * über Warteschlangen begrenzter Größe verbunden sind:
+ * <ol>
+ * <li>Laden/Normalisieren (Netzwerk, Lobo, Tidy)</li>
+ * <li>Parsen/Taggen (Sprach-Tagger, TaggerCollection, Klassifizierer)</li>
+ * <li>Speichern</li>
+ * </ol>
+ * Damit kann Dokument N+1 geladen und normalisiert werden, während Dokument N getaggt und
+ * gespeichert wird. Wie bei runParallel in TestEl schreibt jeder Handler in einen eigenen
+ * Puffer, die Ausgaben werden schon während der Bearbeitung in der Reihenfolge der Handler
+ * ausgegeben.
+ * Am Ende wird der Durchsatz jeder Stufe ausgegeben.
+ * @author mkalus
+ *
+ */
+public class TestElStagedRunner {
+	//Logger
+	static final Logger logger = Logger.getLogger(TestElStagedRunner.class.getName());
+
+	/**
+	 * Namen der Stufen
+	 */
+	public static final String[] stagename = {"Laden/Normalisieren", "Parsen/Taggen", "Speichern"};
+	
+	/**
+	 * Ende-Markierung in den Warteschlangen
+	 */
+	private static final Job END = new Job(null, -1);
+
+	/**
+	 * Anzahl der Threads pro Stufe und Größe der Warteschlangen
+	 */
+	private final int[] threads;
+	private final int queueSize;
+	
+	/**
+	 * Statistik pro Stufe: Anzahl der Dokumente, Summe der Bearbeitungszeit, erster Start
+	 * und letztes Ende
+	 */
+	private final int[] count;
+	private final long[] busy;
+	private final long[] first;
+	private final long[] last;
+
+	/**Konstruktor
+	 * @param threads Anzahl der Threads für jede Stufe (3 Werte)
+	 * @param queueSize Größe der Warteschlangen zwischen den Stufen
+	 */
+	public TestElStagedRunner(int[] threads, int queueSize) {
+		if (threads.length != stagename.length) throw new IllegalArgumentException("Es müssen " + stagename.length + " Thread-Anzahlen angegeben werden");
+		this.threads = threads;
+		this.queueSize = queueSize;
+		count = new int[stagename.length];
+		busy = new long[stagename.length];
+		first = new long[stagename.length];
+		last = new long[stagename.length];
+	}
+
+	/**Bearbeitet die Handler. Ein eigener Thread reiht die Jobs ein, während dieser Thread die
+	 * fertigen Jobs in der Reihenfolge der Handler ausgibt und ihre Puffer danach freigibt.
+	 * Es sind höchstens so viele Jobs unterwegs (eingereiht, aber noch nicht ausgegeben), wie
+	 * die Stufen und Warteschlangen gleichzeitig aufnehmen können.
+	 * @param handlers
+	 * @return Anzahl der fehlerhaft bearbeiteten Dokumente
+	 */
+	public int run(final List<TestElHandler> handlers) {
+		logger.info("Bearbeite " + handlers.size() + " Dokumente in Stufen mit " + threads[0] + "/" + threads[1] + "/" + threads[2] + " Threads");
+		
+		//Warteschlangen: vor jeder Stufe eine und eine für die fertigen Jobs
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		final BlockingQueue<Job>[] queues = new BlockingQueue[stagename.length + 1];
+		for (int i = 0; i <= stagename.length; i++)
+			queues[i] = new ArrayBlockingQueue<Job>(queueSize);
+		
+		//Anzahl der Jobs, die gleichzeitig unterwegs sein dürfen
+		int inflight = stagename.length * queueSize;
+		for (int i = 0; i < stagename.length; i++) inflight += threads[i];
+		final Semaphore window = new Semaphore(inflight);
+		
+		//Stufen starten
+		final Thread[][] workers = new Thread[stagename.length][];
+		for (int i = 0; i < stagename.length; i++) {
+			Stage stage = new Stage(i, queues[i], queues[i + 1], threads[i]);
+			workers[i] = new Thread[threads[i]];
+			for (int j = 0; j < threads[i]; j++) {
+				workers[i][j] = new Thread(stage, "TestEl-" + stagename[i] + "-" + j);
+				workers[i][j].start();
+			}
+		}
+		
+		//Jobs einreihen - blockiert, wenn die erste Stufe nicht nachkommt oder zu viele
+		//Jobs noch nicht ausgegeben wurden
+		Thread feeder = new Thread(new Runnable() {
+			public void run() {
+				try {
+					int idx = 0;
+					for (TestElHandler h : handlers) {
+						window.acquire();
+						ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+						h.setOutputStream(new PrintStream(buffer, true));
+						Job job = new Job(h, idx++);
+						job.buffer = buffer;
+						queues[0].put(job);
+					}
+					for (int j = 0; j < threads[0]; j++) queues[0].put(END);
+				} catch (InterruptedException e) {
+					logger.warning("Einreihen der Jobs wurde unterbrochen");
+				}
+			}
+		}, "TestEl-Einreihen");
+		feeder.start();
+		
+		//fertige Jobs in der Reihenfolge der Handler ausgeben - vorzeitig fertige Jobs
+		//warten, bis sie an der Reihe sind
+		int errorcount = 0; //Fehlerzähler
+		HashMap<Integer, Job> finished = new HashMap<Integer, Job>();
+		int next = 0;
+		try {
+			while (next < handlers.size()) {
+				Job job = queues[stagename.length].take();
+				finished.put(job.index, job);
+				while ((job = finished.remove(next)) != null) {
+					if (!printJob(job)) errorcount++;
+					window.release();
+					next++;
+				}
+			}
+			
+			//auf die Threads warten
+			feeder.join();
+			for (int i = 0; i < stagename.length; i++)
+				for (int j = 0; j < threads[i]; j++) workers[i][j].join();
+		} catch (InterruptedException e) {
+			logger.severe("Bearbeitung in Stufen wurde unterbrochen");
+			feeder.interrupt();
+			for (int i = 0; i < stagename.length; i++)
+				for (int j = 0; j < threads[i]; j++) workers[i][j].interrupt();
+			Thread.currentThread().interrupt();
+			
+			//restliche Handler als abgebrochen ausgeben
+			for (; next < handlers.size(); next++) {
+				Job job = finished.remove(next);
+				if (job != null && printJob(job)) continue;
+				errorcount++;
+				if (job == null) TestEl.printHandlerError(handlers.get(next), new TestelException("Bearbeitung wurde abgebrochen"));
+			}
+		}
+		
+		reportStatistics();
+		
+		return errorcount;
+	}
+	
+	/**Gibt die gepufferte Ausgabe eines Jobs und evt. Fehler aus und gibt den Puffer frei
+	 * @param job
+	 * @return true, falls der Job fehlerfrei bearbeitet wurde
+	 */
+	private boolean printJob(Job job) {
+		System.out.print(job.buffer.toString());
+		System.out.flush();
+		job.buffer = null;
+		job.handler.setOutputStream(System.out);
+		if (job.error != null) {
+			TestEl.printHandlerError(job.handler, job.error);
+			return false;
+		} else if (!job.done) {
+			TestEl.printHandlerError(job.handler, new TestelException("Bearbeitung wurde abgebrochen"));
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Gibt den Durchsatz jeder Stufe aus
+	 */
+	protected void reportStatistics() {
+		for (int i = 0; i < stagename.length; i++) {
+			long wall = last[i] - first[i];
+			String msg;
+			if (count[i] == 0) msg = "Stufe " + stagename[i] + ": keine Dokumente bearbeitet";
+			else msg = "Stufe " + stagename[i] + " (" + threads[i] + " Threads): " + count[i] +
+				" Dokumente, " + (busy[i] / count[i]) + "ms pro Dokument, " +
+				(wall > 0?String.format("%.2f", count[i] * 1000.0 / wall):"-") + " Dokumente/s";
+			logger.info(msg);
+			if (!TestEl.quiet) System.out.println(msg);
+		}
+	}
+	
+	/**Führt die Arbeitsschritte einer Stufe für einen Handler aus
+	 * @param stage
+	 * @param h
+	 * @throws TestelException
+	 */
+	protected void work(int stage, TestElHandler h) throws TestelException {
+		switch (stage) {
+		case 0:
+			h.begin();
+			h.load();
+			h.normalize();
+			break;
+		case 1:
+			h.parse();
+			h.tag();
+			break;
+		case 2:
+			try {
+				h.save();
+			} finally {
+				h.release();
+			}
+			h.finish();
+			break;
+		}
+	}
+	
+	/**Erfasst die Statistik einer Stufe
+	 * @param stage
+	 * @param start
+	 * @param end
+	 */
+	private synchronized void addStatistics(int stage, long start, long end) {
+		if (count[stage] == 0 || start < first[stage]) first[stage] = start;
+		if (end > last[stage]) last[stage] = end;
+		count[stage]++;
+		busy[stage] += end - start;
+	}
+	
+	/**Eine Stufe: holt Jobs aus der Eingangs-Warteschlange, bearbeitet sie und reicht sie
+	 * weiter. Fehlerhafte Jobs werden ohne Bearbeitung weitergereicht. Der letzte Thread einer
+	 * Stufe gibt die Ende-Markierung an die nächste Stufe weiter.
+	 * @author mkalus
+	 *
+	 */
+	private class Stage implements Runnable {
+		private final int stage;
+		private final BlockingQueue<Job> in;
+		private final BlockingQueue<Job> out;
+		private int running;
+		
+		/**Konstruktor
+		 * @param stage
+		 * @param in
+		 * @param out
+		 * @param running Anzahl der Threads dieser Stufe
+		 */
+		public Stage(int stage, BlockingQueue<Job> in, BlockingQueue<Job> out, int running) {
+			this.stage = stage;
+			this.in = in;
+			this.out = out;
+			this.running = running;
+		}
+		
+		/* (Kein Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			try {
+				while (true) {
+					Job job = in.take();
+					if (job == END) break;
+					if (job.error == null) {
+						long start = System.currentTimeMillis();
+						try {
+							work(stage, job.handler);
+							if (stage == stagename.length - 1) job.done = true;
+						} catch (Exception e) {
+							job.error = e;
+							//Ressourcen des fehlerhaften Handlers freigeben
+							job.handler.release();
+						}
+						addStatistics(stage, start, System.currentTimeMillis());
+					}
+					out.put(job);
+				}
+				//letzter Thread der Stufe: nächste Stufe beenden
+				boolean lastThread;
+				synchronized (this) {
+					lastThread = --running == 0;
+				}
+				if (lastThread && stage < stagename.length - 1)
+					for (int j = 0; j < threads[stage + 1]; j++) out.put(END);
+			} catch (InterruptedException e) {
+				logger.warning("Stufe " + stagename[stage] + " wurde unterbrochen");
+			}
+		}
+	}
+	
+	/**Ein Handler auf dem Weg durch die Stufen
+	 * @author mkalus
+	 *
+	 */
+	private static class Job {
+		private final TestElHandler handler;
+		private final int index;
+		private ByteArrayOutputStream buffer;
+		private Exception error = null;
+		private boolean done = false;
+		
+		/**Konstruktor
+		 * @param handler
+		 * @param index Position des Handlers in der Liste
+		 */
+		public Job(TestElHandler handler, int index) {
+			this.handler = handler;
+			this.index = index;
+		}
+	}
+}
@@ -29,7 +29,9 @@ import java.util.Iterator;
 import java.util.ListIterator;
 
 import de.beimax.testel.exception.TestelClassifierException;
+import de.beimax.testel.token.AnnotationIndex;
 import de.beimax.testel.token.SubTokenList;
+import de.beimax.testel.token.SymbolTable;
 import de.beimax.testel.token.TextPosition;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.TokenList;
@@ -62,6 +64,11 @@ public abstract class AbstractBasicClassifier implements Classifier {
 	 */
 	protected String startTokenRep, stopTokenRep;
 	
+	/**Nummern der Repräsentationen in der SymbolTable (UNKNOWN = noch nicht berechnet)
+	 * int startTokenKey, stopTokenKey
+	 */
+	private transient int startTokenKey, stopTokenKey;
+	
 	/** Getter für className
 	 * @return className
 	 */
@@ -91,6 +98,22 @@ public abstract class AbstractBasicClassifier implements Classifier {
 		return stopTokenRep;
 	}
 
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.classifier.Classifier#getStartTokenKey()
+	 */
+	public int getStartTokenKey() {
+		if (startTokenKey == SymbolTable.UNKNOWN) startTokenKey = SymbolTable.intern(getStartTokenRep());
+		return startTokenKey;
+	}
+	
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.classifier.Classifier#getStopTokenKey()
+	 */
+	public int getStopTokenKey() {
+		if (stopTokenKey == SymbolTable.UNKNOWN) stopTokenKey = SymbolTable.intern(getStopTokenRep());
+		return stopTokenKey;
+	}
+
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.classifier.Classifier#getStartStopTokenRep()
 	 */
@@ -124,17 +147,16 @@ public abstract class AbstractBasicClassifier implements Classifier {
 	 * @see de.beimax.testel.classifier.Classifier#insertTokenList(de.beimax.testel.token.TokenList, int, int, de.beimax.testel.token.TokenList)
 	 */
 	public void insertTokenList(TokenList subListIn, int start, int stop, TokenList completeList) throws TestelClassifierException {
-		//Kopie anfertigen von der Lsite
-		TokenList subList = subListIn.copy();
-		
 		//zuerst prüfen, ob das Ding eine valide Liste ist
-		if (!ClassifierCollection.checkMatchList(subList))
-			throw new TestelClassifierException("Liste ist nicht valide! Sind in der folgenden Liste Matches am Anfang und am Ende und andere Tokens außer SomeToken von diesen eingerahmt?\n" + subList.toString());
+		if (!ClassifierCollection.checkMatchList(subListIn))
+			throw new TestelClassifierException("Liste ist nicht valide! Sind in der folgenden Liste Matches am Anfang und am Ende und andere Tokens außer SomeToken von diesen eingerahmt?\n" + subListIn.toString());
 		
-		//Ok, dann können wir mal mit der Verarbeitung der Liste beginnen
+		//Ok, dann können wir mal mit der Verarbeitung der Liste beginnen - die Liste wird
+		//nicht kopiert, sondern über eine Ansicht (from bis to) eingeschränkt
 		//erstes und letztes Token extrahieren
-		Token first = subList.pollFirst();
-		Token last = subList.pollLast();
+		Token first = subListIn.getFirst();
+		Token last = subListIn.getLast();
+		int from = 1, to = subListIn.size() - 1;
 		
 		//Vergleich der beiden Tags - sind sie gleich?
 		if (last.compare(first) == 0)
@@ -151,23 +173,24 @@ public abstract class AbstractBasicClassifier implements Classifier {
 			//erstes Tag nach speziellen Regeln abklopfen
 			parseTestElTagCommands(first);
 			
-			//Anfangs- und End-Token herausziehen und bereinigen
-			this.startTokenRep = subList.pollFirst().getClassifierName();
-			if (subList.isEmpty()) this.stopTokenRep = null; //falls Liste jetzt leer...
-			else this.stopTokenRep = subList.pollLast().getClassifierName();
+			//Anfangs- und End-Token herausziehen
+			this.startTokenRep = subListIn.get(from++).getClassifierName();
+			if (from >= to) this.stopTokenRep = null; //falls Liste jetzt leer...
+			else this.stopTokenRep = subListIn.get(--to).getClassifierName();
+			startTokenKey = stopTokenKey = SymbolTable.UNKNOWN;
 		} else { //nur Start und End-Token herausziehen
-			subList.pollFirst();
-			subList.pollLast();
+			if (from < to) from++;
+			if (from < to) to--;
 		}
 		
 		//Liste auf Match abgleichen
-		SubTokenList subTokenList = getInnerOuterListToMatch(subList, start+2, stop-2, completeList);
+		SubTokenList subTokenList = getInnerOuterListToMatch(subListIn.view(from, to), start+2, stop-2, completeList);
 		
 		//Darf hier nicht passieren: Leere Rückgabe
 		if (subTokenList == null)
 			throw new TestelClassifierException("Match-Anweisung erzeugte eine leere Trefferliste: " + first);
 		//Unterliste vom eingeschränkten Treffer übernehmen
-		subList = subTokenList.getTokenList();
+		TokenList subList = subTokenList.getTokenList();
 		//System.out.println(subList);
 
 		//Rest der Liste wird vereinfacht und klassifiziert
@@ -254,23 +277,22 @@ public abstract class AbstractBasicClassifier implements Classifier {
 	 * @throws TestelClassifierException
 	 */
 	protected TokenList simplifyListSomeTokens(TokenList list) throws TestelClassifierException {
-		Iterator<Token> it = list.iterator();
-		Token last = it.next();
-		if (last instanceof SomeToken)
-			last.setName("ANY");
+		//Projektion: die Tokens selbst werden nicht verändert (der Name von SomeTokens spielt
+		//für die Klassifizierung ohnehin keine Rolle), es wird nur das erste SomeToken einer
+		//Folge übernommen
+		TokenList back = new TokenList(list.size());
+		Token last = null;
 		
-		//SomeTokens zusammenschrumpfen
+		Iterator<Token> it = list.iterator();
 		while (it.hasNext()) {
 			Token curr = it.next();
-			if (curr instanceof SomeToken) //Text von SomeTokens ist egal...
-				curr.setName("ANY");
-			//falls letztes und dieses Some-Tokens sind, dann dieses hier löschen
-			if (curr instanceof SomeToken && last instanceof SomeToken)
-				it.remove();
-			else last = curr;
+			//falls letztes und dieses Some-Tokens sind, dann dieses hier weglassen
+			if (!(curr instanceof SomeToken && last instanceof SomeToken))
+				back.add(curr);
+			last = curr;
 		}
 		
-		return list;
+		return back;
 	}
 
 //Bringt nur Ärger...
@@ -328,26 +350,21 @@ public abstract class AbstractBasicClassifier implements Classifier {
 
 			if (start < 0 || stop >= subListIn.size() -1) return null;
 			
-			TokenList subList = completeList.subList(start, stop).copy();
+			//Ansicht auf die Gesamtliste, keine Kopie
+			TokenList subList = completeList.view(start, stop);
 			
 			return new SubTokenList(subList, start, stop);
 		} else { //Grenzen innerhalb der Liste ausloten
-			//Kopie der Liste
-			TokenList subList = subListIn.copy();
-
 			//Startverschiebung feststellen
-			int moveStart = getPositionOffsetByStartStopAttribute(subList, this.startAttr, 0, false);
-			int moveStop = getPositionOffsetByStartStopAttribute(subList, this.stopAttr, 0, true);
+			int moveStart = getPositionOffsetByStartStopAttribute(subListIn, this.startAttr, 0, false);
+			int moveStop = getPositionOffsetByStartStopAttribute(subListIn, this.stopAttr, 0, true);
 			
 			//mehr Elemente zu entfernen als in der Liste sind? -> kein Treffer!
 			//genauso: falls searchStartStopToken -1 zurückgegeben hat
-			if (moveStart == -1 || moveStop == -1 || moveStart + moveStop >= subList.size()) return null;
+			if (moveStart == -1 || moveStop == -1 || moveStart + moveStop >= subListIn.size()) return null;
 
-			//jetzt von der Unterliste x Startelemente entfernen
-			for (int i = 0; i < moveStart; i++)
-				subList.pollFirst();
-			for (int i = 0; i < moveStop; i++)
-				subList.pollLast();
+			//jetzt die Ansicht um x Start- und Endelemente verkleinern
+			TokenList subList = subListIn.view(moveStart, subListIn.size() - moveStop);
 			//Treffer generieren
 			//System.out.println(completeList.subList(start + moveStart, stop - moveStop));
 			start = start + moveStart;
@@ -375,8 +392,9 @@ public abstract class AbstractBasicClassifier implements Classifier {
 	 * @throws TestelClassifierException
 	 */
 	public int match(TokenList list, int startPos, int stopPos, ListIterator<Token> it, boolean allowGreedy) throws TestelClassifierException {
-		//Bei greedy Klassifizierern muss etwas anders vorgegangen werden...
-		if (allowGreedy && isGreedy()) {
+		//Bei greedy Klassifizierern muss etwas anders vorgegangen werden... (ohne eigenes
+		//Stop-Merkmal gibt es kein Ende, nach dem gesucht werden könnte)
+		if (allowGreedy && isGreedy() && stopTokenRep != null) {
 			//Die Idee ist folgende: wir laufen vom Ende der Liste her die Tokens ab
 			//und schauen, ob ein mögliches EndToken gefunden wird - dann wird geprüft, ob
 			//hier ein mögliches Match vorliegen könnte, das verwendet werden kann. Wenn ja,
@@ -385,9 +403,10 @@ public abstract class AbstractBasicClassifier implements Classifier {
 			int pos = list.size(); //da descendingIterator keinen Zähler besitzt
 			
 			Token tok = null;
+			int stopKey = getStopTokenKey();
 			while (endIt.hasNext() && pos >= stopPos) {
 				tok = endIt.next();
-				if (stopTokenRep.equals(tok.getClassifierName())) {
+				if (stopKey == tok.getClassifierKey()) {
 					int endpos = match(list, startPos, pos, it, false);
 					if (endpos != -1) return endpos;
 				}
@@ -399,7 +418,7 @@ public abstract class AbstractBasicClassifier implements Classifier {
 			//Unterliste bauen
 			TokenList subList;
 			try {
-				subList = list.subList(startPos, stopPos);
+				subList = list.view(startPos, stopPos);
 				//System.out.println(subList);
 			} catch (RuntimeException e) {
 				throw new TestelClassifierException("Fehlerhafte Erstellung einer Unterliste bei Token-Positionen " +
@@ -471,18 +490,18 @@ public abstract class AbstractBasicClassifier implements Classifier {
 			//TestEl-Tags erzeugen
 			TestElTag startTag = new TestElTag("tag", getClassName());
 			TextPosition pos = subTokenList.getTokenList().getFirst().getTextPosition();
-			startTag.initTextPosition(pos.getBpos(), pos.getBrow(), pos.getBcol(), pos.getBpos(), pos.getBrow(), pos.getBcol());
+			startTag.initTextPosition(pos.beginning());
 			if (!this.showTag) startTag.addAttribute("donotshow", "yes");
 			TestElTag stopTag = new TestElTag("/tag");
 			pos = subTokenList.getTokenList().getLast().getTextPosition();
-			stopTag.initTextPosition(pos.getEpos(), pos.getErow(), pos.getEcol(), pos.getEpos(), pos.getErow(), pos.getEcol());
+			stopTag.initTextPosition(pos.ending());
 			startTag.setReference(stopTag);
 			stopTag.setReference(startTag);
 			
 			//Matches erzeugen
 			TestElTag startMatch = new TestElTag("match", getClassName());
 			pos = subList.getFirst().getTextPosition();
-			startMatch.initTextPosition(pos.getBpos(), pos.getBrow(), pos.getBcol(), pos.getBpos(), pos.getBrow(), pos.getBcol());
+			startMatch.initTextPosition(pos.beginning());
 			//Attribute
 			if (this.startAttr != null) startMatch.addAttribute("start", startAttr);
 			if (this.stopAttr != null) startMatch.addAttribute("stop", stopAttr);
@@ -495,10 +514,14 @@ public abstract class AbstractBasicClassifier implements Classifier {
 			
 			TestElTag stopMatch = new TestElTag("/match");
 			pos = subList.getLast().getTextPosition();
-			stopMatch.initTextPosition(pos.getEpos(), pos.getErow(), pos.getEcol(), pos.getEpos(), pos.getErow(), pos.getEcol());
+			stopMatch.initTextPosition(pos.ending());
 			startMatch.setReference(stopMatch);
 			stopMatch.setReference(startMatch);
 			
+			//Annotationsschicht vor dem Einfügen holen (baut sich sonst aus der Liste samt der
+			//neuen Tags auf)
+			AnnotationIndex annotations = list.getAnnotationIndex();
+			
 			//so, jetzt von hinten her einfügen
 			if (tagend <= stopPos) { //erst Match-Ende einfügen
 				list.add(stopPos, stopMatch);
@@ -514,6 +537,8 @@ public abstract class AbstractBasicClassifier implements Classifier {
 				list.add(startPos, startMatch);			
 				list.add(tagstart, startTag);
 			}
+			annotations.add(startMatch);
+			annotations.add(startTag);
 			
 			logger.info("Treffer eingefügt: " + getClassName() + ", Positionen start=" + startTag.getTextPosition() + ", stop=" + stopTag.getTextPosition());
 
@@ -526,14 +551,17 @@ public abstract class AbstractBasicClassifier implements Classifier {
 		}
 	}
 	
-	//Verschachtelung prüfen
+	//Verschachtelung prüfen - nur die TestEl-Tags, die direkt davor an derselben Stelle stehen,
+	//werden in der Liste durchlaufen, alles vor dem ersten anderen Token fragt die
+	//Annotationsschicht ab
 	private boolean checkNesting(TokenList list, int startPos) {
 		if (startPos < 1) return false;
 		ListIterator<Token> it = list.listIterator(startPos-1);
 		
-		while (it.hasPrevious()) { //vorhergehende Tokens prüfen
+		while (it.hasPrevious()) { //vorhergehende Tags prüfen
 			Token tok = it.previous();
-			if (!(tok instanceof TestElTag)) continue;
+			if (!(tok instanceof TestElTag))
+				return list.getAnnotationIndex().isNested(this.className, tok.getTextPosition().getBpos());
 				
 			//Endtag des selben Typs gefunden - weg!
 			if (tok.getName().charAt(0) == '/' && this.className.equals(tok.getReference().getClassName()))
@@ -557,12 +585,16 @@ public abstract class AbstractBasicClassifier implements Classifier {
 		
 		int counter = 0;
 		Iterator<Token> it = subList.descendingIterator();
+		//Nummern der Repräsentationen (NONE, falls nicht gesetzt - getStopTokenKey() liefert
+		//ohne Stop-Merkmal das Start-Merkmal, daher hier das Feld prüfen)
+		int startKey = this.startTokenRep == null?SymbolTable.NONE:getStartTokenKey();
+		int stopKey = this.stopTokenRep == null?SymbolTable.NONE:getStopTokenKey();
 		
 		while (it.hasNext()) {
-			String rep = it.next().getClassifierName();
+			int rep = it.next().getClassifierKey();
 
-			if (this.stopTokenRep != null && this.stopTokenRep.equals(rep)) counter++; //positives Ende
-			else if (this.startTokenRep != null && this.startTokenRep.equals(rep)) { //negativer Anfang
+			if (stopKey != SymbolTable.NONE && stopKey == rep) counter++; //positives Ende
+			else if (startKey != SymbolTable.NONE && startKey == rep) { //negativer Anfang
 				//System.out.println(rep);
 				if (counter <= 0) return true;
 				counter--;
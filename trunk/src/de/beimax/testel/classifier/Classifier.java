@@ -75,6 +75,16 @@ public interface Classifier {
 	 */
 	public String getStopTokenRep();
 	
+	/**Gibt die Nummer der Repräsentation des Start-Tokens in der SymbolTable zurück
+	 * @return
+	 */
+	public int getStartTokenKey();
+	
+	/**Gibt die Nummer der Repräsentation des Stop-Tokens in der SymbolTable zurück
+	 * @return
+	 */
+	public int getStopTokenKey();
+	
 	/**Gibt eine Repräsentation des Start- und Stop-Tokens zurück (gemeinsames Merkmal)
 	 * @return
 	 */
@@ -110,6 +120,8 @@ public interface Classifier {
 	/**Vereinfacht die Liste insofern, dass z.B. doppelt vorkommende SOMETOKENS herausgenommen
 	 * werden können - die Implementierung erfolgt in den Methoden unten:
 	 * simplifyListSomeTokens bzw. simplifyListTestElTags
+	 * Die Tokens selbst dürfen dabei nicht verändert werden, da die Liste eine Ansicht auf das
+	 * Dokument sein kann (s. TokenSpan) - gegebenenfalls wird eine neue Liste zurückgegeben.
 	 * @param list
 	 * @return
 	 * @throws TestelClassifierException
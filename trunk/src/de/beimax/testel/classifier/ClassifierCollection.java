@@ -36,6 +36,7 @@ import de.beimax.testel.exception.TestelClassifierException;
 import de.beimax.testel.exception.TestelException;
 import de.beimax.testel.exception.TestelTaggerException;
 import de.beimax.testel.token.SubTokenList;
+import de.beimax.testel.token.SymbolTable;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.TokenList;
 import de.beimax.testel.token.impl.SomeToken;
@@ -271,6 +272,8 @@ public class ClassifierCollection {
 		int interiorTags;
 		//Schlüssel hier ist der Start-Key
 		HashMap<String, SubSubCollection> subsubMap;
+		//dieselben Einträge nach der Nummer des Start-Keys in der SymbolTable (wird bei Bedarf erstellt)
+		private transient volatile SubSubCollection[] subsubByKey;
 		
 		/** Konstruktor
 		 * @param classifier
@@ -307,6 +310,7 @@ public class ClassifierCollection {
 			} else { //nein -> neu hinzufügen
 				//Neue Unter-Unterkollektion
 				subsubMap.put(startkey, new SubSubCollection(classAdd));
+				subsubByKey = null;
 				return true;
 			}
 		}
@@ -318,6 +322,41 @@ public class ClassifierCollection {
 		public SubSubCollection checkStartkey(String startKey) {
 			return subsubMap.get(startKey);
 		}
+		
+		/**Gibt die SubSubCollection mit der Nummer des Startkeys oder null zurück
+		 * @param startKey Nummer in der SymbolTable
+		 * @return
+		 */
+		public SubSubCollection checkStartkey(int startKey) {
+			SubSubCollection[] byKey = subsubByKey;
+			if (byKey == null) byKey = buildKeyIndex();
+			if (startKey <= SymbolTable.UNKNOWN || startKey >= byKey.length) return null;
+			return byKey[startKey];
+		}
+		
+		/**Erstellt den Index nach Nummern der Startkeys
+		 * @return
+		 */
+		private SubSubCollection[] buildKeyIndex() {
+			int max = 0;
+			int[] keys = new int[subsubMap.size()];
+			SubSubCollection[] values = new SubSubCollection[keys.length];
+			int i = 0;
+			for (Entry<String, SubSubCollection> entry : subsubMap.entrySet()) {
+				keys[i] = SymbolTable.intern(entry.getKey());
+				values[i] = entry.getValue();
+				//Stop-Keys gleich mit anlegen, damit die Tabelle nicht erst während des
+				//Taggens wächst (das würde die unbekannten Schlüssel der Tokens verwerfen)
+				for (Classifier classifier : values[i].classifierList) classifier.getStopTokenKey();
+				if (keys[i] > max) max = keys[i];
+				i++;
+			}
+			SubSubCollection[] byKey = new SubSubCollection[max + 1];
+			for (i = 0; i < keys.length; i++)
+				if (keys[i] > SymbolTable.UNKNOWN) byKey[keys[i]] = values[i];
+			subsubByKey = byKey;
+			return byKey;
+		}
 	
 //		/**Match-Liste erweitern: diese Methode sucht startClassName als StartMerkmal
 //		 * und gibt diesen ggf. zurück
@@ -428,7 +467,7 @@ public class ClassifierCollection {
 					Token tok = it.next();
 					if (tok instanceof SomeToken) continue;
 					//int startPos = it.nextIndex();
-					String startKey = tok.getClassifierName();
+					int startKey = tok.getClassifierKey();
 					SubSubCollection subSubCollection = subCollection.checkStartkey(startKey);
 					//mögliches Match?
 					if (subSubCollection != null) {
@@ -467,7 +506,7 @@ public class ClassifierCollection {
 			while (stopIt.hasNext() && max < this.maxEndCounters) {
 				Token tok = stopIt.next();
 				if (tok instanceof SomeToken) continue;
-				String stopKey = tok.getClassifierName();
+				int stopKey = tok.getClassifierKey();
 				
 				//stimmt dieses Token mit einem Klassifiziererende aus der Liste überein?
 				Iterator<Classifier> clIt = subSubCollection.classifierList.iterator();
@@ -475,7 +514,7 @@ public class ClassifierCollection {
 				while (clIt.hasNext()) {
 					Classifier classifier = clIt.next();
 					//übereinstimmende Enden finden
-					if (classifier.getStopTokenRep().equals(stopKey)) {
+					if (classifier.getStopTokenKey() == stopKey) {
 						count[c]++;
 						if (count[c] > max) max = count[c];
 						c++;
@@ -23,8 +23,6 @@
  */
 package de.beimax.testel.classifier.impl;
 
-import java.util.Iterator;
-
 import net.sf.classifier4J.ClassifierException;
 import net.sf.classifier4J.DefaultTokenizer;
 import net.sf.classifier4J.bayesian.BayesianClassifier;
@@ -34,7 +32,6 @@ import de.beimax.testel.classifier.AbstractBasicClassifier;
 import de.beimax.testel.classifier.impl.c4j.StopWordProviderImpl;
 import de.beimax.testel.classifier.impl.c4j.WordsDataSourceImpl;
 import de.beimax.testel.exception.TestelClassifierException;
-import de.beimax.testel.token.Token;
 import de.beimax.testel.token.TokenList;
 
 /**Implementierung eines Klassifizierers, der auf der Basis von Naive Bayes arbeitet
@@ -96,14 +93,8 @@ public class TestElNaiveBayesClassifier extends AbstractBasicClassifier {
 		//list = simplifyListSomeTokens(list);
 		//list = simplifyListTestElTags(list); -- brachte nur Ärger mit sich
 		
-		//Tokens vereinfachen: Textpositionen löschen, u.ä.
-		Iterator<Token> it = list.iterator();
-		
-		while (it.hasNext()) {
-			Token tok = it.next();
-			tok.forgetTextPosition(); //Textposition vergessen
-		}
-		
+		//Textpositionen müssen nicht mehr gelöscht werden: die Liste kann eine Ansicht auf
+		//das Dokument sein und getClassifiedList() betrachtet ohnehin nur die Klassifizierernamen
 		return list;
 	}
 
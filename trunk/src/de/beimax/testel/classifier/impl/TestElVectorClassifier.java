@@ -23,15 +23,12 @@
  */
 package de.beimax.testel.classifier.impl;
 
-import java.util.Iterator;
-
 import net.sf.classifier4J.ClassifierException;
 import net.sf.classifier4J.bayesian.WordsDataSourceException;
 
 import de.beimax.testel.classifier.AbstractBasicClassifier;
 import de.beimax.testel.classifier.impl.c4j.VectorClassifierImpl;
 import de.beimax.testel.exception.TestelClassifierException;
-import de.beimax.testel.token.Token;
 import de.beimax.testel.token.TokenList;
 
 /**Implementierung eines Klassifizierers, der auf der Basis von Vektorräumen arbeitet
@@ -95,14 +92,8 @@ public class TestElVectorClassifier extends AbstractBasicClassifier {
 		//list = simplifyListSomeTokens(list);
 		//list = simplifyListTestElTags(list); -- brachte nur Ärger mit sich
 		
-		//Tokens vereinfachen: Textpositionen löschen, u.ä.
-		Iterator<Token> it = list.iterator();
-		
-		while (it.hasNext()) {
-			Token tok = it.next();
-			tok.forgetTextPosition(); //Textposition vergessen
-		}
-		
+		//Textpositionen müssen nicht mehr gelöscht werden: die Liste kann eine Ansicht auf
+		//das Dokument sein und getClassifiedList() betrachtet ohnehin nur die Klassifizierernamen
 		return list;
 	}
 
@@ -67,6 +67,21 @@ public class Config {
 		return config.getProperty(key);
 	}
 	
+	/**Liest einen Zahlenwert aus der Konfiguration
+	 * @param key
+	 * @param def Standardwert, falls nicht gesetzt oder ungültig
+	 * @return
+	 */
+	static public int getConfigInt(String key, int def) {
+		String value = getConfig(key);
+		if (value == null) return def;
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return def;
+		}
+	}
+	
 	/**Prüft einen Eintrag darauf, ob dieser einen bestimmten Wert hat oder nicht
 	 * @param key
 	 * @param value
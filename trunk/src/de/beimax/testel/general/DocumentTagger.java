@@ -26,7 +26,10 @@ package de.beimax.testel.general;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Logger;
 
 import de.beimax.testel.config.Config;
@@ -66,72 +69,137 @@ public class DocumentTagger {
 	 * @return
 	 */
 	public String createInlineDocument(String document, TokenList tokenList, boolean allTags, boolean fewertags) throws TestelTaggerException {
-		//neuen String für Dokument erzeufen
-		StringBuffer doc = new StringBuffer(document);
+		//Einfügungen vorwärts sammeln - das Dokument wird danach in einem Durchgang
+		//zusammengesetzt, statt jeden Tag per insert in eine Kopie einzuschieben
+		ArrayList<Insertion> insertions = new ArrayList<Insertion>();
+		int tagLength = 0;
 
-		//Token-Liste rückwärts durchlaufen
-		Iterator<Token> it = tokenList.descendingIterator();
-		
-		while (it.hasNext()) {
-			Token tok = it.next();
-			if (tok instanceof TestElTag) {
-				int type = TestElTag.getTestElTagType(tok);
-				TextPosition pos = tok.getTextPosition();
-				// Tags, die schon im Markup enthalten sind überspringen
-				if (pos.getBpos() != pos.getEpos())
-					continue;
-				String name = tok.getName();
-				//jetzt nach Typ unterscheiden
-				String tag = null;
-				if (allTags) { //alle Taggen
+		if (allTags) { //PreTrain-Modus: alle Tokens durchlaufen
+			Iterator<Token> it = tokenList.iterator();
+			
+			while (it.hasNext()) {
+				Token tok = it.next();
+				if (tok instanceof TestElTag) {
+					int type = TestElTag.getTestElTagType(tok);
+					TextPosition pos = tok.getTextPosition();
+					// Tags, die schon im Markup enthalten sind überspringen
+					if (pos.getBpos() != pos.getEpos())
+						continue;
+					String name = tok.getName();
+					String tag = null;
 					if (type != TestElTag.TAG_TAG) {
 						if (name.charAt(0) == '/') { //Endtag oder Starttag?
 							tag = createEndTag(tok, type, name);
 						} else tag = createStartTag(tok, type, name);
 					}
-				} else { //normal Taggen
-					if (type == TestElTag.TAG_TAG || type == TestElTag.TAG_REF) {
-						if (name.charAt(0) == '/') { //Endtag oder Starttag?
-							tag = createEndTag(tok, type, name);
-						} else tag = createStartTag(tok, type, name);
+					//Tag in Puffer einfügen (falls nötig) - an der richtigen Stelle
+					if (tag != null) {
+						insertions.add(new Insertion(pos.getBpos(), tag));
+						tagLength += tag.length();
 					}
-				}
-				//Tag in Puffer einfügen (falls nötig) - an der richtigen Stelle
-				if (tag != null) doc.insert(pos.getBpos(), tag);
-			} else if (allTags && !fewertags) { //weitere Tags checken
-				String startTag = null, stopTag = null;
-				if (tok instanceof NumberToken) { //Zahlwort?
-					try {
-						Integer.parseInt(tok.getName());
-					} catch (NumberFormatException e) { //ist eines!
-						startTag = createStartTag(tok, TestElTag.TAG_NUMBER, "number");
-						stopTag = createEndTag(null, TestElTag.TAG_NUMBER, "/number");
+				} else if (!fewertags) { //weitere Tags checken
+					String startTag = null, stopTag = null;
+					if (tok instanceof NumberToken) { //Zahlwort?
+						try {
+							Integer.parseInt(tok.getName());
+						} catch (NumberFormatException e) { //ist eines!
+							startTag = createStartTag(tok, TestElTag.TAG_NUMBER, "number");
+							stopTag = createEndTag(null, TestElTag.TAG_NUMBER, "/number");
+						}
+					} else if (tok instanceof PunctuationToken) { //Satzzeichen?
+						startTag = createStartTag(tok, TestElTag.TAG_PUNCT, "punct");
+						stopTag = createEndTag(null, TestElTag.TAG_PUNCT, "/punct");
+					} else if (tok instanceof TextToken) { //bedeutungstragendes Wort?
+						startTag = createStartTag(tok, TestElTag.TAG_WORD, "word");
+						stopTag = createEndTag(null, TestElTag.TAG_WORD, "/word");
+					} else if (tok instanceof SomeToken) {
+						String name = tok.getName();
+						if (name.charAt(name.length()-1) == '.') {
+							startTag = createStartTag(tok, TestElTag.TAG_ABBREV, "abbrev");
+							stopTag = createEndTag(null, TestElTag.TAG_ABBREV, "/abbrev");
+						}
 					}
-				} else if (tok instanceof PunctuationToken) { //Satzzeichen?
-					startTag = createStartTag(tok, TestElTag.TAG_PUNCT, "punct");
-					stopTag = createEndTag(null, TestElTag.TAG_PUNCT, "/punct");
-				} else if (tok instanceof TextToken) { //bedeutungstragendes Wort?
-					startTag = createStartTag(tok, TestElTag.TAG_WORD, "word");
-					stopTag = createEndTag(null, TestElTag.TAG_WORD, "/word");
-				} else if (tok instanceof SomeToken) {
-					String name = tok.getName();
-					if (name.charAt(name.length()-1) == '.') {
-						startTag = createStartTag(tok, TestElTag.TAG_ABBREV, "abbrev");
-						stopTag = createEndTag(null, TestElTag.TAG_ABBREV, "/abbrev");
+					if (startTag != null && stopTag != null) {
+						TextPosition pos = tok.getTextPosition();
+						insertions.add(new Insertion(pos.getBpos(), startTag));
+						insertions.add(new Insertion(pos.getEpos(), stopTag));
+						tagLength += startTag.length() + stopTag.length();
 					}
 				}
-				if (startTag != null && stopTag != null) {
-					TextPosition pos = tok.getTextPosition();
-					doc.insert(pos.getEpos(), stopTag);
-					doc.insert(pos.getBpos(), startTag);
+			}
+		} else { //normal taggen: Tags und Refs kommen aus der Annotationsschicht
+			List<Token> annotations = tokenList.getAnnotationIndex().getAnnotations();
+			
+			//Endtags rückwärts vor den Starttags einsammeln - nach dem stabilen Sortieren
+			//stehen an gleicher Stelle damit Enden vor Anfängen und innere vor äußeren Enden
+			for (int i = annotations.size() - 1; i >= 0; i--) {
+				Token tok = annotations.get(i);
+				int type = TestElTag.getTestElTagType(tok);
+				if (type != TestElTag.TAG_TAG && type != TestElTag.TAG_REF) continue;
+				Token ref = tok.getReference();
+				TextPosition pos = ref.getTextPosition();
+				// Tags, die schon im Markup enthalten sind überspringen
+				if (pos.getBpos() != pos.getEpos()) continue;
+				String tag = createEndTag(ref, type, ref.getName());
+				if (tag != null) {
+					insertions.add(new Insertion(pos.getBpos(), tag));
+					tagLength += tag.length();
+				}
+			}
+			for (Token tok : annotations) {
+				int type = TestElTag.getTestElTagType(tok);
+				if (type != TestElTag.TAG_TAG && type != TestElTag.TAG_REF) continue;
+				TextPosition pos = tok.getTextPosition();
+				if (pos.getBpos() != pos.getEpos()) continue;
+				String tag = createStartTag(tok, type, tok.getName());
+				if (tag != null) {
+					insertions.add(new Insertion(pos.getBpos(), tag));
+					tagLength += tag.length();
 				}
 			}
 		}
 		//System.exit(0);
 		
+		//stabil nach Position sortieren: an gleicher Stelle bleibt die Reihenfolge der Tokens erhalten
+		Collections.sort(insertions);
+
+		//Dokument zusammensetzen
+		StringBuilder doc = new StringBuilder(document.length() + tagLength);
+		int last = 0;
+		for (Insertion insertion : insertions) {
+			doc.append(document, last, insertion.pos).append(insertion.tag);
+			last = insertion.pos;
+		}
+		doc.append(document, last, document.length());
+		
 		return doc.toString();
 	}
 	
+	/**Tag, der an einer Stelle des Dokuments eingefügt wird
+	 * @author mkalus
+	 *
+	 */
+	private static class Insertion implements Comparable<Insertion> {
+		final int pos;
+		final String tag;
+		
+		/** Konstruktor
+		 * @param pos
+		 * @param tag
+		 */
+		Insertion(int pos, String tag) {
+			this.pos = pos;
+			this.tag = tag;
+		}
+
+		/* (Kein Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo(Insertion o) {
+			return pos < o.pos?-1:(pos == o.pos?0:1);
+		}
+	}
+	
 	/**Gibt ein StartTag zurück
 	 * @param token
 	 * @param type
@@ -221,48 +289,69 @@ public class DocumentTagger {
 			}
 		if (dtd != null)
 			xml.append("<!DOCTYPE testel:externaldesc SYSTEM \"" + dtd + "\">\n");
-		xml.append("<testel:externaldesc origURL=\"" + origRef.toString() + "\" saveURL=\"file:" + fileRef.getAbsoluteFile() + "\" >\n");
+		//ohne Zieldatei (z.B. im Server-Modus) wird kein saveURL angegeben
+		if (fileRef == null)
+			xml.append("<testel:externaldesc origURL=\"" + origRef.toString() + "\" >\n");
+		else
+			xml.append("<testel:externaldesc origURL=\"" + origRef.toString() + "\" saveURL=\"file:" + fileRef.getAbsoluteFile() + "\" >\n");
 
-		//Token-Liste durchlaufen
-		Iterator<Token> it = tokenList.iterator();
+		//Bereiche durchlaufen
+		Iterator<TestElSpan> it = createSpanList(tokenList).iterator();
 		
 		while (it.hasNext()) {
-			Token tok = it.next();
-			 if (tok instanceof TestElTag) {
-				 int type = TestElTag.getTestElTagType(tok);
-				 //nur Tags und Refs und keine Endtags
-				 if ((type == TestElTag.TAG_TAG || type == TestElTag.TAG_REF) &&
-						 tok.getName().charAt(0) != '/') {
-					TextPosition bpos = tok.getTextPosition();
-					if (bpos == null) throw new TestelTaggerException("Startposition von " + tok + " war nicht definiert");
-					Token ref = tok.getReference();
-					if (ref == null) throw new TestelTaggerException("Im Token " + tok + " fehlte die Referenz auf das Endtoken");
-					TextPosition epos = ref.getTextPosition();
-					if (epos == null) throw new TestelTaggerException("Endposition von " + tok + " war nicht definiert");
-					xml.append("  <testel:");
-					xml.append(tok.getName());
-					xml.append(" class=\"");
-					xml.append(tok.getClassName());
-					xml.append("\" bpos=\"");
-					xml.append(bpos.getEpos()); //Ende, da hier der eigentliche Inhalt anfängt
-					xml.append("\" brow=\"");
-					xml.append(bpos.getErow()); //Ende, da hier der eigentliche Inhalt anfängt
-					xml.append("\" bcol=\"");
-					xml.append(bpos.getEcol()); //Ende, da hier der eigentliche Inhalt anfängt
-					xml.append("\" epos=\"");
-					xml.append(epos.getBpos()); //Anfang, da hier der eigentliche Inhalt aufhört
-					xml.append("\" erow=\"");
-					xml.append(epos.getBrow()); //Anfang, da hier der eigentliche Inhalt aufhört
-					xml.append("\" ecol=\"");
-					xml.append(epos.getBcol()); //Anfang, da hier der eigentliche Inhalt aufhört
-					
-					xml.append("\" />\n");
-				 }
-			 }
+			TestElSpan span = it.next();
+			TextPosition pos = span.getTextPosition();
+			xml.append("  <testel:");
+			xml.append(span.getName());
+			xml.append(" class=\"");
+			xml.append(span.getClassName());
+			xml.append("\" bpos=\"");
+			xml.append(pos.getBpos());
+			xml.append("\" brow=\"");
+			xml.append(pos.getBrow());
+			xml.append("\" bcol=\"");
+			xml.append(pos.getBcol());
+			xml.append("\" epos=\"");
+			xml.append(pos.getEpos());
+			xml.append("\" erow=\"");
+			xml.append(pos.getErow());
+			xml.append("\" ecol=\"");
+			xml.append(pos.getEcol());
+			
+			xml.append("\" />\n");
 		}
 		
 		xml.append("</testel:externaldesc>\n");
 		
 		return xml.toString();
 	}
+
+	/**Gibt die getaggten Bereiche (Tags und Refs) der Tokenliste zurück - die Positionen
+	 * bezeichnen jeweils den eigentlichen Inhalt zwischen Start- und Endtag.
+	 * @param tokenList
+	 * @return
+	 * @throws TestelTaggerException
+	 */
+	public List<TestElSpan> createSpanList(TokenList tokenList) throws TestelTaggerException {
+		ArrayList<TestElSpan> spans = new ArrayList<TestElSpan>();
+		
+		//Annotationen in Dokumentreihenfolge durchlaufen
+		Iterator<Token> it = tokenList.getAnnotationIndex().getAnnotations().iterator();
+		
+		while (it.hasNext()) {
+			Token tok = it.next();
+			int type = TestElTag.getTestElTagType(tok);
+			//nur Tags und Refs
+			if (type == TestElTag.TAG_TAG || type == TestElTag.TAG_REF) {
+				TextPosition bpos = tok.getTextPosition();
+				TextPosition epos = tok.getReference().getTextPosition();
+				//Anfang ist das Ende des Starttags, da hier der eigentliche Inhalt anfängt,
+				//Ende ist der Anfang des Endtags, da hier der eigentliche Inhalt aufhört
+				spans.add(new TestElSpan(tok.getName(), tok.getClassName(),
+						bpos.ending().to(epos.beginning())));
+			}
+		}
+		
+		return spans;
+	}
 }
@@ -0,0 +1,124 @@
+/**
+ * Datei: ModelCache.java
+ * Paket: de.beimax.testel.general
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.general;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.logging.Logger;
+
+import de.beimax.testel.util.XStreamHelper;
+
+/**Zwischenspeicher für die per XStream geladenen Modelle (Klassifizierer-Kollektionen,
+ * Referenzlisten). Die Modelle werden pro Datei genau einmal geladen und danach von allen
+ * Handlern gemeinsam und nur lesend verwendet. Handler, die ein Modell verändern (Train-Modus),
+ * holen sich mit loadPrivateModel eine eigene Kopie und entfernen den Eintrag nach dem
+ * Speichern mit removeModel aus dem Zwischenspeicher.
+ * Außerdem können SubTagger ihre aus Textdateien geladenen Daten (Lexika) hier ablegen,
+ * damit diese nicht für jedes Dokument neu eingelesen werden müssen.
+ * @author mkalus
+ *
+ */
+public class ModelCache {
+	//Logger
+	static final Logger logger = Logger.getLogger(ModelCache.class.getName());
+
+	/**
+	 * Geladene Modelle nach Datei
+	 */
+	private static final HashMap<File, Object> models = new HashMap<File, Object>();
+	
+	/**
+	 * Sonstige gemeinsam genutzte Daten nach Schlüssel
+	 */
+	private static final HashMap<String, Object> objects = new HashMap<String, Object>();
+
+	/**Gibt das gemeinsame Modell zu einer Datei zurück und lädt es ggf. - existiert die
+	 * Datei nicht, wird null zurückgegeben.
+	 * @param file
+	 * @param gzipped
+	 * @return
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public static synchronized <E> E getSharedModel(File file, boolean gzipped) throws IOException {
+		Object model = models.get(file);
+		if (model != null) {
+			logger.fine("Modell " + file + " muss nicht noch einmal neu geladen werden");
+			return (E) model;
+		}
+
+		E loaded = ModelCache.<E>loadPrivateModel(file, gzipped);
+		if (loaded != null) models.put(file, loaded);
+		return loaded;
+	}
+
+	/**Lädt eine eigene, nicht geteilte Kopie eines Modells - existiert die Datei nicht,
+	 * wird null zurückgegeben.
+	 * @param file
+	 * @param gzipped
+	 * @return
+	 * @throws IOException
+	 */
+	public static <E> E loadPrivateModel(File file, boolean gzipped) throws IOException {
+		if (!file.exists()) return null;
+
+		XStreamHelper<E> xmlloader = new XStreamHelper<E>();
+		E model = xmlloader.loadXML(file, gzipped);
+		logger.info("Modell " + file + " erfolgreich geladen");
+		return model;
+	}
+
+	/**Entfernt ein Modell aus dem Zwischenspeicher, z.B. nachdem die Datei neu geschrieben wurde
+	 * @param file
+	 */
+	public static synchronized void removeModel(File file) {
+		models.remove(file);
+	}
+
+	/**Gibt gemeinsam genutzte Daten zurück oder null, falls diese noch nicht abgelegt wurden
+	 * @param key Schlüssel, z.B. Klassenname + Datei
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static synchronized <E> E getSharedObject(String key) {
+		return (E) objects.get(key);
+	}
+
+	/**Legt Daten zur gemeinsamen Nutzung ab - die Daten dürfen danach nicht mehr verändert werden
+	 * @param key Schlüssel, z.B. Klassenname + Datei
+	 * @param object
+	 */
+	public static synchronized void putSharedObject(String key, Object object) {
+		objects.put(key, object);
+	}
+
+	/**
+	 * Leert den Zwischenspeicher
+	 */
+	public static synchronized void clear() {
+		models.clear();
+		objects.clear();
+	}
+}
@@ -23,19 +23,24 @@
  */
 package de.beimax.testel.general;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.logging.Logger;
 
+import de.beimax.testel.token.AnnotationIndex;
 import de.beimax.testel.token.TextPosition;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.TokenList;
 import de.beimax.testel.token.impl.NumberToken;
 import de.beimax.testel.token.impl.TestElTag;
 
-/**Klasse zur Verwaltung von Referenzlisten - nutzt zwei weitere innere Klassen unten
+/**Klasse zur Verwaltung von Referenzlisten - nutzt zwei weitere innere Klassen unten, die
+ * gespeichert werden, und einen Automaten (ReferenceNode), der beim ersten Match aus den
+ * Referenzen erstellt wird
  * @author mkalus
  *
  */
@@ -48,6 +53,12 @@ public class ReferenceList {
 	 */
 	private HashMap<String, ReferenceStartElementList> referenceMap;
 	
+	/**
+	 * Wurzel des Automaten über alle Referenzen - wird nicht gespeichert, sondern bei Bedarf
+	 * neu erstellt (s. getAutomaton())
+	 */
+	private transient volatile ReferenceNode automaton;
+	
 	/** Konstruktor
 	 * 
 	 */
@@ -64,6 +75,7 @@ public class ReferenceList {
 		if (tokenList == null || tokenList.isEmpty()) return false;
 		
 		String startName = tokenList.getFirst().getName();
+		automaton = null; //Automat ist veraltet
 		
 		//gibt es schon einen Startschlüssel?
 		if (referenceMap.containsKey(startName)) { //ja
@@ -77,22 +89,164 @@ public class ReferenceList {
 		}
 	}
 
-	/**Treffer suchen
+	/**Treffer suchen - ab tok wird der Automat mit den folgenden Tokens abgelaufen, bis keine
+	 * Referenz mehr passen kann. Der Treffer, der die meisten Tokens abdeckt, wird genommen,
+	 * bei gleicher Länge die zuerst eingetragene Referenz.
 	 * @param list
 	 * @param tok
 	 * @param it
 	 * @return
 	 */
 	public boolean match(TokenList list, Token tok, ListIterator<Token> it) {
-		ReferenceStartElementList startList = referenceMap.get(tok.getName());
+		ReferenceNode start = getAutomaton().getChild(tok.getName());
+		if (start == null) return false;
+		
+		int position = it.previousIndex();
+		int size = list.size();
+		Reference maxRef = null;
+		int max = 0, maxOrder = 0;
 		
-		if (startList != null)
-			return startList.match(list, tok, it);
+		//aktive Zustände: sicher passende und solche, deren Referenzen noch einzeln geprüft
+		//werden müssen (s. ReferenceNode)
+		ArrayList<ReferenceNode> sure = new ArrayList<ReferenceNode>();
+		ArrayList<ReferenceNode> unsure = new ArrayList<ReferenceNode>();
+		sure.add(start);
 		
-		return false;
+		for (int length = 1; ; length++) {
+			//Treffer dieser Länge
+			for (int i = 0; i < sure.size(); i++) {
+				ReferenceNode node = sure.get(i);
+				if (node.references != null && (length > max || node.orders.get(0) < maxOrder)) {
+					maxRef = node.references.get(0);
+					maxOrder = node.orders.get(0);
+					max = length;
+				}
+			}
+			for (int i = 0; i < unsure.size(); i++) {
+				ReferenceNode node = unsure.get(i);
+				if (node.references == null) continue;
+				for (int j = 0; j < node.references.size(); j++)
+					if (length > max || node.orders.get(j) < maxOrder) {
+						if (node.references.get(j).match(list, position)) {
+							maxRef = node.references.get(j);
+							maxOrder = node.orders.get(j);
+							max = length;
+							break;
+						}
+					} else break;
+			}
+			
+			//Ende der Liste oder keine Zustände mehr?
+			if (position + length >= size || (sure.isEmpty() && unsure.isEmpty())) break;
+			
+			//nächstes Token
+			Token next = list.get(position + length);
+			String name = next.getName();
+			boolean number = next instanceof NumberToken;
+			ArrayList<ReferenceNode> nextSure = new ArrayList<ReferenceNode>();
+			ArrayList<ReferenceNode> nextUnsure = new ArrayList<ReferenceNode>();
+			for (int i = 0; i < sure.size(); i++) {
+				ReferenceNode node = sure.get(i);
+				ReferenceNode child = node.getChild(name);
+				if (child != null) nextSure.add(child);
+				if (node.number != null) {
+					if (number) nextSure.add(node.number);
+					else if (node.numberNames.contains(name)) nextUnsure.add(node.number);
+				}
+			}
+			for (int i = 0; i < unsure.size(); i++) {
+				ReferenceNode node = unsure.get(i);
+				ReferenceNode child = node.getChild(name);
+				if (child != null) nextUnsure.add(child);
+				if (node.number != null && (number || node.numberNames.contains(name)))
+					nextUnsure.add(node.number);
+			}
+			sure = nextSure;
+			unsure = nextUnsure;
+		}
+		
+		if (maxRef == null) return false;
+		applyMatch(maxRef, list, it);
+		return true;
 	}
 	
+	/**Gibt den Automaten zurück und erstellt ihn ggf. - die Liste kann von mehreren Handlern
+	 * gleichzeitig verwendet werden
+	 * @return
+	 */
+	private ReferenceNode getAutomaton() {
+		ReferenceNode root = automaton;
+		if (root == null) {
+			synchronized (this) {
+				root = automaton;
+				if (root == null) {
+					root = compile();
+					automaton = root;
+				}
+			}
+		}
+		return root;
+	}
 	
+	/**Erstellt den Automaten aus den Referenzen: das erste Token muss immer mit dem Namen
+	 * übereinstimmen, bei den folgenden sind Zahlen (NumberToken) Platzhalter für beliebige
+	 * Zahlen.
+	 * @return
+	 */
+	private ReferenceNode compile() {
+		ReferenceNode root = new ReferenceNode();
+		int order = 0;
+		
+		Iterator<ReferenceStartElementList> lists = referenceMap.values().iterator();
+		while (lists.hasNext()) {
+			Iterator<Reference> refs = lists.next().referenceList.iterator();
+			while (refs.hasNext()) {
+				Reference ref = refs.next();
+				Iterator<Token> toks = ref.tokenList.iterator();
+				ReferenceNode node = root.addChild(toks.next().getName());
+				while (toks.hasNext()) {
+					Token tok = toks.next();
+					if (tok instanceof NumberToken) node = node.addNumber(tok.getName());
+					else node = node.addChild(tok.getName());
+				}
+				node.addReference(ref, order++);
+			}
+		}
+		logger.fine("Automat für " + order + " Referenzen erstellt");
+		
+		return root;
+	}
+
+	/**Wendet einen Match an - d.h. ändert die Liste und trägt die Referenz in deren
+	 * Annotationsschicht ein
+	 * @param reference
+	 * @param list
+	 * @param it
+	 */
+	protected void applyMatch(Reference reference, TokenList list, ListIterator<Token> it) {
+		String className = reference.getClassName();
+		AnnotationIndex annotations = list.getAnnotationIndex();
+		
+		//neues Starttag erstellen
+		TextPosition pos = it.previous().getTextPosition();
+		TestElTag startTag = new TestElTag("ref", className);
+		startTag.initTextPosition(pos.beginning());
+		it.add(startTag);
+		
+		for (int i = 0; i < reference.tokenList.size(); i++)
+			pos = it.next().getTextPosition();
+		
+		//EndTag erstellen
+		TestElTag stopTag = new TestElTag("/ref", className);
+		stopTag.initTextPosition(pos.ending());
+		//einfügen
+		it.add(stopTag);
+		
+		//Referenzen erstellen
+		startTag.setReference(stopTag);
+		stopTag.setReference(startTag);
+		annotations.add(startTag);
+	}
 	
 	/**Diese innere Klasse sammelt Listen mit dem selben Startelement, um das Tagging zu vereinfachen
 	 * @author mkalus
@@ -139,78 +293,6 @@ public class ReferenceList {
 			
 			return true;
 		}
-
-		/**Treffer suchen - der Treffer, der die meisten Tokens abdeckt, wird genommen.
-		 * @param list
-		 * @param tok
-		 * @param it
-		 * @return
-		 */
-		public boolean match(TokenList list, Token tok, ListIterator<Token> it) {
-			//Match-Liste aufstellen
-			LinkedList<Reference> matchList = new LinkedList<Reference>();
-			
-			//Matches finden
-			Iterator<Reference> iter = referenceList.iterator();
-			int position = it.previousIndex();
-			
-			while (iter.hasNext()) {
-				Reference possibleMatch = iter.next();
-				if (possibleMatch.match(list, position)) //Treffer?
-					matchList.add(possibleMatch);
-			}
-			
-			//Keine Treffer -> nix zurückgeben
-			if (matchList.isEmpty()) return false;
-			
-			if (matchList.size() == 1) //ein Treffer: einfach
-				applyMatch(matchList.getFirst(), it);
-			else { //mehrere Treffer - hier den längsten heraussuchen
-				int max = 0;
-				Reference maxRef = null;
-				Iterator<Reference> miter = matchList.iterator();
-				while (miter.hasNext()) {
-					Reference check = miter.next();
-					if (check.tokenList.size() > max) {
-						max = check.tokenList.size();
-						maxRef = check;
-					}
-				}
-				if (maxRef == null)
-					logger.severe("ACHTUNG: maxRef war null, obwohl das nicht passieren sollte");
-				applyMatch(maxRef, it);
-			}
-
-			return true;
-		}
-		
-		/**Wendet einen Match an - d.h. ändert die Liste
-		 * @param reference
-		 * @param it
-		 */
-		protected void applyMatch(Reference reference, ListIterator<Token> it) {
-			String className = reference.getClassName();
-			
-			//neues Starttag erstellen
-			TextPosition pos = it.previous().getTextPosition();
-			TestElTag startTag = new TestElTag("ref", className);
-			startTag.initTextPosition(pos.getBpos(), pos.getBrow(), pos.getBcol(), pos.getBpos(), pos.getBrow(), pos.getBcol());
-			it.add(startTag);
-			
-			for (int i = 0; i < reference.tokenList.size(); i++)
-				pos = it.next().getTextPosition();
-			
-			//EndTag erstellen
-			TestElTag stopTag = new TestElTag("/ref", className);
-			stopTag.initTextPosition(pos.getEpos(), pos.getErow(), pos.getEcol(), pos.getEpos(), pos.getErow(), pos.getEcol());
-			//einfügen
-			it.add(stopTag);
-			
-			//Referenzen erstellen
-			startTag.setReference(stopTag);
-			stopTag.setReference(startTag);
-			//System.out.println(lastTok);
-		}
 	}
 
 	
@@ -297,4 +379,67 @@ public class ReferenceList {
 		}
 	} //protected class Reference Ende
 	
+	/**Knoten des Referenz-Automaten. Kanten gibt es für Namen und - für Zahlen in den
+	 * Referenzen - eine Platzhalter-Kante, der jedes NumberToken folgt. Ein anderes Token folgt
+	 * der Platzhalter-Kante nur, wenn es wie eine der Zahlen heißt; die Referenzen dahinter
+	 * müssen dann einzeln geprüft werden.
+	 * @author mkalus
+	 *
+	 */
+	private static class ReferenceNode {
+		private HashMap<String, ReferenceNode> children;
+		private ReferenceNode number;
+		private HashSet<String> numberNames;
+		//Referenzen, die hier enden, mit der Reihenfolge ihres Eintrags
+		private ArrayList<Reference> references;
+		private ArrayList<Integer> orders;
+		
+		/**Kind für einen Namen oder null
+		 * @param name
+		 * @return
+		 */
+		ReferenceNode getChild(String name) {
+			return children == null?null:children.get(name);
+		}
+		
+		/**Kind für einen Namen holen oder anlegen
+		 * @param name
+		 * @return
+		 */
+		ReferenceNode addChild(String name) {
+			if (children == null) children = new HashMap<String, ReferenceNode>();
+			ReferenceNode child = children.get(name);
+			if (child == null) {
+				child = new ReferenceNode();
+				children.put(name, child);
+			}
+			return child;
+		}
+		
+		/**Platzhalter-Kind holen oder anlegen
+		 * @param name Name der Zahl in der Referenz
+		 * @return
+		 */
+		ReferenceNode addNumber(String name) {
+			if (number == null) {
+				number = new ReferenceNode();
+				numberNames = new HashSet<String>();
+			}
+			numberNames.add(name);
+			return number;
+		}
+		
+		/**Referenz, die hier endet, eintragen
+		 * @param reference
+		 * @param order
+		 */
+		void addReference(Reference reference, int order) {
+			if (references == null) {
+				references = new ArrayList<Reference>(1);
+				orders = new ArrayList<Integer>(1);
+			}
+			references.add(reference);
+			orders.add(order);
+		}
+	}
 }
@@ -49,10 +49,10 @@ import de.beimax.testel.util.XStreamHelper;
  */
 public class ReferenceTagger implements Tagger {
 	/**
-	 * statische Elemente, die bei mehreren Handlern gleich bleiben sollten...
+	 * Liste der Referenzlisten - im Tag-Modus von allen Handlern geteilt (nur lesend), im
+	 * Train-Modus eine eigene Kopie (s. ModelCache)
 	 */
-	private static ReferenceList referenceList = null; //Liste der Referenzlisten
-	private static File fileRef = null; //statische Struktur hat welche DateiReferenz?
+	private ReferenceList referenceList = null;
 
 	private TestElHandler handler;
 	private String language;
@@ -108,25 +108,20 @@ public class ReferenceTagger implements Tagger {
 	 * den Hauptspeicher
 	 */
 	public void loadReferenceFile() throws TestelException {
+		if (referenceList != null) return; //schon geladen
+		
 		File referenceFile = getReferenceFileName();
-		if (referenceFile != null && referenceFile.equals(fileRef)) {
-			logger.fine("Referenzdatei muss nicht noch einmal neu geladen werden");
-			return;
+		try {
+			//im Train-Modus wird die Liste verändert -> eigene Kopie laden
+			if (handler.getMode() == TestElHandler.MODE_TRAIN)
+				referenceList = ModelCache.loadPrivateModel(referenceFile, referenceFileIsGzipped());
+			else referenceList = ModelCache.getSharedModel(referenceFile, referenceFileIsGzipped());
+		} catch (IOException e) {
+			throw new TestelException("Konnte " + referenceFile + " nicht in Datenstruktur umwandeln - Daten offenbar korrput:\n"+ e.getLocalizedMessage());
 		}
 		
-		//neu laden
-		fileRef = referenceFile;
-		
-		//existiert Datei überhaupt?
-		if (referenceFile.exists()) { //ja: aus XML-Datei laden
-			XStreamHelper<ReferenceList> xmlloader = new XStreamHelper<ReferenceList>();
-			try {
-				referenceList = xmlloader.loadXML(referenceFile, referenceFileIsGzipped());
-				logger.info("Referenzdatei " + referenceFile + " erfolgreich geladen");
-			} catch (IOException e) {
-				throw new TestelException("Konnte " + referenceFile + " nicht in Datenstruktur umwandeln - Daten offenbar korrput:\n"+ e.getLocalizedMessage());
-			}
-		} else { //nein: neue Datei erstellen
+		//existiert Datei überhaupt? nein: neue Liste erstellen
+		if (referenceList == null) {
 			logger.warning("Keine Referenzdatei " + referenceFile + " vorhanden - erstelle neue Liste");
 			referenceList = new ReferenceList();
 		}
@@ -143,6 +138,7 @@ public class ReferenceTagger implements Tagger {
 		XStreamHelper<ReferenceList> xmlsaver = new XStreamHelper<ReferenceList>();
 		try {
 			xmlsaver.saveXML(referenceFile, referenceList, referenceFileIsGzipped());
+			ModelCache.removeModel(referenceFile); //gemeinsame Kopie ist veraltet
 			logger.info("Referenzdatei " + referenceFile + " erfolgreich gespeichert");
 		} catch (IOException e) {
 			throw new TestelException("Konnte Referenzliste nicht speichern:\n" + e.getLocalizedMessage());
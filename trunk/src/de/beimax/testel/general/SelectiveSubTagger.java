@@ -0,0 +1,46 @@
+/**
+ * Datei: SelectiveSubTagger.java
+ * Paket: de.beimax.testel.general
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.general;
+
+/**SubTagger, der vorab angeben kann, welche Tokens er überhaupt bearbeiten kann. Der
+ * SubTaggerDispatcher reicht einem solchen SubTagger nur noch Tokens der angegebenen Sorten
+ * weiter, deren Name mit einem akzeptierten Zeichen beginnt - alle anderen Tokens würde der
+ * SubTagger ohnehin sofort und ohne Nebenwirkungen mit false ablehnen.
+ * @author mkalus
+ *
+ */
+public interface SelectiveSubTagger extends SubTagger {
+	/**Gibt die Token-Klassen zurück, die der SubTagger bearbeitet (Unterklassen eingeschlossen)
+	 * @return Klassen oder null, falls alle Tokens bearbeitet werden
+	 */
+	public Class<?>[] getTokenKinds();
+	
+	/**Prüft das erste Zeichen eines Token-Namens - false garantiert, dass subTag für ein
+	 * Token mit diesem Anfangszeichen false zurückgibt und weder Token, Liste noch den
+	 * Zustand des SubTaggers verändert. Tokens ohne Namen werden immer weitergereicht.
+	 * @param c erstes Zeichen des Namens
+	 * @return
+	 */
+	public boolean acceptsFirstChar(char c);
+}
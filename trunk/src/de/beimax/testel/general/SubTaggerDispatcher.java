@@ -0,0 +1,197 @@
+/**
+ * Datei: SubTaggerDispatcher.java
+ * Paket: de.beimax.testel.general
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.general;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.ListIterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.token.Token;
+import de.beimax.testel.token.TokenList;
+
+/**Lässt eine Reihe von SubTaggern in einem Durchlauf über eine ganze TokenListe laufen.
+ * Jedes Token wird wie bisher den SubTaggern in der konfigurierten Reihenfolge angeboten, bis
+ * einer zuschlägt - SelectiveSubTagger bekommen allerdings nur die Tokens, die sie überhaupt
+ * bearbeiten können. Die Auswahl wird pro Token-Klasse und erstem Zeichen des Namens in einer
+ * Tabelle abgelegt, so dass pro Token nur noch die möglichen Kandidaten gefragt werden.
+ * @author mkalus
+ *
+ */
+public class SubTaggerDispatcher {
+	//Logger
+	static final Logger logger = Logger.getLogger(SubTaggerDispatcher.class.getName());
+
+	/**
+	 * SubTagger in der konfigurierten Reihenfolge
+	 */
+	private final SubTagger[] subTaggers;
+	
+	/**
+	 * Dispatch-Tabelle nach Token-Klasse
+	 */
+	private final HashMap<Class<?>, Route> routes = new HashMap<Class<?>, Route>();
+	
+	/**Konstruktor
+	 * @param subTaggers fertig initialisierte SubTagger - null-Einträge werden übergangen
+	 */
+	public SubTaggerDispatcher(SubTagger[] subTaggers) {
+		ArrayList<SubTagger> list = new ArrayList<SubTagger>(subTaggers.length);
+		for (int i = 0; i < subTaggers.length; i++)
+			if (subTaggers[i] != null) list.add(subTaggers[i]);
+		this.subTaggers = list.toArray(new SubTagger[list.size()]);
+	}
+
+	/**Durchläuft die Liste einmal und bietet jedes Token den passenden SubTaggern an
+	 * @param list
+	 * @return
+	 * @throws TestelTaggerException
+	 */
+	public TokenList run(TokenList list) throws TestelTaggerException {
+		ListIterator<Token> iterator = list.listIterator();
+		
+		while (iterator.hasNext()) {
+			Token tok = iterator.next();
+			if (logger.getLevel() == Level.FINEST)
+				logger.finest("Checke: " + tok.toString());
+			
+			//Token ohne Klasse an alle
+			if (tok == null) {
+				offer(subTaggers, tok, iterator);
+				continue;
+			}
+			
+			Route route = getRoute(tok.getClass());
+			String name = tok.getName();
+			if (name == null || name.length() == 0) offer(route.candidates, tok, iterator);
+			else {
+				char c = name.charAt(0);
+				if (c < Route.TABLESIZE) offer(route.getCandidates(c), tok, iterator);
+				else { //seltene Zeichen nicht zwischenspeichern, sondern direkt filtern
+					SubTagger[] candidates = route.candidates;
+					for (int i = 0; i < candidates.length; i++)
+						if (route.accepts(i, c) && candidates[i].subTag(tok, iterator)) break;
+				}
+			}
+		}
+		
+		return list;
+	}
+	
+	/**Bietet ein Token den SubTaggern der Reihe nach an, bis einer zuschlägt
+	 * @param candidates
+	 * @param tok
+	 * @param iterator
+	 * @throws TestelTaggerException
+	 */
+	private static void offer(SubTagger[] candidates, Token tok, ListIterator<Token> iterator) throws TestelTaggerException {
+		for (int i = 0; i < candidates.length; i++)
+			if (candidates[i].subTag(tok, iterator)) break;
+	}
+
+	/**Holt bzw. erstellt die Route für eine Token-Klasse
+	 * @param kind
+	 * @return
+	 */
+	private Route getRoute(Class<?> kind) {
+		Route route = routes.get(kind);
+		if (route == null) {
+			route = new Route(kind);
+			routes.put(kind, route);
+		}
+		return route;
+	}
+	
+	/**Kandidaten für eine Token-Klasse, nach erstem Zeichen aufgeschlüsselt
+	 * @author mkalus
+	 *
+	 */
+	private class Route {
+		/**
+		 * Anfangszeichen unterhalb dieser Grenze werden in der Tabelle gehalten
+		 */
+		static final int TABLESIZE = 256;
+		
+		/**
+		 * SubTagger, die diese Token-Klasse bearbeiten, in konfigurierter Reihenfolge
+		 */
+		final SubTagger[] candidates;
+		
+		/**
+		 * Kandidaten pro Anfangszeichen, wird bei Bedarf gefüllt
+		 */
+		private final SubTagger[][] table = new SubTagger[TABLESIZE][];
+		
+		/**Konstruktor
+		 * @param kind
+		 */
+		Route(Class<?> kind) {
+			ArrayList<SubTagger> list = new ArrayList<SubTagger>(subTaggers.length);
+			for (int i = 0; i < subTaggers.length; i++)
+				if (handles(subTaggers[i], kind)) list.add(subTaggers[i]);
+			candidates = list.toArray(new SubTagger[list.size()]);
+		}
+		
+		/**Gibt die Kandidaten für ein Anfangszeichen unterhalb von TABLESIZE zurück
+		 * @param c
+		 * @return
+		 */
+		SubTagger[] getCandidates(char c) {
+			SubTagger[] entry = table[c];
+			if (entry == null) {
+				ArrayList<SubTagger> list = new ArrayList<SubTagger>(candidates.length);
+				for (int i = 0; i < candidates.length; i++)
+					if (accepts(i, c)) list.add(candidates[i]);
+				entry = list.toArray(new SubTagger[list.size()]);
+				table[c] = entry;
+			}
+			return entry;
+		}
+		
+		/**Akzeptiert Kandidat i das Anfangszeichen c?
+		 * @param i
+		 * @param c
+		 * @return
+		 */
+		boolean accepts(int i, char c) {
+			return !(candidates[i] instanceof SelectiveSubTagger) || ((SelectiveSubTagger) candidates[i]).acceptsFirstChar(c);
+		}
+	}
+
+	/**Bearbeitet der SubTagger Tokens dieser Klasse?
+	 * @param subTagger
+	 * @param kind
+	 * @return
+	 */
+	private static boolean handles(SubTagger subTagger, Class<?> kind) {
+		if (!(subTagger instanceof SelectiveSubTagger)) return true;
+		Class<?>[] kinds = ((SelectiveSubTagger) subTagger).getTokenKinds();
+		if (kinds == null) return true;
+		for (int i = 0; i < kinds.length; i++)
+			if (kinds[i].isAssignableFrom(kind)) return true;
+		return false;
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ * Datei: TestElSpan.java
+ * Paket: de.beimax.testel.general
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.general;
+
+import de.beimax.testel.token.TextPosition;
+
+/**Ein getaggter Bereich im Dokument, wie er auch in der XML-Beschreibung ausgegeben wird:
+ * Name und Klasse des Tags sowie die Position des eigentlichen Inhalts (also ohne die
+ * TestEl-Tags selbst).
+ * @author mkalus
+ *
+ */
+public class TestElSpan {
+	/**
+	 * Name des Tags (z.B. der Name des Referenz- oder TestEl-Tags)
+	 */
+	private final String name;
+	
+	/**
+	 * Klasse des Tags
+	 */
+	private final String className;
+	
+	/**
+	 * Position des Inhalts
+	 */
+	private final TextPosition position;
+
+	/**Konstruktor
+	 * @param name
+	 * @param className
+	 * @param position
+	 */
+	public TestElSpan(String name, String className, TextPosition position) {
+		this.name = name;
+		this.className = className;
+		this.position = position;
+	}
+
+	/**Getter für name
+	 * @return
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**Getter für className
+	 * @return
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**Getter für position
+	 * @return
+	 */
+	public TextPosition getTextPosition() {
+		return position;
+	}
+	
+	/**Gibt den Inhalt des Bereichs aus dem Dokument zurück
+	 * @param document
+	 * @return
+	 */
+	public String getText(CharSequence document) {
+		return document.subSequence(position.getBpos(), position.getEpos()).toString();
+	}
+
+	/* (Kein Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return name + "[" + className + "]" + position;
+	}
+}
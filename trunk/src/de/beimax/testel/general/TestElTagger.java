@@ -44,10 +44,10 @@ import de.beimax.testel.util.XStreamHelper;
  */
 public class TestElTagger implements Tagger {
 	/**
-	 * statische Elemente, die bei mehreren Handlern gleich bleiben sollten...
+	 * Klassifizierer-Struktur - im Tag-Modus von allen Handlern geteilt (nur lesend), im
+	 * Train-Modus eine eigene Kopie (s. ModelCache)
 	 */
-	private static ClassifierCollection classifierCollection = null; //Referenz auf die KlassifiziereStruktur
-	private static File fileRef = null; //statische Struktur hat welche DateiReferenz?
+	private ClassifierCollection classifierCollection = null;
 
 	private TestElHandler handler;
 	private String language;
@@ -105,7 +105,7 @@ public class TestElTagger implements Tagger {
 		//eigentliche Arbeit macht die Kollektion...
 		String msg = "Verwende '" + classifierCollection.getClassifierName() + "' als Klassifizierungs-Engine";
 		logger.info(msg);
-		if (!handler.isQuiet()) System.out.println(msg);
+		if (!handler.isQuiet()) handler.getOutputStream().println(msg);
 		
 		try {
 			return classifierCollection.tag(list);
@@ -134,25 +134,20 @@ public class TestElTagger implements Tagger {
 	 * den Hauptspeicher
 	 */
 	public void loadClassifiersFile() throws TestelException {
+		if (classifierCollection != null) return; //schon geladen
+		
 		File referenceFile = getClassifiersFileName();
-		if (referenceFile != null && referenceFile.equals(fileRef)) {
-			logger.fine("Klassifiziererdatei muss nicht noch einmal neu geladen werden");
-			return;
+		try {
+			//im Train-Modus wird die Kollektion verändert -> eigene Kopie laden
+			if (handler.getMode() == TestElHandler.MODE_TRAIN)
+				classifierCollection = ModelCache.loadPrivateModel(referenceFile, classifiersFileIsGzipped());
+			else classifierCollection = ModelCache.getSharedModel(referenceFile, classifiersFileIsGzipped());
+		} catch (IOException e) {
+			throw new TestelException("Konnte " + referenceFile + " nicht in Datenstruktur umwandeln - Daten offenbar korrput:\n"+ e.getLocalizedMessage());
 		}
 		
-		//neu laden
-		fileRef = referenceFile;
-		
-		//existiert Datei überhaupt?
-		if (referenceFile.exists()) { //ja: aus XML-Datei laden
-			XStreamHelper<ClassifierCollection> xmlloader = new XStreamHelper<ClassifierCollection>();
-			try {
-				classifierCollection = xmlloader.loadXML(referenceFile, classifiersFileIsGzipped());
-				logger.info("Klassifiziererdatei " + referenceFile + " erfolgreich geladen");
-			} catch (IOException e) {
-				throw new TestelException("Konnte " + referenceFile + " nicht in Datenstruktur umwandeln - Daten offenbar korrput:\n"+ e.getLocalizedMessage());
-			}
-		} else { //nein: neue Datei erstellen
+		//existiert Datei überhaupt? nein: neue Kollektion erstellen
+		if (classifierCollection == null) {
 			logger.warning("Keine Klassifiziererdatei " + referenceFile + " vorhanden - erstelle neue Kollektion");
 			//Klasse des Klassifizierers holen, um die richtige Klasse zu holen
 			Classifier classifier = ClassifierFactory.getClassifier(handler);
@@ -171,6 +166,7 @@ public class TestElTagger implements Tagger {
 		XStreamHelper<ClassifierCollection> xmlsaver = new XStreamHelper<ClassifierCollection>();
 		try {
 			xmlsaver.saveXML(referenceFile, classifierCollection, classifiersFileIsGzipped());
+			ModelCache.removeModel(referenceFile); //gemeinsame Kopie ist veraltet
 			logger.info("Klassifiziererdatei " + referenceFile + " erfolgreich gespeichert");
 		} catch (IOException e) {
 			throw new TestelException("Konnte Klassifiziererdatei nicht speichern:\n" + e.getLocalizedMessage());
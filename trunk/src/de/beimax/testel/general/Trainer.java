@@ -182,7 +182,7 @@ public class Trainer {
 					addTok.setReference(tagList.getFirst().getReference());
 					TextPosition bpos = first.getTextPosition();
 					TextPosition epos = last.getTextPosition();
-					addTok.initTextPosition(bpos.getBpos(), bpos.getBrow(), bpos.getBcol(), epos.getEpos(), epos.getErow(), epos.getEcol());
+					addTok.initTextPosition(bpos.to(epos));
 					it.add(addTok); //an dieser Position einsetzen
 				}
 			}
@@ -736,7 +736,7 @@ public class Trainer {
 				classifier.insertTokenList(subTokenList, tokenList);
 				//so, nun schauen, wo das Match hinfallen würde
 				//Match-Tags entfernen
-				TokenList innerList = subTokenList.getTokenList().subList(1, subTokenList.getTokenList().size()-2);
+				TokenList innerList = subTokenList.getTokenList().view(1, subTokenList.getTokenList().size()-2);
 				SubTokenList match = classifier.getInnerOuterListToMatch(innerList,
 						subTokenList.getStartPosition() + 1,
 						subTokenList.getStopPosition() - 1, tokenList);
@@ -30,8 +30,11 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.ListIterator;
+import java.util.logging.Level;
 
 import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.general.ModelCache;
+import de.beimax.testel.general.SelectiveSubTagger;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.impl.PunctuationToken;
 import de.beimax.testel.token.impl.SomeToken;
@@ -40,20 +43,25 @@ import de.beimax.testel.token.impl.SomeToken;
  * @author mkalus
  *
  */
-public class AbbreviationSubTagger extends AbstractLangSubTagger {
+public class AbbreviationSubTagger extends AbstractLangSubTagger implements SelectiveSubTagger {
 	protected HashSet<String> abbreviations;
-	protected boolean checked = false;
+	protected LexiconTrie<String> lexicon; //Abkürzungen zum schrittweisen Ablaufen
 
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.general.SubTagger#init()
 	 */
 	public void init() throws TestelTaggerException {
 		logger.info(getType() + " initialisiert");
+		File file = getAbbrevFile();
+		
+		//schon geladen?
+		if (shareData() && (abbreviations = ModelCache.getSharedObject(getShareKey(file))) != null &&
+				(lexicon = ModelCache.getSharedObject(getShareKey(file) + "#lexicon")) != null) return;
 		abbreviations = new HashSet<String>();
+		lexicon = new LexiconTrie<String>();
 		
 		//Lade punctuation.txt aus Sprachabhängigem Hintergrund
 		BufferedReader reader;
-		File file = getAbbrevFile();
 		try {
 			reader = new BufferedReader(new FileReader(file));
 		} catch (FileNotFoundException e) {
@@ -63,12 +71,19 @@ public class AbbreviationSubTagger extends AbstractLangSubTagger {
 		String line;
 		try {
 			while ((line = reader.readLine()) != null)
-				if (!line.trim().equals("") && line.trim().charAt(0) != '#') //Kommentarzeilen
+				if (!line.trim().equals("") && line.trim().charAt(0) != '#') { //Kommentarzeilen
 					abbreviations.add(line.trim());
+					lexicon.put(line.trim(), line.trim());
+				}
 		} catch (IOException e) {
 			throw new TestelTaggerException("Fehler beim Bearbeiten der Abkürzungsdatei " + file + ":\n" + e.getLocalizedMessage());
 		}
+		lexicon.trimToSize();
 		logger.finer("Abkürzungsdatei geladen.");
+		if (shareData()) {
+			ModelCache.putSharedObject(getShareKey(file), abbreviations);
+			ModelCache.putSharedObject(getShareKey(file) + "#lexicon", lexicon);
+		}
 	}
 	
 	/**Gibt das Abkürzungsset heraus - wird vom Trainer zur Überprüfung von Doubletten
@@ -144,13 +159,26 @@ public class AbbreviationSubTagger extends AbstractLangSubTagger {
 //		return false;
 //	}
 	
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#getTokenKinds()
+	 */
+	public Class<?>[] getTokenKinds() {
+		return new Class<?>[] { PunctuationToken.class };
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#acceptsFirstChar(char)
+	 */
+	public boolean acceptsFirstChar(char c) {
+		return c == '.'; //nur Punkte
+	}
+
+	/**Sucht ab dem Token vor dem Punkt die längste Kette aus Wort und Punkt, die im Lexikon
+	 * steht, und fügt sie zu einem Token zusammen.
+	 * @see de.beimax.testel.general.SubTagger#subTag(de.beimax.testel.token.Token, java.util.ListIterator)
+	 */
 	public boolean subTag(Token currentToken, ListIterator<Token> iterator)
 		throws TestelTaggerException {
-		if (checked) { //schon ein Durchlauf mit dem selben Token?
-			checked = false;
-			return false;
-		}
-		
 		if (currentToken == null) return false; //am Ende der Liste
 		
 		//nur PunctuationToken berücksichtigen
@@ -166,70 +194,56 @@ public class AbbreviationSubTagger extends AbstractLangSubTagger {
 			return false; //Am Anfang
 		}
 		Token first = iterator.previous();
+		iterator.next();
+		iterator.next(); //wieder auf Ausgangslage
 		
 		//falls kein SomeToken oder der Punkt nicht direkt an das Token
 		//anschließt
 		if (!(first instanceof SomeToken) ||
-				currentToken.getTextPosition().getBpos() != first.getTextPosition().getEpos()) {
-			iterator.next();
-			iterator.next(); //wieder auf Ausgangslage
+				currentToken.getTextPosition().getBpos() != first.getTextPosition().getEpos())
 			return false;
-		}
 		
-//		//so - prüfen auf einfache Abkürzung
-//		if (abbreviations.contains(first.getName() + '.')) {
-//			first.simpleJoin(currentToken);
-//			first = iterator.next();
-//			first = iterator.next();
-//			iterator.remove();
-//			return true;
-//		}
-//		
-		//nicht der Fall, dann vielleicht komplexe Abkürzung
-		int index = 0;
-		StringBuffer concat = new StringBuffer();
+		//erstes Paar aus Wort und Punkt im Lexikon ablaufen
+		LexiconTrie.Node<String> node = lexicon.getRoot().next(first.getName());
+		if (node != null) node = node.next('.');
+		int pairs = 1, longest = (node != null && node.getValue() != null)?1:0;
+		int read = 0; //gelesene Tokens hinter dem Punkt
 		
-		outer:
-		while (iterator.hasNext()) {
+		//weitere Paare, solange das Lexikon passende Einträge hat
+		while (node != null && iterator.hasNext()) {
 			Token word = iterator.next();
-			index++;
-			Token abbr = null;
-			if (iterator.hasNext()) {
-				abbr = iterator.next();
-				index++;
-			}
+			read++;
+			if (!(word instanceof SomeToken) || !iterator.hasNext()) break;
+			Token abbr = iterator.next();
+			read++;
 			//nur falls erster Teil SomeToken, 2. Teil Punkt ist
-			if (!(word instanceof SomeToken && abbr instanceof PunctuationToken &&
-					abbr.getName().charAt(0) == '.')) break outer;
-			//hinzufügen
-			concat.append(word.getName() + '.');
-			if (abbreviations.contains(concat.toString())) {
-				//System.out.println(concat.toString());
-				joinAbbrevs(concat.toString(), index, iterator);
-			}
+			if (!(abbr instanceof PunctuationToken && abbr.getName().charAt(0) == '.')) break;
+			node = node.next(word.getName());
+			if (node != null) node = node.next('.');
+			pairs++;
+			if (node != null && node.getValue() != null) longest = pairs;
 		}
 		
-		for (int i = 1; i < index; i++) {
-			iterator.previous();
-		}
+		//zurück zur Ausgangslage
+		for (; read > 0; read--) iterator.previous();
+		if (longest == 0) return false;
 		
-		checked = true; //nicht noch einmal prüfen
-		return false;
+		//Punkt und weitere Paare an das erste Token anfügen
+		iterator.previous();
+		joinAbbrevs(first, longest * 2 - 1, iterator);
+		if (logger.getLevel() == Level.FINER)
+			logger.finer("Abkürzung " + first.getName() + " entdeckt.");
+		
+		return true;
 	}
 
 	/**Abkürzungen zusammenfügen
-	 * @param name
-	 * @param index
-	 * @param it
+	 * @param first Token vor dem Iterator, an das angefügt wird
+	 * @param count Anzahl der folgenden Tokens, die angefügt werden
+	 * @param iterator
 	 */
-	protected void joinAbbrevs(String string, int index, ListIterator<Token> iterator) {
-		//zum Anfang der Kette
-		for (int i = 0; i < index; i++)
-			iterator.previous();
-		
-		Token first = iterator.next();
-		//nach mal von vorn
-		for (int i = 0; i < index-1; i++) {
+	protected void joinAbbrevs(Token first, int count, ListIterator<Token> iterator) {
+		for (int i = 0; i < count; i++) {
 			first.simpleJoin(iterator.next()); //hinzufügen zum ersten Element
 			iterator.remove(); //dieses Element aus der Liste nehmen
 		}
@@ -48,6 +48,22 @@ public abstract class AbstractLangSubTagger implements SubTagger {
 		}
 	}
 
+	/**Gibt true zurück, falls die geladenen Daten des SubTaggers mit anderen Handlern geteilt
+	 * werden dürfen - nicht im Train-Modus, da der Trainer die Daten erweitert
+	 * @return
+	 */
+	protected boolean shareData() {
+		return handler.getMode() != TestElHandler.MODE_TRAIN;
+	}
+	
+	/**Schlüssel für gemeinsam genutzte Daten einer Datei
+	 * @param file
+	 * @return
+	 */
+	protected String getShareKey(File file) {
+		return getClass().getName() + ":" + file.getAbsolutePath();
+	}
+
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.general.SubTagger#setHandler(de.beimax.testel.TestElHandler)
 	 */
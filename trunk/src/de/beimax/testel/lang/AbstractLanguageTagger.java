@@ -24,8 +24,6 @@
 package de.beimax.testel.lang;
 
 import java.util.LinkedList;
-import java.util.ListIterator;
-import java.util.logging.Level;
 
 import de.beimax.testel.TestElHandler;
 import de.beimax.testel.config.Config;
@@ -33,8 +31,8 @@ import de.beimax.testel.exception.TestelConfigException;
 import de.beimax.testel.exception.TestelException;
 import de.beimax.testel.exception.TestelTaggerException;
 import de.beimax.testel.general.SubTagger;
+import de.beimax.testel.general.SubTaggerDispatcher;
 import de.beimax.testel.general.Tagger;
-import de.beimax.testel.token.Token;
 import de.beimax.testel.token.TokenList;
 
 /**
@@ -159,20 +157,9 @@ public abstract class AbstractLanguageTagger implements Tagger {
 				}
 			}
 		
-		//Alle Subtagger bereit - jetzt Liste durchlaufen
-		ListIterator<Token> iterator = list.listIterator();
-		
-		while (iterator.hasNext()) {
-			Token tok = iterator.next();
-			if (logger.getLevel() == Level.FINEST)
-				logger.finest("Checke: " + tok.toString());
-			//Subtaggers durchlaufen
-			inner:
-			for (int i = 0; i < subTaggers.length; i++)
-				if (subTaggers[i] != null && subTaggers[i].subTag(tok, iterator)) break inner;
-		}
-
-		return list;
+		//Alle Subtagger bereit - jetzt Liste durchlaufen, jedes Token nur an die passenden
+		//SubTagger
+		return new SubTaggerDispatcher(subTaggers).run(list);
 	}
 
 }
@@ -29,6 +29,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.ListIterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -38,6 +39,7 @@ import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 import de.beimax.testel.TestElHandler;
 import de.beimax.testel.exception.TestelException;
 import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.general.SelectiveSubTagger;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.impl.NumberToken;
 import de.beimax.testel.token.impl.SomeToken;
@@ -47,7 +49,7 @@ import de.beimax.testel.token.impl.SomeToken;
  * @author mkalus
  *
  */
-public abstract class AbstractNumberParser extends AbstractLangSubTagger {
+public abstract class AbstractNumberParser extends AbstractLangSubTagger implements SelectiveSubTagger {
 	//Logger
 	protected static final Logger logger = Logger.getLogger(AbstractNumberParser.class.getName());
 
@@ -55,6 +57,11 @@ public abstract class AbstractNumberParser extends AbstractLangSubTagger {
 	 *Mapping
 	 */
 	protected HashMap<String, Integer> map;
+	
+	/**
+	 * Anfangszeichen der Zahlennamen in der Map
+	 */
+	protected HashSet<Character> firstChars;
 
 	/**
 	 * protected Konstruktor... Singleton :-)
@@ -91,6 +98,7 @@ public abstract class AbstractNumberParser extends AbstractLangSubTagger {
 	protected void createNumberMap() throws TestelTaggerException {
 		//neue Map erstellen
 		map = new HashMap<String, Integer>();
+		firstChars = new HashSet<Character>();
 		
 		//Abkürzungsdatei laden
 		BufferedReader reader;
@@ -114,7 +122,9 @@ public abstract class AbstractNumberParser extends AbstractLangSubTagger {
 						throw new TestelTaggerException("Konnte Wert von " + line + " nicht in Zahl umwandeln!");
 					}
 					
-					map.put(keyval[0].trim().toLowerCase(), val);
+					String key = keyval[0].trim().toLowerCase();
+					map.put(key, val);
+					if (key.length() > 0) firstChars.add(key.charAt(0));
 				}
 		} catch (IOException e) {
 			throw new TestelTaggerException("Fehler beim Lesen von " + file);
@@ -137,6 +147,15 @@ public abstract class AbstractNumberParser extends AbstractLangSubTagger {
 		return new File(getLangDir(), "numerics.txt");
 	}
 
+	/**Der Parser ist ein von allen Handlern geteiltes Singleton - der Handler wird nur beim
+	 * Erzeugen zum Laden der Nummerndatei gebraucht und daher hier nicht überschrieben.
+	 * @see de.beimax.testel.lang.AbstractLangSubTagger#setHandler(de.beimax.testel.TestElHandler)
+	 */
+	@Override
+	public void setHandler(TestElHandler handler) {
+		if (this.handler == null) this.handler = handler;
+	}
+
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.general.SubTagger#init()
 	 */
@@ -144,6 +163,32 @@ public abstract class AbstractNumberParser extends AbstractLangSubTagger {
 		//leer!
 	}
 
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#getTokenKinds()
+	 */
+	public Class<?>[] getTokenKinds() {
+		return new Class<?>[] { SomeToken.class };
+	}
+
+	/**Standardmäßig werden alle Anfangszeichen akzeptiert, da parseNumeric von der
+	 * Implementation abhängt - Implementationen sollten das einschränken.
+	 * @see de.beimax.testel.general.SelectiveSubTagger#acceptsFirstChar(char)
+	 */
+	public boolean acceptsFirstChar(char c) {
+		return true;
+	}
+
+	/**Beginnt ein Zahlenname der Map (in Kleinbuchstaben) mit diesem Zeichen?
+	 * @param c
+	 * @return
+	 */
+	protected boolean isNumberNameStart(char c) {
+		//Surrogate lassen sich einzeln nicht umwandeln
+		if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) return true;
+		return firstChars.contains(Character.toLowerCase(c)) ||
+			firstChars.contains(String.valueOf(c).toLowerCase().charAt(0));
+	}
+
 	public boolean subTag(Token currentToken, ListIterator<Token> iterator) throws TestelTaggerException {
 		if (currentToken == null) return false; //am Ende der Liste
 		
@@ -25,6 +25,7 @@ package de.beimax.testel.lang;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.logging.Logger;
 
 import de.beimax.testel.TestElHandler;
@@ -40,14 +41,20 @@ import de.beimax.testel.util.IOHelper;
 public abstract class LangFactory {
 	//Logger
 	static final Logger logger = Logger.getLogger(LangFactory.class.getName());
+	
+	/**
+	 * Schon erzeugte Fabriken - diese sind zustandslos und werden von allen Handlern geteilt
+	 */
+	private static final HashMap<String, LangFactory> factories = new HashMap<String, LangFactory>();
 
 	/**Statische Methode zum Erzeugen einer spezifischen Fabrik-Instanz
 	 * @param language Sprachkürzel, z.B. "de"
 	 * @return
 	 * @throws TestelException
 	 */
-	public static LangFactory buildFactory(String language) throws TestelException {
-		LangFactory back = null;
+	public static synchronized LangFactory buildFactory(String language) throws TestelException {
+		LangFactory back = factories.get(language);
+		if (back != null) return back; //schon erzeugt
 		try {
 			Class langParserClass = Class.forName("de.beimax.testel.lang." + language + ".LangFactoryImpl");
 			Object langParserObject = langParserClass.newInstance();
@@ -63,6 +70,7 @@ public abstract class LangFactory {
 		
 		//Sprache einstellen
 		back.setLang(language);
+		factories.put(language, back);
 
 		logger.info("Sprach-Fabrik " + back.getClass() + " erzeugt");
 		return back;
@@ -0,0 +1,198 @@
+/**
+ * Datei: LexiconTrie.java
+ * Paket: de.beimax.testel.lang
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.lang;
+
+/**Zeichenweiser Präfixbaum für Lexika der SubTagger (Abkürzungen, bedeutungstragende Wörter).
+ * Die SubTagger laufen den Baum beim Weiterlesen der Tokens Zeichen für Zeichen ab und finden
+ * so in einem Durchlauf den längsten Eintrag, ohne Zeichenketten zusammenzusetzen. Die Kinder
+ * eines Knotens liegen sortiert in einem Array, damit auch Lexika mit sehr vielen Einträgen
+ * klein bleiben. Nach dem Aufbau wird der Baum nur noch gelesen und kann deshalb von mehreren
+ * Handlern gemeinsam genutzt werden.
+ * @author mkalus
+ *
+ */
+public class LexiconTrie<V> {
+	/**
+	 * Wurzel des Baums
+	 */
+	private final Node<V> root = new Node<V>();
+	
+	/**
+	 * Anzahl der Einträge
+	 */
+	private int size = 0;
+
+	/**Fügt einen Eintrag hinzu - existiert der Schlüssel schon, bleibt der erste Wert erhalten
+	 * @param key
+	 * @param value darf nicht null sein
+	 * @return false, falls der Schlüssel schon vorhanden war
+	 */
+	public boolean put(CharSequence key, V value) {
+		Node<V> node = root;
+		for (int i = 0; i < key.length(); i++)
+			node = node.add(key.charAt(i));
+		if (node.value != null) return false;
+		node.value = value;
+		size++;
+		return true;
+	}
+	
+	/**Gibt den Wert zu einem Schlüssel oder null zurück
+	 * @param key
+	 * @return
+	 */
+	public V get(CharSequence key) {
+		Node<V> node = root.next(key);
+		return node == null?null:node.value;
+	}
+	
+	/**Ist der Schlüssel enthalten?
+	 * @param key
+	 * @return
+	 */
+	public boolean contains(CharSequence key) {
+		return get(key) != null;
+	}
+	
+	/**Gibt die Wurzel zurück, um den Baum schrittweise abzulaufen
+	 * @return
+	 */
+	public Node<V> getRoot() {
+		return root;
+	}
+
+	/**Getter für size
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Verkleinert die Arrays aller Knoten auf die tatsächliche Größe - nach dem Laden aufrufen
+	 */
+	public void trimToSize() {
+		root.trimToSize();
+	}
+
+	/**Knoten des Baums
+	 * @author mkalus
+	 *
+	 */
+	public static class Node<V> {
+		private char[] keys;
+		private Node<V>[] children;
+		private int count = 0;
+		private V value;
+		
+		/**Geht ein Zeichen weiter
+		 * @param c
+		 * @return Kindknoten oder null
+		 */
+		public Node<V> next(char c) {
+			int pos = find(c);
+			return pos < 0?null:children[pos];
+		}
+		
+		/**Geht eine ganze Zeichenkette weiter
+		 * @param s
+		 * @return Knoten oder null
+		 */
+		public Node<V> next(CharSequence s) {
+			Node<V> node = this;
+			for (int i = 0; i < s.length() && node != null; i++)
+				node = node.next(s.charAt(i));
+			return node;
+		}
+
+		/**Gibt den Wert zurück, falls hier ein Eintrag endet - sonst null
+		 * @return
+		 */
+		public V getValue() {
+			return value;
+		}
+		
+		/**Binäre Suche nach einem Zeichen
+		 * @param c
+		 * @return Position oder -(Einfügeposition + 1)
+		 */
+		private int find(char c) {
+			int low = 0, high = count - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (keys[mid] < c) low = mid + 1;
+				else if (keys[mid] > c) high = mid - 1;
+				else return mid;
+			}
+			return -(low + 1);
+		}
+		
+		/**Gibt den Kindknoten zu einem Zeichen zurück und legt ihn ggf. an
+		 * @param c
+		 * @return
+		 */
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private Node<V> add(char c) {
+			int pos = find(c);
+			if (pos >= 0) return children[pos];
+			pos = -(pos + 1);
+			
+			if (keys == null) {
+				keys = new char[2];
+				children = new Node[2];
+			} else if (count == keys.length) {
+				char[] newkeys = new char[count * 2];
+				Node<V>[] newchildren = new Node[count * 2];
+				System.arraycopy(keys, 0, newkeys, 0, count);
+				System.arraycopy(children, 0, newchildren, 0, count);
+				keys = newkeys;
+				children = newchildren;
+			}
+			System.arraycopy(keys, pos, keys, pos + 1, count - pos);
+			System.arraycopy(children, pos, children, pos + 1, count - pos);
+			Node<V> child = new Node<V>();
+			keys[pos] = c;
+			children[pos] = child;
+			count++;
+			return child;
+		}
+		
+		/**
+		 * Arrays verkleinern (rekursiv)
+		 */
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private void trimToSize() {
+			if (keys == null) return;
+			if (count < keys.length) {
+				char[] newkeys = new char[count];
+				Node<V>[] newchildren = new Node[count];
+				System.arraycopy(keys, 0, newkeys, 0, count);
+				System.arraycopy(children, 0, newchildren, 0, count);
+				keys = newkeys;
+				children = newchildren;
+			}
+			for (int i = 0; i < count; i++) children[i].trimToSize();
+		}
+	}
+}
@@ -33,9 +33,10 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.StringTokenizer;
-import java.util.TreeMap;
 
 import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.general.ModelCache;
+import de.beimax.testel.general.SelectiveSubTagger;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.impl.SomeToken;
 import de.beimax.testel.token.impl.TextToken;
@@ -44,8 +45,13 @@ import de.beimax.testel.token.impl.TextToken;
  * @author mkalus
  *
  */
-public class MeaningfulWordsSubTagger extends AbstractLangSubTagger {
-	private PhraseListMap map; //PhraseListMap ist eine private Klasse (s.u.)
+public class MeaningfulWordsSubTagger extends AbstractLangSubTagger implements SelectiveSubTagger {
+	/**
+	 * Trennzeichen zwischen den Wörtern einer Phrase im Lexikon
+	 */
+	protected static final char SEPARATOR = ' ';
+	
+	private LexiconTrie<String> lexicon; //Phrasen (Wörter durch SEPARATOR getrennt) nach Typ
 	private Token lastToken; //zeiger auf letztes Token, das überprüft wurde
 							//verhindert Endlosschleifen bei nicht-Matches
 	
@@ -54,11 +60,15 @@ public class MeaningfulWordsSubTagger extends AbstractLangSubTagger {
 	 */
 	public void init() throws TestelTaggerException {
 		logger.info(getType() + " initialisiert");
-		map = new PhraseListMap();
+		lastToken = null;
+		File file = getMeaningfulWordFile();
+		
+		//schon geladen?
+		if (shareData() && (lexicon = ModelCache.getSharedObject(getShareKey(file))) != null) return;
+		lexicon = new LexiconTrie<String>();
 
 		//Lade punctuation.txt aus Sprachabhängigem Hintergrund
 		BufferedReader reader;
-		File file = getMeaningfulWordFile();
 		try {
 			reader = new BufferedReader(new FileReader(file));
 		} catch (FileNotFoundException e) {
@@ -69,13 +79,16 @@ public class MeaningfulWordsSubTagger extends AbstractLangSubTagger {
 		try {
 			while ((line = reader.readLine()) != null)
 				if (!line.trim().equals("") && line.trim().charAt(0) != '#') { //Kommentarzeilen
-					//Instanz der privaten Klasse Phrase (s.u.) in die Map einfügen
-					map.add(new Phrase(line));
+					//Instanz der privaten Klasse Phrase (s.u.) ins Lexikon einfügen - bei
+					//doppelten Phrasen gilt die erste
+					Phrase phrase = new Phrase(line);
+					lexicon.put(phrase.getPhrase(), phrase.getType());
 				}
 		} catch (IOException e) {
 			throw new TestelTaggerException("Fehler beim Bearbeiten der Bedeutungstragende-Wörter-Datei " + file + ":\n" + e.getLocalizedMessage());
 		}
-
+		lexicon.trimToSize();
+		if (shareData()) ModelCache.putSharedObject(getShareKey(file), lexicon);
 	}
 	
 	/**Liest die Datei aus und gibt eine einfache Schlüssel=Wert-Liste zurück
@@ -116,6 +129,20 @@ public class MeaningfulWordsSubTagger extends AbstractLangSubTagger {
 		return new File(getLangDir(), "meaningfulwords.txt");
 	}
 
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#getTokenKinds()
+	 */
+	public Class<?>[] getTokenKinds() {
+		return new Class<?>[] { SomeToken.class };
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#acceptsFirstChar(char)
+	 */
+	public boolean acceptsFirstChar(char c) {
+		return lexicon.getRoot().next(c) != null;
+	}
+
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.general.SubTagger#subTag(de.beimax.testel.token.Token, de.beimax.testel.token.TokenList)
 	 */
@@ -123,8 +150,66 @@ public class MeaningfulWordsSubTagger extends AbstractLangSubTagger {
 			throws TestelTaggerException {
 		//dieses Token schon gechecked worden?
 		if (lastToken == currentToken) return false;
-		//im Prinzip lassen wir die Map die Hauptarbeit machen
-		return map.checkToken(currentToken, iterator);
+		if (currentToken == null) return false; //am Ende der Liste
+		
+		//nur sometokens berücksichtigen
+		if (!(currentToken instanceof SomeToken)) return false;
+		
+		//beginnt eine Phrase mit diesem Wort?
+		LexiconTrie.Node<String> node = nextWord(lexicon.getRoot(), currentToken.getName());
+		if (node == null) return false;
+		lastToken = currentToken; //Zeiger auf diesen Token setzen
+
+		//längste Phrase in einem Durchlauf suchen
+		String type = node.getValue();
+		int words = 1, longest = type != null?1:0;
+		int read = 0; //gelesene Tokens hinter currentToken
+		
+		while (iterator.hasNext()) {
+			node = node.next(SEPARATOR);
+			if (node == null) break;
+			Token next = iterator.next();
+			read++;
+			if (!(next instanceof SomeToken)) break;
+			node = nextWord(node, next.getName());
+			if (node == null) break;
+			words++;
+			if (node.getValue() != null) {
+				longest = words;
+				type = node.getValue();
+			}
+		}
+		
+		//zurück zum currentToken
+		for (; read > 0; read--) iterator.previous();
+		if (longest == 0) return false;
+		
+		//Wörter der Phrase an das erste Token anfügen
+		for (int i = 1; i < longest; i++) {
+			currentToken.simpleJoin(iterator.next(), true);
+			iterator.remove();
+		}
+		
+		//jetzt ersetzen
+		iterator.previous();
+		iterator.next();
+		Token tok = new TextToken(currentToken.getName(), type);
+		tok.initTextPosition(currentToken.getTextPosition());
+		iterator.set(tok);
+		
+		if (longest == 1) logger.finer("Einzelnes Token " + tok.getName() + " zum bedeutungstragenden Wort erhoben");
+		else logger.finer("Phrase " + tok.getName() + " zum bedeutungstragenden Wort erhoben");
+		return true;
+	}
+	
+	/**Geht im Lexikon ein Wort weiter - Wörter mit dem Trennzeichen können nicht passen
+	 * @param node
+	 * @param word
+	 * @return Knoten oder null
+	 */
+	protected static LexiconTrie.Node<String> nextWord(LexiconTrie.Node<String> node, String word) {
+		if (word == null || word.indexOf(SEPARATOR) != -1) return null;
+		return node.next(word);
 	}
 
 	/* (Kein Javadoc)
@@ -203,151 +288,5 @@ public class MeaningfulWordsSubTagger extends AbstractLangSubTagger {
 		public String getFirst() {
 			return tokenlist.getFirst();
 		}
-
-		/**prüft, ob die Liste mit dem weiteren Verlauf übereinstimmt, bzw. stellt die
-		 * Elemente dann zusammen
-		 * @param currentToken
-		 * @param iterator
-		 * @return
-		 */
-		public boolean checkToken(Token currentToken, ListIterator<Token> iterator) {
-			//einfacher Fall: Liste hat nur ein Element
-			if (tokenlist.size() == 1) {
-				String name = currentToken.getName();
-				if (!name.equals(getFirst())) return false;
-				Token tok = new TextToken(name, getType());
-				tok.initTextPosition(currentToken.getTextPosition());
-				iterator.set(tok);
-				logger.finer("Einzelnes Token " + name + " zum bedeutungstragenden Wort erhoben");
-				return true;
-			}
-			
-			//check der ganzen Liste
-			if (!iterator.hasNext()) return false; //Ende der Liste
-			
-			int counter = 1; //Zähler, falls es nicht klappt...
-			Token next = currentToken; //weiterlaufen
-			
-			Iterator<String> it = tokenlist.iterator();
-			String elem = null;
-			String name = null;
-			
-			while (iterator.hasNext() && it.hasNext()) {
-				if (!(next instanceof SomeToken)) break;
-				name = next.getName();
-				elem = it.next();
-				if (!name.equals(elem)) break; //Schleife unterbrechen
-				//ansonsten weiter
-				next = iterator.next();
-				counter++;
-			}
-			
-			//ganze Liste durchlaufen? Dann ist es ein Treffer!
-			if (!it.hasNext() && name.equals(elem)) {
-				int max = counter-1;
-				//zum currentToken zurück
-				while (counter > 1) {
-					next = iterator.previous();
-					counter--;
-				}
-				//noch einmal vorwärts laufen
-				while (max > 1) {
-					next = iterator.next();
-					currentToken.simpleJoin(next, true);
-					iterator.remove();
-					max--;
-				}
-				//jetzt ersetzen
-				next = iterator.previous();
-				Token tok = new TextToken(next.getName(), getType());
-				tok.initTextPosition(next.getTextPosition());
-				iterator.set(tok);
-				return true;
-			}
-			
-			//zurück in der Liste
-			while (counter > 0) {
-				next = iterator.previous();
-				if (next == currentToken) break;
-				counter--;
-			}
-			
-			return false;
-		}
-	}
-	
-	/**Enthält eine Liste mit Phrasen gleicher Anfänge
-	 * @author mkalus
-	 *
-	 */
-	protected class PhraseList {
-		private LinkedList<Phrase> phraseList = new LinkedList<Phrase>();
-		
-		/**Fügt eine Phrase zur Liste hinzu
-		 * @param phrase
-		 */
-		public void add(Phrase phrase) {
-			phraseList.add(phrase);
-		}
-		
-		/**Geht die Liste durch und schaut, ob die weitere Liste mit einer
-		 * der Phrasen übereinstimmen
-		 * @param currentToken
-		 * @param iterator
-		 * @return
-		 */
-		public boolean checkToken(Token currentToken, ListIterator<Token> iterator) {
-			Iterator<Phrase> it = phraseList.iterator();
-			
-			while (it.hasNext()) {
-				if (it.next().checkToken(currentToken, iterator)) return true;
-			}
-			
-			return false;
-		}
-	}
-	
-	/**Enthält eine Map mit PhrasenListen
-	 * @author mkalus
-	 *
-	 */
-	protected class PhraseListMap {
-		private TreeMap<String, PhraseList> phraseMap = new TreeMap<String, PhraseList>();
-		
-		/**Fügt eine Phrase zur Liste hinzu
-		 * @param phrase
-		 */
-		public void add(Phrase phrase) {
-			String key = phrase.getFirst();
-			//schon ein Eintrag vorhanden?
-			PhraseList pl = phraseMap.get(key);
-			if (pl == null) { //neue Liste einfügen
-				pl = new PhraseList();
-				pl.add(phrase);
-				phraseMap.put(key, pl);
-			} else pl.add(phrase);
-		}
-		
-		/**parst ein Element der Liste und überprüft, ob die Tokens vorkommen können
-		 * @param currentToken
-		 * @param iterator
-		 */
-		public boolean checkToken(Token currentToken, ListIterator<Token> iterator) {
-			if (currentToken == null) return false; //am Ende der Liste
-			
-			//nur sometokens berücksichtigen
-			if (!(currentToken instanceof SomeToken)) return false;
-
-			//Namen checken
-			String name = new String(currentToken.getName());
-			PhraseList pl = phraseMap.get(name); //in der Map nachsehen...
-			//ersten Eintrag gefunden - jetzt Liste befragen
-			if (pl != null) {
-				lastToken = currentToken; //Zeiger auf diesen Token setzen
-				return pl.checkToken(currentToken, iterator);
-			}
-			
-			return false;
-		}
 	}
 }
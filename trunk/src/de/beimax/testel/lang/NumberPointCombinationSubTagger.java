@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.ListIterator;
 
 import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.general.SelectiveSubTagger;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.impl.SomeToken;
 import de.beimax.testel.token.impl.PunctuationToken;
@@ -36,10 +37,13 @@ import de.beimax.testel.token.impl.NumberToken;
  * @author mkalus
  *
  */
-public class NumberPointCombinationSubTagger extends AbstractLangSubTagger {
+public class NumberPointCombinationSubTagger extends AbstractLangSubTagger implements SelectiveSubTagger {
 	//geklaut vom PunctuationSubTaggerUTF
 	private HashMap<Character, String> punctuation;
 	
+	//Nummernparser der aktuellen Sprache
+	private AbstractNumberParser numParser;
+	
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.general.SubTagger#init()
 	 */
@@ -55,6 +59,28 @@ public class NumberPointCombinationSubTagger extends AbstractLangSubTagger {
 		} catch (Exception e) { //Fange alle Fehler ab und nehme Default... ist robuster
 			punctuation = new HashMap<Character, String>();
 		}
+		
+		//Nummernparser holen
+		try {
+			numParser = handler.getLangFactory().createNumberParser(handler);
+		} catch (Exception e) {
+			logger.warning("Konnte NumberParser nicht erstellen! Nummern werden nicht geparst!");
+			numParser = null;
+		}
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#getTokenKinds()
+	 */
+	public Class<?>[] getTokenKinds() {
+		return new Class<?>[] { SomeToken.class };
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#acceptsFirstChar(char)
+	 */
+	public boolean acceptsFirstChar(char c) {
+		return c == '.' || (c >= '0' && c <= '9'); //nur Zahlen und Punkte
 	}
 
 	/* (Kein Javadoc)
@@ -101,7 +127,7 @@ public class NumberPointCombinationSubTagger extends AbstractLangSubTagger {
 			//Token-Splitten
 			Token nexttok = currentToken.split(pos);
 			//ersetze erstes Token
-			Token newtok = new NumberToken(name.substring(0, pos));
+			Token newtok = new NumberToken(name.substring(0, pos), numParser);
 			newtok.initTextPosition(currentToken.getTextPosition());
 			iterator.set(newtok);
 			//nexttok anfügen 
@@ -27,12 +27,14 @@ import java.io.File;
 import java.util.HashMap;
 
 import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.general.SelectiveSubTagger;
+import de.beimax.testel.token.impl.SomeToken;
 
 /**Abstrakte Klasse, um SatzzeichenSubTagger transparent an den Trainer übergeben zu können.
  * @author mkalus
  *
  */
-public abstract class PunctuationSubTagger extends AbstractLangSubTagger {
+public abstract class PunctuationSubTagger extends AbstractLangSubTagger implements SelectiveSubTagger {
 	/**Gibt die AbkürzungsMap heraus - wird vom Trainer zur Überprüfung von Doubletten
 	 * benötigt
 	 * @return
@@ -44,4 +46,18 @@ public abstract class PunctuationSubTagger extends AbstractLangSubTagger {
 	 * @throws TestelTaggerException
 	 */
 	public abstract File getPunctFile() throws TestelTaggerException;
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#getTokenKinds()
+	 */
+	public Class<?>[] getTokenKinds() {
+		return new Class<?>[] { SomeToken.class };
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#acceptsFirstChar(char)
+	 */
+	public boolean acceptsFirstChar(char c) {
+		return true; //Satzzeichen am Ende des Tokens werden auch abgetrennt
+	}
 }
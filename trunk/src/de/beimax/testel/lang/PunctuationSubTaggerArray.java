@@ -33,6 +33,7 @@ import java.util.ListIterator;
 import java.util.logging.Level;
 
 import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.general.ModelCache;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.impl.SomeToken;
 import de.beimax.testel.token.impl.PunctuationToken;
@@ -52,11 +53,14 @@ public class PunctuationSubTaggerArray extends PunctuationSubTagger {
 	 */
 	public void init() throws TestelTaggerException {
 		logger.info(getType() + " initialisiert");
+		File file = getPunctFile();
+		
+		//schon geladen?
+		if (shareData() && (punctuation = ModelCache.<String[]>getSharedObject(getShareKey(file))) != null) return;
 		punctuation = new String[256];
 		
 		//Lade punctuation.txt aus Sprachabhängigem Hintergrund
 		BufferedReader reader;
-		File file = getPunctFile();
 		try {
 			reader = new BufferedReader(new FileReader(file));
 		} catch (FileNotFoundException e) {
@@ -75,6 +79,7 @@ public class PunctuationSubTaggerArray extends PunctuationSubTagger {
 			throw new TestelTaggerException("Fehler beim Bearbeiten der Satzzeichendatei " + file + ":\n" + e.getLocalizedMessage());
 		}
 		logger.finer("Punktuationsdatei geladen.");
+		if (shareData()) ModelCache.putSharedObject(getShareKey(file), punctuation);
 	}
 	
 	/* (Kein Javadoc)
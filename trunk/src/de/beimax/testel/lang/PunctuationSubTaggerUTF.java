@@ -33,6 +33,7 @@ import java.util.ListIterator;
 import java.util.logging.Level;
 
 import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.general.ModelCache;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.impl.SomeToken;
 import de.beimax.testel.token.impl.PunctuationToken;
@@ -53,11 +54,14 @@ public class PunctuationSubTaggerUTF  extends PunctuationSubTagger {
 	 */
 	public void init() throws TestelTaggerException {
 		logger.info(getType() + " initialisiert");
+		File file = getPunctFile();
+		
+		//schon geladen?
+		if (shareData() && (punctuation = ModelCache.getSharedObject(getShareKey(file))) != null) return;
 		punctuation = new HashMap<Character, String>();
 		
 		//Lade punctuation.txt aus Sprachabhängigem Hintergrund
 		BufferedReader reader;
-		File file = new File(getLangDir(), "punctuation.txt");
 		try {
 			reader = new BufferedReader(new FileReader(file));
 		} catch (FileNotFoundException e) {
@@ -76,6 +80,7 @@ public class PunctuationSubTaggerUTF  extends PunctuationSubTagger {
 			throw new TestelTaggerException("Fehler beim Bearbeiten der Satzzeichendatei " + file + ":\n" + e.getLocalizedMessage());
 		}
 		logger.finer("Punktuationsdatei geladen.");
+		if (shareData()) ModelCache.putSharedObject(getShareKey(file), punctuation);
 	}
 	
 	/* (Kein Javadoc)
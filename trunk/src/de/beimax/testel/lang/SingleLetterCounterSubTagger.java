@@ -27,6 +27,7 @@ import java.util.ListIterator;
 import java.util.logging.Level;
 
 import de.beimax.testel.exception.TestelTaggerException;
+import de.beimax.testel.general.SelectiveSubTagger;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.impl.PunctuationToken;
 import de.beimax.testel.token.impl.SomeToken;
@@ -36,7 +37,7 @@ import de.beimax.testel.token.impl.NumberToken;
  * @author mkalus
  *
  */
-public class SingleLetterCounterSubTagger extends AbstractLangSubTagger {
+public class SingleLetterCounterSubTagger extends AbstractLangSubTagger implements SelectiveSubTagger {
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.general.SubTagger#init()
 	 */
@@ -45,6 +46,20 @@ public class SingleLetterCounterSubTagger extends AbstractLangSubTagger {
 		//sonst nix machen
 	}
 
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#getTokenKinds()
+	 */
+	public Class<?>[] getTokenKinds() {
+		return new Class<?>[] { SomeToken.class };
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.general.SelectiveSubTagger#acceptsFirstChar(char)
+	 */
+	public boolean acceptsFirstChar(char c) {
+		return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'); //nur Buchstaben
+	}
+
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.general.SubTagger#subTag(de.beimax.testel.token.Token, de.beimax.testel.token.TokenList)
 	 */
@@ -39,7 +39,7 @@ public class GermanNumberParser extends AbstractNumberParser {
 	 * @return
 	 * @throws Exception
 	 */
-	public static AbstractNumberParser getInstance(TestElHandler handler) throws Exception {
+	public static synchronized AbstractNumberParser getInstance(TestElHandler handler) throws Exception {
 		//sprachspezifische Klasse zum Parsen von Nummern aufrufen, bzw. erzeugen
 		if (singleton == null && !createerr) {
 			try {
@@ -98,6 +98,19 @@ public class GermanNumberParser extends AbstractNumberParser {
 		throw new Exception();
 	}
 
+	/**Ganzzahlen (auch mit Vorzeichen), Gleitkommazahlen mit Komma und Zahlennamen
+	 * @see de.beimax.testel.lang.AbstractNumberParser#acceptsFirstChar(char)
+	 */
+	@Override
+	public boolean acceptsFirstChar(char c) {
+		if (Character.digit(c, 10) >= 0) return true;
+		switch (c) {
+		case '+': case '-': case '.': case ',': return true;
+		}
+		if (c <= ' ') return true; //Double.parseDouble entfernt Leerzeichen
+		return isNumberNameStart(c);
+	}
+
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.general.SubTagger#getName()
 	 */
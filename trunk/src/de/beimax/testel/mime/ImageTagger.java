@@ -193,7 +193,10 @@ public class ImageTagger implements Tagger {
 	public TokenList tag(TokenList list) throws TestelTaggerException {
 		logger.info("Vereinfache Bilder mit dem Bild-Tagger");
 		try {
-			loadVars();
+			//statische Daten werden von allen Handlern geteilt
+			synchronized (ImageTagger.class) {
+				loadVars();
+			}
 		} catch (TestelException e1) {
 			throw new TestelTaggerException("Konnte für den Bild-Tagger keine Daten laden:\n" + e1.getLocalizedMessage());
 		}
@@ -25,6 +25,7 @@ package de.beimax.testel.mime;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.logging.Logger;
 
 import de.beimax.testel.TestElHandler;
@@ -42,13 +43,19 @@ import de.beimax.testel.util.IOHelper;
 public abstract class MimeFactory {
 	//Logger
 	static final Logger logger = Logger.getLogger(MimeFactory.class.getName());
+	
+	/**
+	 * Schon erzeugte Fabriken - diese sind zustandslos und werden von allen Handlern geteilt
+	 */
+	private static final HashMap<String, MimeFactory> factories = new HashMap<String, MimeFactory>();
 
 	/**Statische Methode zum Erzeugen einer spezifischen Fabrik-Instanz
 	 * @param mimetype Mime-Typ (kurz) z.B. (text/html)
 	 * @return
 	 */
-	public static MimeFactory buildFactory(String mimetype) throws TestelException {
-		MimeFactory back = null;
+	public static synchronized MimeFactory buildFactory(String mimetype) throws TestelException {
+		MimeFactory back = factories.get(mimetype);
+		if (back != null) return back; //schon erzeugt
 		String mimefactoryimpl = Config.getConfig("mimefactory_" + mimetype);
 		if (mimefactoryimpl == null) throw new TestelException("Kein Config-Eintrag für Mime-Type " + mimetype + " gefunden - existiert ein Eintrag mimefactory_" + mimetype + " in den Properties?");
 		try {
@@ -64,6 +71,7 @@ public abstract class MimeFactory {
 		}
 		if (back == null) throw new TestelException("Nach erfolgreicher Erzeugung von " + mimefactoryimpl + " ist das Objekt null - schwerer Fehler!");
 		back.setMimeType(mimetype);
+		factories.put(mimetype, back);
 
 		logger.info("Sprach-Fabrik " + back.getClass() + " erzeugt");
 		return back;
@@ -0,0 +1,936 @@
+/**
+ * Datei: HTMLLightNormalizer.java
+ * Paket: de.beimax.testel.mime.html
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.mime.html;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import de.beimax.testel.TestElHandler;
+import de.beimax.testel.mime.Normalizer;
+import de.beimax.testel.mime.html.util.StyleResolver;
+
+/**Leichtgewichtiger Normalisierer für HTML als Alternative zu Lobo und Tidy. Das Dokument
+ * wird in einem einzigen Durchgang gelesen und dabei gleich in die Form gebracht, die auch
+ * der HTMLTransformer (DocumentTraverser) liefert: Tags werden ausbalanciert, die vom
+ * HTMLStatistician benötigten Schrifteigenschaften werden berechnet und als style-Attribut
+ * an jedes Element geschrieben.
+ * 
+ * Berechnet werden font-family, font-size, font-weight, font-style und text-decoration aus
+ * den Vorgaben für die HTML-Elemente, den Attributen von font, den Regeln aus style-Elementen
+ * und verlinkten Stylesheets (s. StyleResolver) und dem style-Attribut, vererbt über die
+ * offenen Elemente. Stylesheets gelten für die Elemente, die nach ihnen im Dokument stehen.
+ * JavaScript wird nicht ausgeführt und Bilder werden nicht geladen - Höhe und Breite von
+ * Bildern kommen nur aus deren Attributen.
+ * 
+ * Einschalten mit HTMLnormalizer=light in der Konfiguration.
+ * @author mkalus
+ *
+ */
+public class HTMLLightNormalizer implements Normalizer {
+	TestElHandler handler;
+
+	/**
+	 * Elemente ohne Inhalt
+	 */
+	private static final HashSet<String> voidTags = createSet("area", "base", "basefont",
+			"br", "col", "embed", "frame", "hr", "img", "input", "isindex", "keygen", "link",
+			"meta", "param", "source", "track", "wbr");
+
+	/**
+	 * keine Schließtags hier (wie im DocumentTraverser)
+	 */
+	private static final HashSet<String> noClosingTags = createSet("br", "img", "hr");
+
+	/**
+	 * Elemente, die keine Attribute haben dürfen
+	 */
+	private static final HashSet<String> noAttribs = createSet("br");
+
+	/**
+	 * Elemente, die samt Inhalt übersprungen werden
+	 */
+	private static final HashSet<String> ignoreTags = createSet("script", "style");
+
+	/**
+	 * Elemente, die nur in den Kopf gehören und nicht ausgegeben werden
+	 */
+	private static final HashSet<String> headTags = createSet("base", "basefont", "link", "meta");
+
+	/**
+	 * Elemente, deren Inhalt nur Text ist
+	 */
+	private static final HashSet<String> rawTextTags = createSet("textarea", "xmp");
+
+	/**
+	 * Über diese Elemente hinaus werden keine offenen Elemente durch Schließtags geschlossen
+	 */
+	private static final HashSet<String> scopeTags = createSet("table", "td", "th", "caption",
+			"object", "applet", "marquee");
+
+	/**
+	 * Teile von Tabellen - diese schließen alles bis zur nächsten Tabelle
+	 */
+	private static final HashSet<String> tableTags = createSet("table", "caption", "thead",
+			"tbody", "tfoot", "tr", "td", "th");
+
+	/**
+	 * Implizit geschlossene Elemente nach dem öffnenden Tag
+	 */
+	private static final HashMap<String, CloseRule> closeRules = new HashMap<String, CloseRule>();
+
+	/**
+	 * Schriftgrößen xx-small bis xxx-large bezogen auf medium = 14 (wie in Lobo)
+	 */
+	private static final String[] SIZEKEYWORDS = {"xx-small", "x-small", "small", "medium",
+			"large", "x-large", "xx-large", "xxx-large"};
+	private static final int[] SIZES = {8, 11, 12, 14, 17, 21, 28, 42};
+
+	/**
+	 * Faktoren für h1 bis h6
+	 */
+	private static final double[] HEADINGFACTORS = {2.0, 1.5, 1.17, 1.0, 0.83, 0.67};
+
+	static {
+		CloseRule p = new CloseRule(createSet("p"), scopeTags);
+		String[] pclosers = {"address", "article", "aside", "blockquote", "center", "dir",
+				"div", "dl", "fieldset", "figure", "footer", "form", "h1", "h2", "h3", "h4",
+				"h5", "h6", "header", "hr", "listing", "menu", "nav", "ol", "p", "pre",
+				"section", "table", "ul"};
+		for (int i = 0; i < pclosers.length; i++) closeRules.put(pclosers[i], p);
+
+		closeRules.put("li", new CloseRule(createSet("li"), createSet("ul", "ol", "menu", "dir", "table")));
+		CloseRule dl = new CloseRule(createSet("dt", "dd"), createSet("dl", "table"));
+		closeRules.put("dt", dl);
+		closeRules.put("dd", dl);
+		closeRules.put("tr", new CloseRule(createSet("tr"), createSet("table", "thead", "tbody", "tfoot")));
+		CloseRule cell = new CloseRule(createSet("td", "th"), createSet("tr", "table"));
+		closeRules.put("td", cell);
+		closeRules.put("th", cell);
+		CloseRule section = new CloseRule(createSet("thead", "tbody", "tfoot"), createSet("table"));
+		closeRules.put("thead", section);
+		closeRules.put("tbody", section);
+		closeRules.put("tfoot", section);
+		closeRules.put("option", new CloseRule(createSet("option"), createSet("select", "datalist", "optgroup")));
+		closeRules.put("optgroup", new CloseRule(createSet("optgroup"), createSet("select")));
+	}
+
+	/** Konstruktor
+	 * @param handler
+	 */
+	public HTMLLightNormalizer(TestElHandler handler) {
+		setHandler(handler);
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.mime.Normalizer#setHandler(de.beimax.testel.TestElHandler)
+	 */
+	public void setHandler(TestElHandler handler) {
+		this.handler = handler;
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.mime.Normalizer#normalize(java.lang.String)
+	 */
+	public String normalize(String htmldoc) throws Exception {
+		long starttime = System.currentTimeMillis();
+		String result = new StreamingTraverser(htmldoc, handler != null?handler.getURL():null).traverse();
+		logger.info("Leichtgewichtige HTML-Normalisierung in " + (System.currentTimeMillis() - starttime) + "ms abgeschlossen");
+		return result;
+	}
+
+	/**Erstellt eine Menge aus Zeichenketten
+	 * @param values
+	 * @return
+	 */
+	private static HashSet<String> createSet(String... values) {
+		HashSet<String> set = new HashSet<String>();
+		for (int i = 0; i < values.length; i++) set.add(values[i]);
+		return set;
+	}
+
+	/**Regel für implizit geschlossene Elemente: ein öffnendes Tag schließt das nächste offene
+	 * Element aus closes, sofern vorher kein Element aus boundaries kommt.
+	 * @author mkalus
+	 *
+	 */
+	private static class CloseRule {
+		final HashSet<String> closes;
+		final HashSet<String> boundaries;
+
+		CloseRule(HashSet<String> closes, HashSet<String> boundaries) {
+			this.closes = closes;
+			this.boundaries = boundaries;
+		}
+	}
+
+	/**Berechnete Schrifteigenschaften eines Elements
+	 * @author mkalus
+	 *
+	 */
+	static class Style implements Cloneable {
+		String family = "sans-serif";
+		int size = SIZES[3];
+		boolean bold = false;
+		boolean italic = false;
+		String decoration = "none";
+
+		/* (Kein Javadoc)
+		 * @see java.lang.Object#clone()
+		 */
+		@Override
+		public Style clone() {
+			try {
+				return (Style) super.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new InternalError(e.toString());
+			}
+		}
+
+		/**Übernimmt eine einzelne CSS-Eigenschaft
+		 * @param key Name der Eigenschaft (klein geschrieben)
+		 * @param value Wert
+		 * @param parentSize Schriftgröße des Elternelements
+		 */
+		void apply(String key, String value, int parentSize) {
+			value = value.trim();
+			int important = value.toLowerCase().indexOf("!important");
+			if (important != -1) value = value.substring(0, important).trim();
+			String lvalue = value.toLowerCase();
+
+			if (key.equals("font-family")) {
+				String fam = parseFamily(value);
+				if (fam != null) family = fam;
+			} else if (key.equals("font-size")) {
+				int s = parseFontSize(lvalue, parentSize);
+				if (s > 0) size = s;
+			} else if (key.equals("font-weight")) {
+				if (lvalue.equals("bold") || lvalue.equals("bolder")) bold = true;
+				else if (lvalue.equals("normal") || lvalue.equals("lighter")) bold = false;
+				else if (lvalue.length() > 0 && Character.isDigit(lvalue.charAt(0))) {
+					try {
+						bold = Integer.parseInt(lvalue) >= 600;
+					} catch (NumberFormatException e) {}
+				}
+			} else if (key.equals("font-style")) {
+				if (lvalue.equals("italic") || lvalue.equals("oblique")) italic = true;
+				else if (lvalue.equals("normal")) italic = false;
+			} else if (key.equals("text-decoration") || key.equals("text-decoration-line")) {
+				if (lvalue.indexOf("underline") != -1) decoration = "underline";
+				else if (lvalue.indexOf("line-through") != -1) decoration = "line-through";
+				else if (lvalue.equals("none") || lvalue.equals("overline") || lvalue.equals("blink"))
+					decoration = "none";
+			} else if (key.equals("font")) applyFontShorthand(value, parentSize);
+		}
+
+		/**Kurzschreibweise font: [style] [variant] [weight] size[/line-height] family
+		 * @param value
+		 * @param parentSize
+		 */
+		private void applyFontShorthand(String value, int parentSize) {
+			String[] parts = value.trim().split("\\s+");
+			boolean newItalic = false, newBold = false;
+			for (int i = 0; i < parts.length; i++) {
+				String part = parts[i].toLowerCase();
+				if (part.equals("italic") || part.equals("oblique")) newItalic = true;
+				else if (part.equals("bold") || part.equals("bolder")) newBold = true;
+				else if (part.equals("normal") || part.equals("small-caps") || part.equals("lighter")) continue;
+				else if (part.length() == 3 && part.endsWith("00") && Character.isDigit(part.charAt(0)))
+					newBold = part.charAt(0) >= '6';
+				else { //Größe erreicht
+					int slash = part.indexOf('/');
+					int s = parseFontSize(slash == -1?part:part.substring(0, slash), parentSize);
+					if (s <= 0) return; //Systemschrift o.ä. - nicht verstanden
+					size = s;
+					italic = newItalic;
+					bold = newBold;
+					StringBuilder rest = new StringBuilder();
+					for (int j = i + 1; j < parts.length; j++) {
+						if (rest.length() > 0) rest.append(' ');
+						rest.append(parts[j]);
+					}
+					String fam = parseFamily(rest.toString());
+					if (fam != null) family = fam;
+					return;
+				}
+			}
+		}
+
+		/**Schreibt die Eigenschaften im Format des DocumentTraverser
+		 * @param buffer
+		 */
+		void write(StringBuilder buffer) {
+			buffer.append("font-family:").append(family)
+				.append(";font-size:").append(size)
+				.append(";font-weight:").append(bold?"bold":"normal")
+				.append(";font-style:").append(italic?"italic":"normal")
+				.append(";text-decoration:").append(decoration).append(';');
+		}
+	}
+
+	/**Erste Schriftart einer Liste ohne Anführungszeichen
+	 * @param value
+	 * @return Schriftart oder null
+	 */
+	static String parseFamily(String value) {
+		int comma = value.indexOf(',');
+		if (comma != -1) value = value.substring(0, comma);
+		StringBuilder fam = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c != '"' && c != '\'' && c != ';' && c != ':') fam.append(c);
+		}
+		String family = fam.toString().trim();
+		if (family.length() == 0 || family.equalsIgnoreCase("inherit")) return null;
+		return family;
+	}
+
+	/**Wertet eine Schriftgröße aus
+	 * @param value Wert (klein geschrieben)
+	 * @param parentSize Schriftgröße des Elternelements
+	 * @return Größe in Pixeln oder -1, falls nicht verstanden
+	 */
+	static int parseFontSize(String value, int parentSize) {
+		value = value.trim();
+		for (int i = 0; i < SIZEKEYWORDS.length; i++)
+			if (value.equals(SIZEKEYWORDS[i])) return SIZES[i];
+		if (value.equals("larger")) return (int) Math.round(parentSize * 1.2);
+		if (value.equals("smaller")) return Math.max(1, (int) Math.round(parentSize / 1.2));
+
+		//Zahl und Einheit trennen
+		int pos = 0;
+		while (pos < value.length() && (Character.isDigit(value.charAt(pos)) || value.charAt(pos) == '.')) pos++;
+		if (pos == 0) return -1;
+		double number;
+		try {
+			number = Double.parseDouble(value.substring(0, pos));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+		String unit = value.substring(pos).trim();
+
+		double px;
+		if (unit.length() == 0 || unit.equals("px")) px = number;
+		else if (unit.equals("%")) px = parentSize * number / 100;
+		else if (unit.equals("em")) px = parentSize * number;
+		else if (unit.equals("ex")) px = parentSize * number / 2;
+		else if (unit.equals("pt")) px = number * 4 / 3;
+		else if (unit.equals("pc")) px = number * 16;
+		else if (unit.equals("in")) px = number * 96;
+		else if (unit.equals("cm")) px = number * 96 / 2.54;
+		else if (unit.equals("mm")) px = number * 96 / 25.4;
+		else return -1;
+
+		return Math.max(1, (int) Math.round(px));
+	}
+
+	/**Größe in Pixeln aus einem width- oder height-Attribut - Prozente beziehen sich auf
+	 * 800x600 (wie im HTMLTransformer)
+	 * @param value
+	 * @param reference
+	 * @return Größe oder -1
+	 */
+	static int parsePixelSize(String value, int reference) {
+		if (value == null) return -1;
+		value = value.trim();
+		int pos = 0;
+		while (pos < value.length() && Character.isDigit(value.charAt(pos))) pos++;
+		if (pos == 0) return -1;
+		try {
+			int number = Integer.parseInt(value.substring(0, pos));
+			if (value.indexOf('%', pos) != -1) return reference * number / 100;
+			return number;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**Gelesenes öffnendes Tag mit seinen Attributen
+	 * @author mkalus
+	 *
+	 */
+	private static class Tag {
+		final String name;
+		final ArrayList<String> attrNames = new ArrayList<String>();
+		final ArrayList<String> attrValues = new ArrayList<String>();
+		boolean selfClosing = false;
+
+		Tag(String name) {
+			this.name = name;
+		}
+
+		/**Fügt ein Attribut hinzu - bei doppelten Attributen gilt das erste
+		 * @param name
+		 * @param value
+		 */
+		void addAttribute(String name, String value) {
+			if (attrNames.contains(name)) return;
+			attrNames.add(name);
+			attrValues.add(value);
+		}
+
+		/**Wert eines Attributs
+		 * @param name
+		 * @return Wert oder null
+		 */
+		String getAttribute(String name) {
+			int i = attrNames.indexOf(name);
+			return i == -1?null:attrValues.get(i);
+		}
+	}
+
+	/**Offenes Element auf dem Stapel
+	 * @author mkalus
+	 *
+	 */
+	private static class Element {
+		final String name;
+		final Style style;
+		final StyleResolver.Node node;
+
+		Element(String name, Style style, StyleResolver.Node node) {
+			this.name = name;
+			this.style = style;
+			this.node = node;
+		}
+	}
+
+	/**Liest das Dokument einmal von vorne nach hinten und schreibt dabei das normalisierte
+	 * Dokument.
+	 * @author mkalus
+	 *
+	 */
+	private static class StreamingTraverser {
+		private final String doc;
+		private final int length;
+		private int pos = 0;
+		private URL base;
+		private final StringBuilder out;
+		private final ArrayList<Element> stack = new ArrayList<Element>();
+		private String title = null;
+		private boolean bodyStarted = false;
+		private Tag htmlTag = null;
+		private final StyleResolver resolver = new StyleResolver();
+
+		/**Konstruktor
+		 * @param doc
+		 * @param base URL des Dokuments (für Bilder)
+		 */
+		StreamingTraverser(String doc, URL base) {
+			this.doc = doc;
+			this.length = doc.length();
+			this.base = base;
+			this.out = new StringBuilder(length + length / 2);
+		}
+
+		/**Durchläuft das Dokument
+		 * @return normalisiertes Dokument
+		 */
+		String traverse() {
+			int textStart = 0;
+			while (pos < length) {
+				int lt = doc.indexOf('<', pos);
+				if (lt == -1) break;
+				if (lt + 1 >= length) { pos = length; break; }
+				char next = doc.charAt(lt + 1);
+				if (next == '!' || next == '?') {
+					writeText(textStart, lt);
+					skipMarkupDeclaration(lt);
+				} else if (next == '/' && lt + 2 < length && Character.isLetter(doc.charAt(lt + 2))) {
+					writeText(textStart, lt);
+					pos = lt + 2;
+					String name = readName();
+					pos = skipTo('>', pos);
+					handleEndTag(name);
+				} else if (Character.isLetter(next)) {
+					writeText(textStart, lt);
+					pos = lt + 1;
+					handleStartTag(parseStartTag());
+				} else { //< als Text
+					pos = lt + 1;
+					continue;
+				}
+				textStart = pos;
+			}
+			writeText(textStart, length);
+
+			//alles noch Offene schließen
+			if (!bodyStarted) startBody(null);
+			closeTo(1);
+			out.append("</body></html>");
+			return out.toString();
+		}
+
+		/**Überspringt Kommentare, Doctype und Verarbeitungsanweisungen - CDATA wird als Text
+		 * ausgegeben
+		 * @param lt Position des <
+		 */
+		private void skipMarkupDeclaration(int lt) {
+			if (doc.startsWith("<!--", lt)) {
+				int end = doc.indexOf("-->", lt + 4);
+				pos = end == -1?length:end + 3;
+			} else if (doc.startsWith("<![CDATA[", lt)) {
+				int end = doc.indexOf("]]>", lt + 9);
+				if (end == -1) end = length;
+				writeText(lt + 9, end);
+				pos = Math.min(length, end + 3);
+			} else pos = skipTo('>', lt);
+		}
+
+		/**Position hinter dem nächsten Zeichen c ab from
+		 * @param c
+		 * @param from
+		 * @return
+		 */
+		private int skipTo(char c, int from) {
+			int end = doc.indexOf(c, from);
+			return end == -1?length:end + 1;
+		}
+
+		/**Liest einen Tag- oder Attributnamen ab pos (klein geschrieben)
+		 * @return
+		 */
+		private String readName() {
+			int start = pos;
+			char c;
+			while (pos < length && (c = doc.charAt(pos)) > ' ' && c != '>' && c != '/' && c != '='
+				&& c != '"' && c != '\'' && c != '<') pos++;
+			return doc.substring(start, pos).toLowerCase();
+		}
+
+		/**
+		 * Überspringt Leerraum
+		 */
+		private void skipWhitespace() {
+			while (pos < length && doc.charAt(pos) <= ' ') pos++;
+		}
+
+		/**Liest ein öffnendes Tag samt Attributen ab pos (hinter dem <)
+		 * @return
+		 */
+		private Tag parseStartTag() {
+			int start = pos;
+			Tag tag = new Tag(readName());
+
+			while (true) {
+				skipWhitespace();
+				if (pos >= length) break;
+				char c = doc.charAt(pos);
+				if (c == '>') { pos++; break; }
+				if (c == '/') {
+					pos++;
+					if (pos < length && doc.charAt(pos) == '>') {
+						tag.selfClosing = true;
+						pos++;
+						break;
+					}
+					continue;
+				}
+				if (c == '<') break; //Tag nicht geschlossen
+
+				String name = readName();
+				if (name.length() == 0) { pos++; continue; } //z.B. verirrtes Anführungszeichen
+				skipWhitespace();
+				String value = null;
+				if (pos < length && doc.charAt(pos) == '=') {
+					pos++;
+					skipWhitespace();
+					if (pos < length && (doc.charAt(pos) == '"' || doc.charAt(pos) == '\'')) {
+						char quote = doc.charAt(pos);
+						int end = doc.indexOf(quote, pos + 1);
+						if (end == -1) { //Anführungszeichen nicht geschlossen: Tag am nächsten > beenden
+							pos = skipTo('>', start);
+							break;
+						}
+						value = doc.substring(pos + 1, end);
+						pos = end + 1;
+					} else {
+						int vstart = pos;
+						while (pos < length && doc.charAt(pos) > ' ' && doc.charAt(pos) != '>') pos++;
+						value = doc.substring(vstart, pos);
+					}
+				}
+				tag.addAttribute(name, value == null?"":value);
+			}
+			return tag;
+		}
+
+		/**Bearbeitet ein öffnendes Tag
+		 * @param tag
+		 */
+		private void handleStartTag(Tag tag) {
+			String name = tag.name;
+			if (name.equals("html")) {
+				if (htmlTag == null) htmlTag = tag;
+				return;
+			}
+			if (name.equals("head")) return;
+			if (name.equals("body")) {
+				if (!bodyStarted) startBody(tag);
+				return;
+			}
+			if (name.equals("title")) {
+				int end = findEndTag(name);
+				if (!bodyStarted && title == null) title = doc.substring(pos, end).trim();
+				pos = skipTo('>', end);
+				return;
+			}
+			if (ignoreTags.contains(name)) {
+				if (tag.selfClosing) return;
+				int end = findEndTag(name);
+				//Stylesheet im Dokument
+				if (name.equals("style") && StyleResolver.acceptMedia(tag.getAttribute("media")))
+					resolver.addStylesheet(doc.substring(pos, end), base);
+				pos = skipTo('>', end);
+				return;
+			}
+			if (headTags.contains(name)) {
+				String href = tag.getAttribute("href");
+				if (name.equals("base") && href != null) {
+					URL url = resolve(href);
+					if (url != null) base = url;
+				} else if (name.equals("link") && href != null && isStylesheet(tag.getAttribute("rel"))
+						&& StyleResolver.acceptMedia(tag.getAttribute("media"))) {
+					URL url = resolve(href);
+					if (url != null) resolver.addStylesheet(url);
+				}
+				return;
+			}
+
+			if (!bodyStarted) startBody(null);
+			closeImplied(name);
+
+			Element parent = stack.get(stack.size() - 1);
+			Element element = createElement(tag, parent);
+			writeStartTag(element, tag);
+
+			if (voidTags.contains(name)) {
+				writeClosingTag(name);
+				return;
+			}
+			if (rawTextTags.contains(name)) { //Inhalt als Text ausgeben
+				int end = findEndTag(name);
+				writeText(pos, end);
+				pos = skipTo('>', end);
+				writeClosingTag(name);
+				return;
+			}
+			if (tag.selfClosing) {
+				writeClosingTag(name);
+				return;
+			}
+			stack.add(element);
+		}
+
+		/**Position des Schließtags eines Elements, dessen Inhalt nicht geparst wird
+		 * @param name
+		 * @return Position des < oder Dokumentende
+		 */
+		private int findEndTag(String name) {
+			int from = pos;
+			while (true) {
+				int lt = doc.indexOf("</", from);
+				if (lt == -1) return length;
+				if (doc.regionMatches(true, lt + 2, name, 0, name.length())) {
+					int after = lt + 2 + name.length();
+					if (after >= length || doc.charAt(after) <= ' ' || doc.charAt(after) == '>')
+						return lt;
+				}
+				from = lt + 2;
+			}
+		}
+
+		/**Bearbeitet ein Schließtag
+		 * @param name
+		 */
+		private void handleEndTag(String name) {
+			if (!bodyStarted || voidTags.contains(name)) return;
+			//body und html erst am Ende schließen, da oft noch Inhalt folgt
+			if (name.equals("body") || name.equals("html")) return;
+
+			for (int i = stack.size() - 1; i > 0; i--) {
+				String open = stack.get(i).name;
+				if (open.equals(name)) {
+					closeTo(i);
+					return;
+				}
+				if (tableTags.contains(name)) {
+					if (open.equals("table")) return;
+				} else if (scopeTags.contains(open)) return;
+			}
+			//verirrtes Schließtag: ignorieren
+		}
+
+		/**Schließt Elemente, die durch ein neues Element implizit beendet werden
+		 * @param name
+		 */
+		private void closeImplied(String name) {
+			CloseRule rule = closeRules.get(name);
+			if (rule == null) return;
+			for (int i = stack.size() - 1; i > 0; i--) {
+				String open = stack.get(i).name;
+				if (rule.closes.contains(open)) {
+					closeTo(i);
+					return;
+				}
+				if (rule.boundaries.contains(open)) return;
+			}
+		}
+
+		/**Schließt alle Elemente ab Stapelposition index
+		 * @param index
+		 */
+		private void closeTo(int index) {
+			for (int i = stack.size() - 1; i >= index; i--)
+				writeClosingTag(stack.remove(i).name);
+		}
+
+		/**Schreibt den Kopf und das body-Tag
+		 * @param tag body-Tag aus dem Dokument oder null, falls dieses fehlt
+		 */
+		private void startBody(Tag tag) {
+			bodyStarted = true;
+			out.append("<html><head>");
+			if (title != null) out.append("<title>").append(title).append("</title>");
+			out.append("<meta http-equiv=\"content-type\" content=\"text/html; charset=UTF-8\"></head>");
+
+			if (tag == null) tag = new Tag("body");
+			Element html = createElement(htmlTag != null?htmlTag:new Tag("html"), null);
+			Element body = createElement(tag, html);
+			writeStartTag(body, tag);
+			stack.add(body);
+		}
+
+		/**Prüft, ob ein rel-Attribut auf ein (nicht alternatives) Stylesheet verweist
+		 * @param rel
+		 * @return
+		 */
+		private boolean isStylesheet(String rel) {
+			if (rel == null) return false;
+			rel = rel.toLowerCase();
+			return rel.indexOf("stylesheet") != -1 && rel.indexOf("alternate") == -1;
+		}
+
+		/**Erzeugt ein Element und berechnet dessen Schrifteigenschaften: Vorgaben für das
+		 * Element, Attribute von font, Regeln aus Stylesheets und das style-Attribut
+		 * @param tag
+		 * @param parent Elternelement oder null für das Wurzelelement
+		 * @return
+		 */
+		private Element createElement(Tag tag, Element parent) {
+			String name = tag.name;
+			Style style = parent == null?new Style():parent.style.clone();
+			int psize = parent == null?style.size:parent.style.size;
+			String href = tag.getAttribute("href");
+			StyleResolver.Node node = new StyleResolver.Node(name, tag.getAttribute("id"), tag.getAttribute("class"),
+					name.equals("a") && href != null, parent == null?null:parent.node);
+
+			//Vorgaben der Elemente
+			if (name.length() == 2 && name.charAt(0) == 'h' && name.charAt(1) >= '1' && name.charAt(1) <= '6') {
+				style.size = (int) Math.round(psize * HEADINGFACTORS[name.charAt(1) - '1']);
+				style.bold = true;
+			} else if (name.equals("b") || name.equals("strong") || name.equals("th"))
+				style.bold = true;
+			else if (name.equals("i") || name.equals("em") || name.equals("cite") || name.equals("var")
+					|| name.equals("dfn") || name.equals("address"))
+				style.italic = true;
+			else if (name.equals("u") || name.equals("ins") || (name.equals("a") && href != null))
+				style.decoration = "underline";
+			else if (name.equals("s") || name.equals("strike") || name.equals("del"))
+				style.decoration = "line-through";
+			else if (name.equals("tt") || name.equals("code") || name.equals("kbd") || name.equals("samp")
+					|| name.equals("pre") || name.equals("listing") || name.equals("xmp"))
+				style.family = "monospace";
+			else if (name.equals("small") || name.equals("sub") || name.equals("sup"))
+				style.size = parseFontSize("smaller", psize);
+			else if (name.equals("big"))
+				style.size = parseFontSize("larger", psize);
+			else if (name.equals("font")) {
+				String face = tag.getAttribute("face");
+				if (face != null && parseFamily(face) != null) style.family = parseFamily(face);
+				String size = tag.getAttribute("size");
+				if (size != null) {
+					size = size.trim();
+					try {
+						int n;
+						if (size.startsWith("+")) n = 3 + Integer.parseInt(size.substring(1));
+						else if (size.startsWith("-")) n = 3 - Integer.parseInt(size.substring(1));
+						else n = Integer.parseInt(size);
+						style.size = SIZES[Math.max(1, Math.min(7, n))];
+					} catch (NumberFormatException e) {}
+				}
+			}
+
+			//Kaskade: Regeln, style-Attribut, Regeln mit !important, style-Attribut mit !important
+			ArrayList<StyleResolver.Declaration> rules = resolver.isEmpty()?null:resolver.match(node);
+			int i = 0;
+			if (rules != null)
+				for (; i < rules.size() && !rules.get(i).isImportant(); i++)
+					style.apply(rules.get(i).getProperty(), rules.get(i).getValue(), psize);
+			String inline = tag.getAttribute("style");
+			if (inline != null) applyDeclarations(style, inline, psize, false);
+			if (rules != null && i < rules.size()) {
+				for (; i < rules.size(); i++)
+					style.apply(rules.get(i).getProperty(), rules.get(i).getValue(), psize);
+				if (inline != null) applyDeclarations(style, inline, psize, true);
+			}
+
+			return new Element(name, style, node);
+		}
+
+		/**Übernimmt eine Liste von CSS-Deklarationen (a:b;c:d)
+		 * @param style
+		 * @param declarations
+		 * @param parentSize
+		 * @param importantOnly nur Deklarationen mit !important übernehmen
+		 */
+		private void applyDeclarations(Style style, String declarations, int parentSize, boolean importantOnly) {
+			int start = 0, dlength = declarations.length();
+			while (start < dlength) {
+				int end = declarations.indexOf(';', start);
+				if (end == -1) end = dlength;
+				int colon = declarations.indexOf(':', start);
+				if (colon != -1 && colon < end) {
+					String value = declarations.substring(colon + 1, end);
+					if (!importantOnly || value.toLowerCase().indexOf("!important") != -1)
+						style.apply(declarations.substring(start, colon).trim().toLowerCase(), value, parentSize);
+				}
+				start = end + 1;
+			}
+		}
+
+		/**Schreibt ein öffnendes Tag
+		 * @param element
+		 * @param source gelesenes Tag mit den Attributen
+		 */
+		private void writeStartTag(Element element, Tag source) {
+			String tag = element.name;
+			out.append('<').append(tag);
+
+			if (!noAttribs.contains(tag)) {
+				//Ein TestEl-Tag - sollte normalerweise nicht passieren, kann aber...
+				boolean testelnode = tag.startsWith("testel:");
+
+				for (int i = 0; i < source.attrNames.size(); i++) {
+					String attrname = source.attrNames.get(i);
+					if (!testelnode && (attrname.equals("style") || attrname.equals("class"))) continue;
+					String value = source.attrValues.get(i);
+					//Bilder mit URL speichern...
+					if (tag.equals("img") && attrname.equals("src")) {
+						URL url = resolve(value);
+						if (url != null) value = url.toString();
+					}
+					out.append(' ').append(attrname).append("=\"").append(escapeValue(value)).append('"');
+				}
+
+				if (!testelnode) {
+					out.append(" style=\"");
+					if (tag.equals("img")) {
+						//nur Größen aus den Attributen - Bilder werden nicht geladen
+						int height = parsePixelSize(source.getAttribute("height"), 600);
+						int width = parsePixelSize(source.getAttribute("width"), 800);
+						if (height != -1 && width != -1)
+							out.append("height:").append(height).append(";width:").append(width).append(';');
+					} else element.style.write(out);
+					out.append('"');
+				}
+			}
+
+			if (noClosingTags.contains(tag)) //schließende Tags abfangen
+				out.append("/ >");
+			else out.append('>');
+		}
+
+		/**Maskiert Anführungszeichen und spitze Klammern in Attributwerten
+		 * @param value
+		 * @return
+		 */
+		private String escapeValue(String value) {
+			if (value.indexOf('"') == -1 && value.indexOf('<') == -1 && value.indexOf('>') == -1) return value;
+			return value.replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+		}
+
+		/**Schreibt ein Schließtag
+		 * @param tag
+		 */
+		private void writeClosingTag(String tag) {
+			if (noClosingTags.contains(tag)) return; //kein Schließtag
+			out.append("</").append(tag).append('>');
+		}
+
+		/**Schreibt Text zwischen zwei Tags - wie im DocumentTraverser ohne Leerraum am Rand
+		 * und mit < und > als Entities
+		 * @param start
+		 * @param end
+		 */
+		private void writeText(int start, int end) {
+			//Leerraum am Rand überspringen
+			while (start < end && (doc.charAt(start) <= ' ' || doc.startsWith("&nbsp;", start))) 
+				start += doc.charAt(start) <= ' '?1:6;
+			while (end > start && (doc.charAt(end - 1) <= ' ' || (end - start >= 6 && doc.startsWith("&nbsp;", end - 6))))
+				end -= doc.charAt(end - 1) <= ' '?1:6;
+			if (start >= end) return;
+
+			if (!bodyStarted) startBody(null);
+			for (int i = start; i < end; i++) {
+				char c = doc.charAt(i);
+				if (c == '<') out.append("&lt;");
+				else if (c == '>') out.append("&gt;");
+				else if (c == '&' && doc.startsWith("&nbsp;", i)) {
+					out.append(' ');
+					i += 5;
+				} else if (c == '&' && !isEntity(i, end)) out.append("&amp;");
+				else out.append(c);
+			}
+		}
+
+		/**Prüft, ob an einer Stelle eine Entity steht (&name; oder &#nummer;)
+		 * @param amp Position des &
+		 * @param end Ende des Texts
+		 * @return
+		 */
+		private boolean isEntity(int amp, int end) {
+			for (int i = amp + 1; i < end && i <= amp + 32; i++) {
+				char c = doc.charAt(i);
+				if (c == ';') return i > amp + 1;
+				if (!Character.isLetterOrDigit(c) && c != '#') return false;
+			}
+			return false;
+		}
+
+		/**Löst eine URL relativ zum Dokument auf
+		 * @param href
+		 * @return URL oder null
+		 */
+		private URL resolve(String href) {
+			try {
+				return base == null?new URL(href.trim()):new URL(base, href.trim());
+			} catch (MalformedURLException e) {
+				return null;
+			}
+		}
+	}
+}
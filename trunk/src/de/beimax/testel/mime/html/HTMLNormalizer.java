@@ -23,10 +23,15 @@
  */
 package de.beimax.testel.mime.html;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,6 +41,7 @@ import org.xml.sax.SAXException;
 import de.beimax.testel.TestElHandler;
 import de.beimax.testel.config.Config;
 import de.beimax.testel.exception.TestelParserException;
+import de.beimax.testel.general.ModelCache;
 import de.beimax.testel.mime.Normalizer;
 import de.beimax.testel.mime.html.util.HTMLTransformer;
 import de.beimax.testel.mime.html.util.SimpleCSSParser;
@@ -84,72 +90,155 @@ public class HTMLNormalizer implements Normalizer {
 		return htmldoc;
 	}
 
+	/**
+	 * Ersetzungen für die Zeichen 128-159, die von fehlerhaft als iso-8859-1 gelesenen
+	 * cp1252-Dokumenten stammen
+	 */
+	private static final char[] ISOREPLACE = {'€', ' ', '‚', 'ƒ', '„', '…', '†',
+			'‡', 'ˆ', '‰', 'Š', '‹', 'Œ', ' ', 'Ž', ' ', 
+			' ', '‘', '’', '“', '”', '•', '–',
+			'—', '˜', '™', 'š', '›', 'œ', ' ', 'ž', 'Ÿ'};
+
 	/**Vorgeschalteter Prozess, der Dinge säubert, mit denen Tidy nicht zurecht kommt und
-	 * den Parser verwirren
+	 * den Parser verwirren. Alle Ersetzungen erfolgen in einem Durchgang:
+	 * „ und “ innerhalb von Tags werden zu &quot;, fehlerhafte iso-8859-1-Zeichen werden
+	 * ausgebessert, NULL und &nbsp; werden zu Leerzeichen.
 	 * @param htmldoc
 	 * @return
 	 */
 	protected String preTidyHTML(String htmldoc) {
-		StringBuffer buffer = new StringBuffer(htmldoc);
+		int length = htmldoc.length();
+		StringBuilder buffer = new StringBuilder(length + 16);
+		boolean inTag = false; //seit dem letzten > wurde schon ein < gesehen
+		int quoteEnd = -1; //bis zu dieser Position werden Anführungszeichen ersetzt
 		
-		//Zeichen „ und “ innerhalb von Tags ersetzen
-		Pattern p = Pattern.compile("<[^>]*?(„|“).*?>");
-		Matcher m = p.matcher(buffer);
-		while(m.find()) {
-			String old = m.group(0);
-			String newm = old.replace("„", "&quot;");
-			newm = newm.replace("“", "&quot;");
-			//ersetzen
-			buffer.replace(m.start(), m.end(), newm);
-			m.reset(); //damit die Positionen nicht verrutschen...
+		for (int i = 0; i < length; i++) {
+			char c = htmldoc.charAt(i);
+			if (c == '>') inTag = false;
+			else if (c == '<' && !inTag) {
+				inTag = true;
+				quoteEnd = findQuotedTagEnd(htmldoc, i);
+			}
+			
+			if (c == '„' || c == '“') { //Zeichen „ und “ innerhalb von Tags ersetzen
+				if (i < quoteEnd) buffer.append("&quot;");
+				else buffer.append(c);
+			} else if (c >= 128 && c < 128 + ISOREPLACE.length) //fehlerhafte von iso-8859-1 Teile ausbessern
+				buffer.append(ISOREPLACE[c - 128]);
+			else if (c == 0) buffer.append(' '); //NULL ersetzen
+			else if (c == '&' && htmldoc.startsWith("&nbsp;", i)) { //Leerzeichen anpassen
+				buffer.append(' ');
+				i += 5;
+			} else buffer.append(c);
 		}
 		
-		//fehlerhafte von iso-8859-1 Teile ausbessern
-		String replace = buffer.toString();
-		
-		Character[] isoreplace = {'€', ' ', '‚', 'ƒ', '„', '…', '†',
-				'‡', 'ˆ', '‰', 'Š', '‹', 'Œ', ' ', 'Ž', ' ', 
-				' ', '‘', '’', '“', '”', '•', '–',
-				'—', '˜', '™', 'š', '›', 'œ', ' ', 'ž', 'Ÿ'};
-		
-		for (int i = 0; i < isoreplace.length; i++)
-			replace = replace.replace((char)(128 + i), isoreplace[i]);
-		
-		//NULL ersetzen
-		replace = replace.replace((char)(0), ' ');
-		
-		return replace.replace("&nbsp;", " "); //Leerzeichen anpassen
+		return buffer.toString();
 	}
 	
+	/**Sucht das Ende eines Tags, in dem „ oder “ ersetzt werden müssen. Das entspricht dem
+	 * früher verwendeten Ausdruck <[^>]*?(„|“).*?> - nach dem letzten Anführungszeichen darf
+	 * also kein Zeilenumbruch mehr folgen.
+	 * @param htmldoc
+	 * @param start Position des <
+	 * @return Position des > oder -1, falls nichts zu ersetzen ist
+	 */
+	private static int findQuotedTagEnd(String htmldoc, int start) {
+		int length = htmldoc.length();
+		boolean quote = false;
+		for (int i = start + 1; i < length; i++) {
+			char c = htmldoc.charAt(i);
+			switch (c) {
+			case '>': return quote?i:-1;
+			case '„':
+			case '“': quote = true; break;
+			case '\n':
+			case '\r':
+			case '\u0085':
+			case '\u2028':
+			case '\u2029': quote = false; break;
+			}
+		}
+		return -1; //Tag wird nicht geschlossen
+	}
+	
+	/**
+	 * Konfigurierte Tidy-Instanzen, je Thread und Konfigurationsdatei
+	 */
+	private static final ThreadLocal<HashMap<String, Tidy>> tidies = new ThreadLocal<HashMap<String, Tidy>>() {
+		protected HashMap<String, Tidy> initialValue() {
+			return new HashMap<String, Tidy>();
+		}
+	};
+
 	/**Erwartet unsauberes HTML als Eingabe und lässt Tidy darüber laufen.
 	 * @param htmldoc
 	 * @return Saubere Stringrepräsentation des Dokuments.
 	 */
 	protected String tidyHTML(String htmldoc) {
-		Tidy tidy = new Tidy();
-		
 		String tidyConfig = Config.getConfig("HTMLtidy_config");
 		if (tidyConfig == null) {
 			logger.warning("Property HTMLtidy_config ist leer! Versuche Fallback auf ./tidy.config.");
 			tidyConfig = "./tidy.config.";
 		}
+		Tidy tidy = getTidy(tidyConfig);
 		
 		//Einstellungen
 		if (handler != null)
 			tidy.setInputStreamName(handler.getURL().toString());
-		tidy.setForceOutput(true);
-		logger.fine("Tidy-Konfigurationsdatei: " + tidyConfig + ".");
-		if (tidyConfig.equals("default"))
-			tidy.setConfigurationFromFile(getClass().getResource("tidy.config").getFile());
-		else tidy.setConfigurationFromFile(tidyConfig);
-        
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        
-        //Parsen
-		tidy.parse(new ByteArrayInputStream(htmldoc.getBytes()), os);
+		
+		//Parsen - Zeichen direkt lesen und schreiben, damit kein Standard-Encoding dazwischenfunkt
+		StringWriter out = new StringWriter(htmldoc.length() + htmldoc.length() / 4);
+		tidy.parse(new StringReader(htmldoc), out);
 		logger.info("Tidy abgeschlossen");
 		
-		return os.toString();
+		return out.toString();
+	}
+	
+	/**Gibt die Tidy-Instanz des aktuellen Threads für eine Konfigurationsdatei zurück und
+	 * erstellt diese ggf.
+	 * @param tidyConfig
+	 * @return
+	 */
+	private Tidy getTidy(String tidyConfig) {
+		HashMap<String, Tidy> map = tidies.get();
+		Tidy tidy = map.get(tidyConfig);
+		if (tidy == null) {
+			tidy = new Tidy();
+			tidy.setForceOutput(true);
+			logger.fine("Tidy-Konfigurationsdatei: " + tidyConfig + ".");
+			tidy.setConfigurationFromProps(loadTidyConfig(tidyConfig));
+			map.put(tidyConfig, tidy);
+		}
+		return tidy;
+	}
+	
+	/**Lädt eine Tidy-Konfigurationsdatei - diese wird nur einmal gelesen und dann von allen
+	 * Threads geteilt (s. ModelCache)
+	 * @param tidyConfig Dateiname oder default
+	 * @return
+	 */
+	private Properties loadTidyConfig(String tidyConfig) {
+		String key = HTMLNormalizer.class.getName() + ":" + tidyConfig;
+		Properties props = ModelCache.getSharedObject(key);
+		if (props != null) return props;
+		
+		props = new Properties();
+		try {
+			InputStream in;
+			if (tidyConfig.equals("default"))
+				in = HTMLNormalizer.class.getResourceAsStream("tidy.config");
+			else in = new FileInputStream(tidyConfig);
+			if (in == null) throw new FileNotFoundException(tidyConfig);
+			try {
+				props.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			logger.warning("Konnte Tidy-Konfigurationsdatei " + tidyConfig + " nicht laden:\n" + e.getLocalizedMessage());
+		}
+		ModelCache.putSharedObject(key, props);
+		return props;
 	}
 
 	/**HTML-Transformer laden
@@ -157,7 +246,7 @@ public class HTMLNormalizer implements Normalizer {
 	 * @return
 	 */
 	protected String transformHTML(String htmldoc) {
-		HTMLTransformer transformer;
+		HTMLTransformer transformer = null;
 		
 		try {
 			transformer = new HTMLTransformer(htmldoc, handler.getURL());
@@ -169,6 +258,8 @@ public class HTMLNormalizer implements Normalizer {
 			logger.warning("Lobo konnte Dokument nicht parsen (SAX Exception) - überspringe Lobo.\n" + e.getStackTrace());
 		} catch (InterruptedException e) {
 			logger.warning("Lobo wurde unterbochen - überspringe Lobo.\n" + e.getStackTrace());
+		} finally {
+			if (transformer != null) transformer.release();
 		}
 
 		return htmldoc; //Bei Fehlern Original zurückliefern
@@ -206,7 +297,6 @@ public class HTMLNormalizer implements Normalizer {
 				}
 				//CSS-Parser über Stylesheets laufen lassen
 				try {
-					SimpleCSSParser.clearList(); //Liste löschen
 					styles += parser.parse(css);
 					//System.out.println("*******\n" + styles + "*******");
 					logger.info("Hole CSS " + css + ".");
@@ -24,18 +24,17 @@
 package de.beimax.testel.mime.html;
 
 import java.io.IOException;
-import java.io.StreamTokenizer;
-import java.io.StringReader;
 import java.util.Stack;
-import java.util.TreeMap;
-import java.util.Map.Entry;
 import java.util.logging.Level;
 
 import de.beimax.testel.TestElHandler;
 import de.beimax.testel.exception.TestelParserException;
 import de.beimax.testel.mime.Parser;
 import de.beimax.testel.mime.html.util.EntityTransformer;
+import de.beimax.testel.mime.html.util.HTMLBufferTokenizer;
 import de.beimax.testel.mime.html.util.HTMLTokenizer;
+import de.beimax.testel.token.Attributes;
+import de.beimax.testel.token.LineIndex;
 import de.beimax.testel.token.TextPosition;
 import de.beimax.testel.token.Token;
 import de.beimax.testel.token.TokenList;
@@ -90,7 +89,10 @@ public class HTMLParser implements Parser {
 	 * @throws TestelParserException
 	 */
 	private TokenList tokenize(String document) throws IOException, TestelParserException {
-		HTMLTokenizer tokenizer = new HTMLTokenizer(new StringReader(document));
+		//Der Tokenizer arbeitet direkt auf dem Dokument, Zeilen und Spalten werden bei
+		//Bedarf aus dem Zeilenindex berechnet
+		HTMLBufferTokenizer tokenizer = new HTMLBufferTokenizer(document);
+		LineIndex lines = new LineIndex(document);
 		
 		//Referenz-Stacks für TestElTags
 		Stack<Token> testelTagStack = new Stack<Token>();
@@ -98,119 +100,103 @@ public class HTMLParser implements Parser {
 		//neue Liste erstellen
 		TokenList list = new TokenList();
 		
-		boolean start = false;
+		//Bearbeitung ab <body> - der Kopf wird übersprungen
+		if (!tokenizer.seekBody()) return list;
 
 		int type;
-		while ((type = tokenizer.nextToken()) != -1) {
+		while ((type = tokenizer.nextToken()) != HTMLTokenizer.TT_EOF) {
 			String token = tokenizer.getToken();
-			if (!start && type == HTMLTokenizer.TT_TAG && token.length() >= 4
-					&& token.substring(0, 4).equals("body")) {
-				start = true;
-				//continue; //Bearbeitung ab <body>
-			}
-			if (start) {
-				Token tok = null;
-				int bpos = tokenizer.getBeginningPos();
-				int brow = tokenizer.getBeginningRow();
-				int bcol = tokenizer.getBeginningCol();
-				int epos = tokenizer.getEndPos();
-				int erow = tokenizer.getEndRow();
-				int ecol = tokenizer.getEndCol();
-				TextPosition pos = new TextPosition(bpos, brow, bcol, epos, erow, ecol);
-				//System.out.println(pos.toString() + ":" + token);
-				switch (type) {
-				case HTMLTokenizer.TT_TAG:
-					//Erstellen eines TagParsers (p. Klasse, s.u.)
-					try {
-						TagParser tagParser = new TagParser(token);
-						//Art des Tags?
-						if (tagParser.isTestelTag()) { //TestEl-Tag
-							String tname = tagParser.getTestElTagName();
-							logger.finest("TestEl-Tag erkannt: " + tname);
-							tok = new TestElTag(tname);
-							Entry<String, String> att; //Attribute hinzufügen
-							boolean hadClass = false; 
-							while ((att = tagParser.nextAttribute()) != null) {
-								if (att.getKey().equals("class")) { //Typ -> auf Variety mappen
-									String val = att.getValue().toUpperCase();
-									tok.setClassName(val);
-									testElTagVarietyStack.push(val);
-									hadClass = true;
-								}
-								else tok.addAttribute(att.getKey(), att.getValue());
-							}
-							//Wurde Klasse als Attribut angegeben?
-							if (!hadClass) {
-								//Endtag, erhält letztes Tag
-								if (tname.charAt(0) == '/')
-									tok.setClassName(testElTagVarietyStack.pop());
-								else throw new TestelParserException("TestEl-Tag " + tok + " an Postion " + pos + " enthält kein Attribut class");
-							}
-							//jetzt Anfangs und Endtoken checken und Referenzen setzen
-							if (tname.charAt(0) == '/') {
-								try {
-									Token startTag = testelTagStack.pop();
-									String startName = startTag.getName();
-									if (!startName.equals(tname.substring(1)))
-										throw new TestelParserException("TestEl-Tags passen nicht zusammen: " + startTag + " und " + tname);
-									//gut, alles klar, dann Refrenzen bauen
-									startTag.setReference(tok);
-									tok.setReference(startTag);
-								} catch (Exception e) {
-									throw new TestelParserException("Fehler beim Parsen von TestEl-Tags:\n" + e.getLocalizedMessage());
-								}
-							} else //Anfangstags auf den Stack
-								testelTagStack.add(tok);
-						} else { //Kein TestEl-Tag -> normales HTML-Tag
-							logger.finest("Tag erkannt: " + tagParser.getTagName());
-							Entry<String, String> att; //Attribute hinzufügen
-							//Bild?
-							if (tagParser.getTagName().equalsIgnoreCase("img")) {
-								tok = new ImageToken();
-								String url = null;
-								while ((att = tagParser.nextAttribute()) != null)
-									if (att.getKey().equals("src")) url = att.getValue(); //src wird als Name genommen
-									else tok.addAttribute(att.getKey(), att.getValue()); //sonst ok
-								if (url != null) tok.setName(url); //ansonsten NN
-							} else { //alle anderen
-								tok = new MarkupToken(tagParser.getTagName());
-								while ((att = tagParser.nextAttribute()) != null)
-									tok.addAttribute(att.getKey(), att.getValue());
-							}
+			Token tok = null;
+			TextPosition pos = new TextPosition(lines, tokenizer.getBeginningPos(), tokenizer.getEndPos());
+			//System.out.println(pos.toString() + ":" + token);
+			switch (type) {
+			case HTMLTokenizer.TT_TAG:
+				//Erstellen eines TagParsers (p. Klasse, s.u.)
+				try {
+					TagParser tagParser = new TagParser(token);
+					//Art des Tags?
+					if (tagParser.isTestelTag()) { //TestEl-Tag
+						String tname = tagParser.getTestElTagName();
+						logger.finest("TestEl-Tag erkannt: " + tname);
+						tok = new TestElTag(tname);
+						//Attribute hinzufügen
+						Attributes.Builder attributes = tagParser.getAttributes();
+						String cls = attributes.remove("class");
+						boolean hadClass = false; 
+						if (cls != null) { //Typ -> auf Variety mappen
+							String val = cls.toUpperCase();
+							tok.setClassName(val);
+							testElTagVarietyStack.push(val);
+							hadClass = true;
 						}
-					} catch (TestelParserException e) {
-						String msg = "Tag " + token + " konnte nicht geparst werden an Position " + pos.toString() + "\n" + e.getLocalizedMessage();
-						logger.warning(msg);
-						throw new TestelParserException(msg);
-					}
-					break;
-				case HTMLTokenizer.TT_ENTITY:
-					String entity = EntityTransformer.decode("&" + token + ";");
-					if (entity == null || entity.length() == 0) {
-						logger.warning("Konnte Entität &" + token + "; nicht auflösen - verwende stattdessen ENT_UNKNOWN");
-						//throw new TestelParserException("Konnte Entität &" + token + "; nicht auflösen");
-						entity = "ENT_UNKNOWN";
+						if (!attributes.isEmpty()) tok.setAttributes(attributes.build());
+						//Wurde Klasse als Attribut angegeben?
+						if (!hadClass) {
+							//Endtag, erhält letztes Tag
+							if (tname.charAt(0) == '/')
+								tok.setClassName(testElTagVarietyStack.pop());
+							else throw new TestelParserException("TestEl-Tag " + tok + " an Postion " + pos + " enthält kein Attribut class");
+						}
+						//jetzt Anfangs und Endtoken checken und Referenzen setzen
+						if (tname.charAt(0) == '/') {
+							try {
+								Token startTag = testelTagStack.pop();
+								String startName = startTag.getName();
+								if (!startName.equals(tname.substring(1)))
+									throw new TestelParserException("TestEl-Tags passen nicht zusammen: " + startTag + " und " + tname);
+								//gut, alles klar, dann Refrenzen bauen
+								startTag.setReference(tok);
+								tok.setReference(startTag);
+							} catch (Exception e) {
+								throw new TestelParserException("Fehler beim Parsen von TestEl-Tags:\n" + e.getLocalizedMessage());
+							}
+						} else //Anfangstags auf den Stack
+							testelTagStack.add(tok);
+					} else { //Kein TestEl-Tag -> normales HTML-Tag
+						logger.finest("Tag erkannt: " + tagParser.getTagName());
+						//Attribute hinzufügen
+						Attributes.Builder attributes = tagParser.getAttributes();
+						//Bild?
+						if (tagParser.getTagName().equalsIgnoreCase("img")) {
+							tok = new ImageToken();
+							String url = attributes.remove("src"); //src wird als Name genommen
+							if (url != null) tok.setName(url); //ansonsten NN
+						} else //alle anderen
+							tok = new MarkupToken(tagParser.getTagName());
+						if (!attributes.isEmpty()) tok.setAttributes(attributes.build());
 					}
-					tok = new SomeToken(entity);
-					if (possiblyJoin(list, tok, pos)) tok = null;
-					break;
-				case HTMLTokenizer.TT_TEXT:
-					logger.finest("Text erkannt: " + token);
-					tok = new SomeToken(token);
-					if (possiblyJoin(list, tok, pos)) tok = null;
-					break;
-				default: logger.warning("Unbekanntes Token: " + tokenizer.toString());
+				} catch (TestelParserException e) {
+					String msg = "Tag " + token + " konnte nicht geparst werden an Position " + pos.toString() + "\n" + e.getLocalizedMessage();
+					logger.warning(msg);
+					throw new TestelParserException(msg);
 				}
-				//Token vervollständigen und an Liste anhängen
-				if (tok != null) {
-					tok.initTextPosition(pos);
-					if (logger.getLevel() == Level.FINE)
-						logger.fine("Token erzeugt und angehängt: " + tok.toString());
-					list.add(tok);
+				break;
+			case HTMLTokenizer.TT_ENTITY:
+				String entity = EntityTransformer.decode("&" + token + ";");
+				if (entity == null || entity.length() == 0) {
+					logger.warning("Konnte Entität &" + token + "; nicht auflösen - verwende stattdessen ENT_UNKNOWN");
+					//throw new TestelParserException("Konnte Entität &" + token + "; nicht auflösen");
+					entity = "ENT_UNKNOWN";
 				}
-				if (type == HTMLTokenizer.TT_TAG && token.equals("/body"))
-					break; //Bearbeitung mit </body> einstellen
+				tok = new SomeToken(entity);
+				if (possiblyJoin(list, tok, pos)) tok = null;
+				break;
+			case HTMLTokenizer.TT_TEXT:
+				logger.finest("Text erkannt: " + token);
+				tok = new SomeToken(token);
+				if (possiblyJoin(list, tok, pos)) tok = null;
+				break;
+			default: logger.warning("Unbekanntes Token: " + tokenizer.toString());
+			}
+			//Token vervollständigen und an Liste anhängen
+			if (tok != null) {
+				tok.initTextPosition(pos);
+				if (logger.getLevel() == Level.FINE)
+					logger.fine("Token erzeugt und angehängt: " + tok.toString());
+				list.add(tok);
 			}
+			if (type == HTMLTokenizer.TT_TAG && token.equals("/body"))
+				break; //Bearbeitung mit </body> einstellen
 		}
 
 		return list;
@@ -245,20 +231,29 @@ public class HTMLParser implements Parser {
 		return true;
 	}
 	
-	/**Private Klasse zum Auswerten von Tags
+	/**Private Klasse zum Auswerten von Tags: liest Tagnamen und Attribute in einem Durchlauf
+	 * direkt in einen Attributes.Builder. Werte können in doppelten oder einfachen
+	 * Anführungszeichen stehen oder ohne Anführungszeichen bis zum nächsten Leerraum reichen,
+	 * Attribute ohne Wert erhalten den Wert "true".
 	 * @author mkalus
 	 *
 	 */
 	protected class TagParser {
-		private TreeMap<String, String> attributes;
+		private Attributes.Builder attributes;
 		private String tagName;
 		
+		/**
+		 * Tag und aktuelle Leseposition
+		 */
+		private String tag;
+		private int pos;
+		
 		/** Konstruktor
 		 * @param tag
 		 * @throws TestelParserException
 		 */
 		public TagParser(String tag) throws TestelParserException {
-			attributes = new TreeMap<String, String>();
+			attributes = new Attributes.Builder();
 			parseTag(tag);
 		}
 		
@@ -284,31 +279,24 @@ public class HTMLParser implements Parser {
 		 */
 		public boolean isTestelTag() {
 			if (tagName.length() <= 7) return false;
-			if (tagName.substring(0, 7).equalsIgnoreCase("testel:")) return true;
-			if (tagName.length() <= 8) return false;
-			if (tagName.substring(0, 8).equalsIgnoreCase("/testel:")) return true;
-			return false;
+			if (tagName.regionMatches(true, 0, "testel:", 0, 7)) return true;
+			return isTestelEndTag();
 		}
 		
-		/**Gibt true zurück, falls Tag-Name mit testel: beginnt
+		/**Gibt true zurück, falls Tag-Name mit /testel: beginnt
 		 * @return
 		 */
 		public boolean isTestelEndTag() {
 			if (tagName.length() <= 8) return false;
-			if (tagName.substring(0, 8).equalsIgnoreCase("/testel:")) return true;
-			return false;
+			return tagName.regionMatches(true, 0, "/testel:", 0, 8);
 		}
 		
-		/**Holt sich Stück für Stück die Attribute aus der Liste
-		 * @return AttributeSimple oder null, falls am Ende
+		/**Gibt die Attribute des Tags zurück - diese können vor dem Erzeugen der Menge noch
+		 * verändert werden (z.B. class bei TestEl-Tags)
+		 * @return
 		 */
-		public Entry<String, String> nextAttribute() {
-			if (attributes.size() == 0) return null; //leer
-
-			//Neues Attribute erstellen und zurückgeben
-			Entry<String, String> entry = attributes.firstEntry();
-			attributes.remove(entry.getKey());
-			return entry;
+		public Attributes.Builder getAttributes() {
+			return attributes;
 		}
 		
 		/**Parst einen Tag nach Attributen
@@ -316,69 +304,104 @@ public class HTMLParser implements Parser {
 		 * @throws TestelParserException
 		 */
 		private void parseTag(String tag) throws TestelParserException {
-			//Tokens hier bilden
-			StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(tag));
-			tokenizer.wordChars(':', ':');
-			tokenizer.wordChars('/', '/');
-			tokenizer.quoteChar('"');
-
-			try {
-				tokenizer.nextToken(); //Tagname
-				if (tokenizer.ttype != StreamTokenizer.TT_WORD)
-					throw new TestelParserException("Tagname " + tokenizer.toString() + " im Tag " + tag + " ist nicht lesbar.\n");
-				tagName = tokenizer.sval;
+			this.tag = tag;
+			this.pos = 0;
+			
+			//Tagname
+			skipWhitespace();
+			if (pos >= tag.length() || !(Character.isLetter(tag.charAt(pos)) || tag.charAt(pos) == '/'))
+				throw new TestelParserException("Tagname im Tag " + tag + " ist nicht lesbar.\n");
+			tagName = readWord();
+			
+			//rest durchlaufen
+			skipWhitespace();
+			while (pos < tag.length()) {
+				//zuerst key
+				String key = readWord();
+				if (key.length() == 0)
+					throw new TestelParserException("Attribut an Position " + pos + " im Tag " + tag + " ist nicht lesbar.\n");
 				
-				//rest durchlaufen
-				while (tokenizer.nextToken() != StreamTokenizer.TT_EOF) {
-					//zuerst key
-					if (tokenizer.ttype != StreamTokenizer.TT_WORD)
-						throw new TestelParserException("Attribut " + tokenizer.toString() + " im Tag " + tag + " ist nicht lesbar.\n");
-					String key = tokenizer.sval;
-					
-					tokenizer.nextToken();
-					String value;
-					if (tokenizer.ttype != '=') { //einzelnes Tag, z.B.
-						tokenizer.pushBack();
-						value = "true"; //dummy-Wert
-					} else {
-						
-						//ok = bestätigt, dann Wert auslesen
-						tokenizer.nextToken();
-						if (tokenizer.ttype != '"') { //Anführungszeichen am Anfang
-							logger.warning("Attribute im Token " + tag + " sind nicht von Anführungszeichen umgeben!");
-						}
-						
-						value = tokenizer.sval;
-					}
-					logger.finest("Neues Attribut: " + key + "=" + value);
-					if (key.equalsIgnoreCase("style"))
-						addStylesToMarkup(value); //Styles extra behandeln
-					else attributes.put(key, value);
+				skipWhitespace();
+				String value;
+				if (pos >= tag.length() || tag.charAt(pos) != '=') //einzelnes Tag, z.B.
+					value = "true"; //dummy-Wert
+				else { //ok = bestätigt, dann Wert auslesen
+					pos++;
+					skipWhitespace();
+					value = readValue();
+					skipWhitespace();
 				}
-			} catch (IOException e) {
-				throw new TestelParserException("Tag " + tag + " konnte nicht gelesen werden.\n" + e.getLocalizedMessage());
+				logger.finest("Neues Attribut: " + key + "=" + value);
+				if (key.equalsIgnoreCase("style"))
+					addStylesToMarkup(value); //Styles extra behandeln
+				else attributes.add(key, value);
 			}
 			
 			//Testel:abbrev-Token? Klasse hier hinzufügen
 			if (tagName.equalsIgnoreCase("testel:abbrev"))
-				attributes.put("class", "ABBREV");
+				attributes.add("class", "ABBREV");
 
 			//Einzeltag? Attribut / anfügen
-			if (tag.charAt(tag.length()-1) == '/') attributes.put("/", "yes");
+			if (tag.charAt(tag.length()-1) == '/') attributes.add("/", "yes");
+		}
+		
+		/**
+		 * Überspringt Leerraum
+		 */
+		private void skipWhitespace() {
+			while (pos < tag.length() && tag.charAt(pos) <= ' ') pos++;
+		}
+		
+		/**Liest einen Namen bis zu Leerraum, = oder Anführungszeichen
+		 * @return
+		 */
+		private String readWord() {
+			int start = pos;
+			char c;
+			while (pos < tag.length() && (c = tag.charAt(pos)) > ' ' && c != '=' && c != '"' && c != '\'') pos++;
+			return tag.substring(start, pos);
+		}
+		
+		/**Liest einen Wert in doppelten oder einfachen Anführungszeichen oder ohne bis zum
+		 * nächsten Leerraum
+		 * @return
+		 */
+		private String readValue() {
+			if (pos >= tag.length()) return "";
+			char quote = tag.charAt(pos);
+			if (quote == '"' || quote == '\'') {
+				int end = tag.indexOf(quote, pos + 1);
+				if (end == -1) end = tag.length(); //nicht geschlossen: bis zum Ende
+				String value = tag.substring(pos + 1, end);
+				pos = Math.min(end + 1, tag.length());
+				return value;
+			}
+			int start = pos;
+			while (pos < tag.length() && tag.charAt(pos) > ' ') pos++;
+			logger.finer("Attribut im Token " + tag + " ist nicht von Anführungszeichen umgeben");
+			return tag.substring(start, pos);
 		}
 		
-		/**Eine Style-Liste in eine Attributsliste umwandeln
+		/**Eine Style-Liste in eine Attributsliste umwandeln - leere Einträge werden übersprungen,
+		 * Werte dürfen : enthalten (z.B. url(http://...))
 		 * @param stylelist
 		 */
 		private void addStylesToMarkup(String stylelist) throws TestelParserException {
-			String[] keyvallist = stylelist.split(";"); //nach ; aufsplitten
-			for(int i = 0; i < keyvallist.length; i++) { //und durchlaufen
-				String[] detail = keyvallist[i].split(":"); //noch einmal nach : splitten
-				if (detail.length != 2) throw new TestelParserException("Style " + keyvallist[i] + " wurde in der Liste " + stylelist + " nicht verstanden.");
-				String key = detail[0].trim();
-				String val = detail[1].trim();
-				attributes.put(key, val); //zu den Attributen hinzufügen
-				logger.finest("Neues Style-Attribut: " + key + "=" + val);
+			int start = 0, length = stylelist.length();
+			while (start < length) { //nach ; aufteilen
+				int end = stylelist.indexOf(';', start);
+				if (end == -1) end = length;
+				int colon = stylelist.indexOf(':', start);
+				if (colon == -1 || colon > end) { //kein : -> nur Leerraum erlaubt
+					if (stylelist.substring(start, end).trim().length() > 0)
+						throw new TestelParserException("Style " + stylelist.substring(start, end) + " wurde in der Liste " + stylelist + " nicht verstanden.");
+				} else {
+					String key = stylelist.substring(start, colon).trim();
+					String val = stylelist.substring(colon + 1, end).trim();
+					attributes.add(key, val); //zu den Attributen hinzufügen
+					logger.finest("Neues Style-Attribut: " + key + "=" + val);
+				}
+				start = end + 1;
 			}
 		}
 	}
@@ -24,6 +24,7 @@
 package de.beimax.testel.mime.html;
 
 import de.beimax.testel.TestElHandler;
+import de.beimax.testel.config.Config;
 import de.beimax.testel.exception.TestelException;
 import de.beimax.testel.general.ReferenceTagger;
 import de.beimax.testel.general.TaggerCollection;
@@ -44,6 +45,8 @@ public class MimeFactoryImpl extends MimeFactory {
 	 */
 	@Override
 	public Normalizer createNormalizer(TestElHandler handler) {
+		//leichtgewichtiger Normalisierer statt Lobo und Tidy?
+		if (Config.checkConfig("HTMLnormalizer", "light")) return new HTMLLightNormalizer(handler);
 		return new HTMLNormalizer(handler);
 	}
 
@@ -0,0 +1,220 @@
+/**
+ * Datei: HTMLBufferTokenizer.java
+ * Paket: de.beimax.testel.mime.html.util
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.mime.html.util;
+
+/**Tokenizer für HTML, der direkt auf dem Dokument im Speicher arbeitet. Er liefert die
+ * selben Tokens wie der HTMLTokenizer (mit Entitäten, ohne Kleinschreibung), liest
+ * aber nicht Zeichen für Zeichen über einen Reader, sondern läuft mit Indizes über die
+ * Zeichenfolge. Tokens werden als Positionen festgehalten, der Text eines Tokens wird
+ * erst bei Aufruf von getToken() erzeugt.
+ * Mit seekBody() kann außerdem direkt zum Body-Tag gesprungen werden, ohne die Tokens
+ * des Kopfes zu erzeugen.
+ * Zeilen und Spalten werden nicht berechnet (s. LineIndex).
+ * @author mkalus
+ *
+ */
+public class HTMLBufferTokenizer {
+	/**
+	 * Dokument und Länge
+	 */
+	private final CharSequence text;
+	private final int length;
+	
+	/**
+	 * Position des nächsten ungelesenen Zeichens
+	 */
+	private int pos;
+	
+	/**
+	 * Typ des aktuellen Tokens (Konstanten von HTMLTokenizer)
+	 */
+	private int ttype = TT_NOTHING;
+	
+	/**
+	 * Positionen des aktuellen Tokens im Dokument (inklusive Klammern bzw. & und ;) und
+	 * Bereich des Token-Textes
+	 */
+	private int bpos, epos, tstart, tend;
+	
+	/**
+	 * Text des aktuellen Tokens, falls schon erzeugt
+	 */
+	private String sval;
+	
+	private boolean pushedBack = false;
+	
+	private static final int TT_NOTHING = -10;
+
+	/**Konstruktor
+	 * @param text
+	 */
+	public HTMLBufferTokenizer(CharSequence text) {
+		this.text = text;
+		this.length = text.length();
+		this.pos = 0;
+	}
+
+	/**Gibt den Typ des nächsten Tokens zurück (HTMLTokenizer.TT_TAG, TT_TEXT, TT_ENTITY oder
+	 * TT_EOF - auch bei nicht geschlossenen Tags oder Entitäten)
+	 * @return
+	 */
+	public int nextToken() {
+		if (pushedBack) {
+			pushedBack = false;
+			return ttype;
+		}
+		sval = null;
+		
+		//Leerraum zwischen Tokens überspringen
+		int p = pos;
+		char c = 0;
+		while (p < length && (c = text.charAt(p)) <= ' ') p++;
+		if (p >= length) {
+			pos = p;
+			return ttype = HTMLTokenizer.TT_EOF;
+		}
+		bpos = p;
+		
+		if (c == '<' || c == '&') { //Tag oder Entität: bis zum schließenden Zeichen
+			char stop = c == '<'?'>':';';
+			int q = p + 1;
+			while (q < length && (c = text.charAt(q)) != stop && c != 0) q++;
+			if (q >= length) { //nicht geschlossen
+				pos = q;
+				return ttype = HTMLTokenizer.TT_EOF;
+			}
+			tstart = p + 1;
+			tend = q;
+			epos = q + 1;
+			pos = q + 1;
+			return ttype = (stop == '>'?HTMLTokenizer.TT_TAG:HTMLTokenizer.TT_ENTITY);
+		}
+
+		//Text: bis zum nächsten Tag, Entität oder Leerraum
+		int q = p + 1;
+		while (q < length && (c = text.charAt(q)) > ' ' && c != '<' && c != '&') q++;
+		tstart = p;
+		tend = q;
+		epos = q;
+		pos = q;
+		return ttype = HTMLTokenizer.TT_TEXT;
+	}
+
+	/**Springt zum ersten Tag, das mit "body" beginnt - das nächste Token ist dann dieses Tag.
+	 * Tags und Entitäten davor werden genau wie von nextToken() übersprungen, damit z.B. ein
+	 * "<body" innerhalb eines Attributs nicht als Body erkannt wird.
+	 * @return false, falls kein Body gefunden wurde
+	 */
+	public boolean seekBody() {
+		int p = pos;
+		while (p < length) {
+			char c = text.charAt(p);
+			if (c == '<' || c == '&') {
+				if (c == '<' && regionMatches(p + 1, "body")) {
+					pos = p;
+					pushedBack = false;
+					return true;
+				}
+				char stop = c == '<'?'>':';';
+				int q = p + 1;
+				while (q < length && (c = text.charAt(q)) != stop && c != 0) q++;
+				p = q + 1;
+			} else p++;
+		}
+		pos = p;
+		return false;
+	}
+	
+	/**Prüft, ob an der Position im Dokument die Zeichenfolge steht
+	 * @param offset
+	 * @param s
+	 * @return
+	 */
+	private boolean regionMatches(int offset, String s) {
+		if (offset + s.length() > length) return false;
+		for (int i = 0; i < s.length(); i++)
+			if (text.charAt(offset + i) != s.charAt(i)) return false;
+		return true;
+	}
+
+	/**Gibt den Text des aktuellen Tokens zurück (ohne Klammern bzw. & und ;) oder null
+	 * @return
+	 */
+	public String getToken() {
+		if (ttype == TT_NOTHING || ttype == HTMLTokenizer.TT_EOF) return null;
+		if (sval == null) sval = text.subSequence(tstart, tend).toString();
+		return sval;
+	}
+	
+	/**Prüft, ob der Text des aktuellen Tokens mit prefix beginnt, ohne ihn zu erzeugen
+	 * @param prefix
+	 * @return
+	 */
+	public boolean tokenStartsWith(String prefix) {
+		if (ttype == TT_NOTHING || ttype == HTMLTokenizer.TT_EOF) return false;
+		return tend - tstart >= prefix.length() && regionMatches(tstart, prefix);
+	}
+	
+	/**Prüft, ob der Text des aktuellen Tokens gleich s ist, ohne ihn zu erzeugen
+	 * @param s
+	 * @return
+	 */
+	public boolean tokenEquals(String s) {
+		return tend - tstart == s.length() && tokenStartsWith(s);
+	}
+	
+	/**
+	 * @return Anfangsposition des aktuellen Tokens
+	 */
+	public int getBeginningPos() {
+		return bpos;
+	}
+
+	/**
+	 * @return Endposition des aktuellen Tokens
+	 */
+	public int getEndPos() {
+		return epos;
+	}
+
+	/**
+	 * Das aktuelle Token wird beim nächsten Aufruf von nextToken() noch einmal zurückgegeben
+	 */
+	public void pushBack() {
+		if (ttype != TT_NOTHING) pushedBack = true;
+	}
+
+	/* (Kein Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		switch (ttype) {
+		case HTMLTokenizer.TT_EOF: return "EOF";
+		case HTMLTokenizer.TT_TAG: return "TAG[" + getToken() + "](" + bpos + ":" + epos + ")";
+		case HTMLTokenizer.TT_ENTITY: return "ENTITY[" + EntityTransformer.decode("&" + getToken() + ";") + "](" + bpos + ":" + epos + ")";
+		case HTMLTokenizer.TT_TEXT: return "TEXT[" + getToken() + "](" + bpos + ":" + epos + ")";
+		default: return "NOTHING";
+		}
+	}
+}
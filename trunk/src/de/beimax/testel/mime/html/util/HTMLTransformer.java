@@ -23,6 +23,7 @@
 package de.beimax.testel.mime.html.util;
 
 import java.awt.Color;
+import java.awt.EventQueue;
 import java.awt.Image;
 import java.io.*;
 import java.net.URL;
@@ -35,13 +36,10 @@ import java.util.regex.Pattern;
 import javax.swing.ImageIcon;
 
 import org.lobobrowser.html.domimpl.*;
-import org.lobobrowser.html.gui.HtmlPanel;
-import org.lobobrowser.html.parser.DocumentBuilderImpl;
 import org.lobobrowser.html.parser.InputSourceImpl;
 import org.lobobrowser.html.style.CSS2PropertiesImpl;
 import org.lobobrowser.html.style.HtmlValues;
 import org.lobobrowser.html.style.RenderState;
-import org.lobobrowser.html.test.SimpleHtmlRendererContext;
 import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 
@@ -55,7 +53,7 @@ public class HTMLTransformer {
 	private static final Logger logger = Logger.getLogger(HTMLTransformer.class.getName());
 	
 	private HTMLDocumentImpl domdocument;
-	private SimpleHtmlRendererContext rendererContext;
+	private LoboContextPool.LoboContext context;
 
 	/**
 	 * @param args
@@ -71,38 +69,41 @@ public class HTMLTransformer {
 	public HTMLTransformer(String document, URL url) throws IOException, SAXException, InterruptedException {
 		InputSourceImpl is = new InputSourceImpl(new StringReader(document), url.toString());
 		
-		HtmlPanel htmlPanel = new HtmlPanel();
-		htmlPanel.setPreferredWidth(800);
-		rendererContext = new SimpleHtmlRendererContext(
-				htmlPanel);
-
-//		final JFrame frame = new JFrame();
-//		frame.getContentPane().add(htmlPanel);
-//		EventQueue.invokeLater(new Runnable() {
-//			public void run() {
-//				frame.pack();
-//				frame.setVisible(true);
-//			}
-//		});
-//
-		domdocument = (HTMLDocumentImpl) new DocumentBuilderImpl(
-				rendererContext.getUserAgentContext()).parse(is);
-		htmlPanel.setDocument(domdocument, rendererContext);
-		rendererContext.navigate(url, "_top");
-		String lobosleep = Config.getConfig("Lobo-Sleep");
-		int sleep;
-		if (lobosleep == null) sleep = 10000; //10s
-		else {
-			try {
-				sleep = Integer.parseInt(lobosleep);
-			} catch (NumberFormatException e) {
-				sleep = 10000; //10s
-			}
+		//Kontext aus dem Pool holen - wird mit release() zurückgegeben
+		context = LoboContextPool.lease();
+		boolean ok = false;
+		try {
+			domdocument = context.parse(is);
+			//Parsen läuft synchron (inkl. externer Skripte und onload) - danach nur noch auf
+			//Änderungen durch das Layout und Skript-Timer warten
+			LoadMonitor monitor = new LoadMonitor();
+			domdocument.addDocumentNotificationListener(monitor);
+			context.show(domdocument);
+			EventQueue.invokeLater(monitor); //meldet, wenn das Layout abgearbeitet wurde
+			
+			//Lobo-Sleep ist nur noch die Obergrenze
+			int timeout = Config.getConfigInt("Lobo-Sleep", 10000); //10s
+			int quiet = Config.getConfigInt("Lobo-Quiet", 250);
+			long waited = monitor.awaitCompletion(timeout, quiet);
+			domdocument.removeDocumentNotificationListener(monitor);
+			if (waited >= timeout && timeout > 0)
+				logger.warning("Lobo ist nach " + waited + "ms noch nicht fertig (Lobo-Sleep) - verwende aktuellen Stand von " + url);
+			else logger.info("Lobo hat " + url + " nach " + waited + "ms fertig bearbeitet");
+			ok = true;
+		} finally {
+			if (!ok) release();
 		}
-		logger.info("Thread schläft " + sleep + "ms, um Lobo Zeit zum parsen zu geben!");
-		Thread.sleep(sleep);
 	}
-
+	
+	/**
+	 * Gibt den Lobo-Kontext an den Pool zurück - danach ist nur noch transform() möglich
+	 */
+	public void release() {
+		if (context == null) return;
+		LoboContextPool.release(context);
+		context = null;
+	}
+	
 	public String transform() throws IOException {
 		//private Klasse aufrufen zum Erstellen des DOM-Durchlaufs,
 		//falls mehrere Threads...
@@ -110,6 +111,99 @@ public class HTMLTransformer {
 		return traverser.traverse();
 	}
 	
+	/**Wartet, bis Lobo mit einem Dokument fertig ist: das Layout wurde in der Ereignis-Warteschlange
+	 * abgearbeitet und das Dokument hat sich eine Zeit lang (Lobo-Quiet) nicht mehr verändert.
+	 * @author mkalus
+	 *
+	 */
+	private static class LoadMonitor implements DocumentNotificationListener, Runnable {
+		private long lastChange = System.currentTimeMillis();
+		private boolean laidOut = false;
+
+		/**Wartet auf das Ende der Bearbeitung
+		 * @param timeout Obergrenze in ms
+		 * @param quiet Zeit in ms, die sich das Dokument nicht mehr ändern darf
+		 * @return tatsächlich gewartete Zeit in ms
+		 * @throws InterruptedException
+		 */
+		public synchronized long awaitCompletion(long timeout, long quiet) throws InterruptedException {
+			long start = System.currentTimeMillis();
+			long deadline = start + timeout;
+			long now = start;
+			while (now < deadline) {
+				if (laidOut && now - lastChange >= quiet) break;
+				//bis zum Ende der Ruhezeit bzw. zur Obergrenze schlafen, Änderungen verlängern die Ruhezeit
+				wait((laidOut?Math.min(lastChange + quiet, deadline):deadline) - now);
+				now = System.currentTimeMillis();
+			}
+			return now - start;
+		}
+
+		/**Änderung am Dokument merken
+		 */
+		private synchronized void changed() {
+			lastChange = System.currentTimeMillis();
+		}
+
+		/* (Kein Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		public synchronized void run() {
+			laidOut = true;
+			lastChange = System.currentTimeMillis();
+			notifyAll();
+		}
+
+		/* (Kein Javadoc)
+		 * @see org.lobobrowser.html.domimpl.DocumentNotificationListener#allInvalidated()
+		 */
+		public void allInvalidated() {
+			changed();
+		}
+
+		/* (Kein Javadoc)
+		 * @see org.lobobrowser.html.domimpl.DocumentNotificationListener#externalScriptLoading(org.lobobrowser.html.domimpl.NodeImpl)
+		 */
+		public void externalScriptLoading(NodeImpl node) {
+			changed();
+		}
+
+		/* (Kein Javadoc)
+		 * @see org.lobobrowser.html.domimpl.DocumentNotificationListener#invalidated(org.lobobrowser.html.domimpl.NodeImpl)
+		 */
+		public void invalidated(NodeImpl node) {
+			changed();
+		}
+
+		/* (Kein Javadoc)
+		 * @see org.lobobrowser.html.domimpl.DocumentNotificationListener#lookInvalidated(org.lobobrowser.html.domimpl.NodeImpl)
+		 */
+		public void lookInvalidated(NodeImpl node) {
+			changed();
+		}
+
+		/* (Kein Javadoc)
+		 * @see org.lobobrowser.html.domimpl.DocumentNotificationListener#nodeLoaded(org.lobobrowser.html.domimpl.NodeImpl)
+		 */
+		public void nodeLoaded(NodeImpl node) {
+			changed();
+		}
+
+		/* (Kein Javadoc)
+		 * @see org.lobobrowser.html.domimpl.DocumentNotificationListener#positionInvalidated(org.lobobrowser.html.domimpl.NodeImpl)
+		 */
+		public void positionInvalidated(NodeImpl node) {
+			changed();
+		}
+
+		/* (Kein Javadoc)
+		 * @see org.lobobrowser.html.domimpl.DocumentNotificationListener#sizeInvalidated(org.lobobrowser.html.domimpl.NodeImpl)
+		 */
+		public void sizeInvalidated(NodeImpl node) {
+			changed();
+		}
+	}
+	
 	private class DocumentTraverser {
 		private StringWriter out;
 		private HashSet<String> noClosingTags;
@@ -0,0 +1,146 @@
+/**
+ * Datei: LoboContextPool.java
+ * Paket: de.beimax.testel.mime.html.util
+ * Projekt: TestEl
+ *
+ * Copyright (C) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package de.beimax.testel.mime.html.util;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.logging.Logger;
+
+import org.lobobrowser.html.domimpl.HTMLDocumentImpl;
+import org.lobobrowser.html.gui.HtmlPanel;
+import org.lobobrowser.html.parser.DocumentBuilderImpl;
+import org.lobobrowser.html.parser.InputSourceImpl;
+import org.lobobrowser.html.test.SimpleHtmlRendererContext;
+import org.xml.sax.SAXException;
+
+import de.beimax.testel.config.Config;
+
+/**Begrenzter Pool von Lobo-Kontexten (Panel, Renderer-Kontext und DocumentBuilder).
+ * Der Aufbau eines Kontexts ist teuer, daher werden die Kontexte an die Threads verliehen
+ * und nach jedem Dokument zurückgesetzt und wiederverwendet. Es werden höchstens
+ * Lobo-Pool Kontexte erzeugt (Standard: Anzahl der Prozessoren), weitere Threads warten,
+ * bis ein Kontext zurückgegeben wird.
+ * @author mkalus
+ *
+ */
+public class LoboContextPool {
+	//Logger
+	static final Logger logger = Logger.getLogger(LoboContextPool.class.getName());
+
+	/**
+	 * Freie Kontexte
+	 */
+	private static final LinkedList<LoboContext> idle = new LinkedList<LoboContext>();
+	
+	/**
+	 * Anzahl der bisher erzeugten Kontexte
+	 */
+	private static int created = 0;
+
+	/**Leiht einen Kontext aus - wartet, falls alle Kontexte verliehen sind
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public static LoboContext lease() throws InterruptedException {
+		synchronized (idle) {
+			while (idle.isEmpty() && created >= getPoolSize()) idle.wait();
+			if (!idle.isEmpty()) return idle.removeFirst();
+			created++;
+		}
+
+		//neuen Kontext außerhalb der Sperre erzeugen
+		boolean ok = false;
+		try {
+			LoboContext context = new LoboContext();
+			ok = true;
+			logger.fine("Neuer Lobo-Kontext erzeugt");
+			return context;
+		} finally {
+			if (!ok) synchronized (idle) {
+				created--;
+				idle.notify();
+			}
+		}
+	}
+
+	/**Gibt einen Kontext zurück, dieser wird dabei zurückgesetzt
+	 * @param context
+	 */
+	public static void release(LoboContext context) {
+		context.reset();
+		synchronized (idle) {
+			idle.addLast(context);
+			idle.notify();
+		}
+	}
+	
+	/**
+	 * @return maximale Anzahl der Kontexte
+	 */
+	private static int getPoolSize() {
+		return Math.max(1, Config.getConfigInt("Lobo-Pool", Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**Ein Lobo-Kontext
+	 * @author mkalus
+	 *
+	 */
+	public static class LoboContext {
+		private final HtmlPanel htmlPanel;
+		private final SimpleHtmlRendererContext rendererContext;
+		private final DocumentBuilderImpl builder;
+		
+		/** Konstruktor
+		 */
+		private LoboContext() {
+			htmlPanel = new HtmlPanel();
+			htmlPanel.setPreferredWidth(800);
+			rendererContext = new SimpleHtmlRendererContext(htmlPanel);
+			builder = new DocumentBuilderImpl(rendererContext.getUserAgentContext());
+		}
+		
+		/**Parst ein Dokument
+		 * @param is
+		 * @return
+		 * @throws IOException
+		 * @throws SAXException
+		 */
+		public HTMLDocumentImpl parse(InputSourceImpl is) throws IOException, SAXException {
+			return (HTMLDocumentImpl) builder.parse(is);
+		}
+		
+		/**Zeigt ein Dokument im Panel an (das Layout läuft in der Ereignis-Warteschlange)
+		 * @param document
+		 */
+		public void show(HTMLDocumentImpl document) {
+			htmlPanel.setDocument(document, rendererContext);
+		}
+		
+		/**
+		 * Entfernt das Dokument aus dem Panel
+		 */
+		private void reset() {
+			htmlPanel.clearDocument();
+		}
+	}
+}
@@ -25,6 +25,7 @@ package de.beimax.testel.mime.html.util;
 import java.io.*;
 import java.net.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Stack;
 import java.util.logging.Logger;
 
@@ -37,7 +38,8 @@ import de.beimax.testel.config.Config;
 import de.beimax.testel.exception.TestelParserException;
 import de.beimax.testel.util.IOHelper;
 
-/**Einfacher CSS-Parser, der vom Normalisierer evt. aufgerufen wird.
+/**Einfacher CSS-Parser, der vom Normalisierer evt. aufgerufen wird. Geparste Stylesheets
+ * werden im StylesheetCache abgelegt und von dort wiederverwendet.
  * @author mkalus
  *
  */
@@ -45,8 +47,19 @@ public class SimpleCSSParser extends HandlerBase {
 	private static final Logger logger = Logger.getLogger(SimpleCSSParser.class.getName());
 	private static final String PARSER = "com.steadystate.css.parser.SACParser";
 
-	//enthält bereits geparste Listen
-	private static ArrayList<URL> parsedStylesheets = new ArrayList<URL>();
+	//Stylesheets, die gerade (über @import verschachtelt) geparst werden - gegen Zyklen
+	private final HashSet<URL> importChain;
+	//alle Stylesheets, die im aktuellen Import-Baum schon eingebunden wurden - werden nicht
+	//noch einmal eingebunden (z.B. wenn zwei Imports dasselbe Stylesheet importieren)
+	private final HashSet<URL> visited;
+	//true, falls ein Import wegen eines Zyklus oder als schon eingebunden übersprungen wurde
+	//bzw. nicht geladen werden konnte
+	private boolean skipped = false;
+	private boolean failed = false;
+	//Dateien, aus denen das Stylesheet besteht, und deren Änderungsdaten
+	private ArrayList<URL> sources = new ArrayList<URL>();
+	private ArrayList<Long> modified = new ArrayList<Long>();
+	private final SimpleCSSParser parent;
 
 	private int _propertyCounter = 0;
 
@@ -61,25 +74,6 @@ public class SimpleCSSParser extends HandlerBase {
 	private Stack<Boolean> inMedia = new Stack<Boolean>();
 	boolean acceptMedia = true;
 
-	/**Statische Methode zum Verwalten der Liste schon bearbeiteter Methoden.
-	 * @param url
-	 * @return
-	 */
-	private static boolean addtoList(URL url) {
-		if (parsedStylesheets.contains(url)) {
-			return false;
-		}
-		parsedStylesheets.add(url);
-		return true;
-	}
-	
-	/**Statische Methode zum Leeren der Liste.
-	 * 
-	 */
-	public static void clearList() {
-		parsedStylesheets = new ArrayList<URL>();
-	}
-	
 	/**
 	 * Konstructor
 	 */
@@ -87,6 +81,20 @@ public class SimpleCSSParser extends HandlerBase {
 		stylesheet = "";
 		mediatype = Config.getConfig("CSS_mediatype"); //aus Konfiguration holen
 		if (mediatype == null) mediatype = "screen";
+		parent = null;
+		importChain = new HashSet<URL>();
+		visited = new HashSet<URL>();
+	}
+	
+	/**Konstruktor für importierte Stylesheets
+	 * @param parent Parser des importierenden Stylesheets
+	 */
+	private SimpleCSSParser(SimpleCSSParser parent) {
+		stylesheet = "";
+		mediatype = parent.getMediatype();
+		this.parent = parent;
+		importChain = parent.importChain;
+		visited = parent.visited;
 	}
 
 	/**Getter für Stylesheet
@@ -116,13 +124,62 @@ public class SimpleCSSParser extends HandlerBase {
 	 */
 	public String parse(URL url) throws TestelParserException, IOException {
 		String myurl = url.toString();
+		this.stylesheet = ""; //neu anlegen
+		this.sources = new ArrayList<URL>();
+		this.modified = new ArrayList<Long>();
+		this.skipped = false;
+		this.failed = false;
+		if (parent == null) visited.clear(); //neuer Import-Baum
+		
+		//Zyklus in den Importen?
+		if (importChain.contains(url)) {
+			logger.info("parse() " + myurl + " wird schon geparsed - überspringe.");
+			skipped = true;
+			return getStylesheet();
+		}
+		
+		//schon an anderer Stelle im Baum eingebunden?
+		if (visited.contains(url)) {
+			logger.info("parse() " + myurl + " wurde schon eingebunden - überspringe.");
+			skipped = true;
+			return getStylesheet();
+		}
 		
-		//Stylesheet in Liste einfügen - check, ob schon gemacht
-		if (!addtoList(url)) { //Aufruf statische Methode
-			logger.info("parse() " + myurl + " wurde schon geparsed - überspringe.");
+		//schon im Zwischenspeicher? Einträge, die schon eingebundene Stylesheets (auch aus der
+		//aktuellen Importkette) enthalten, passen hier nicht, da diese übersprungen werden müssen
+		String key = getMediatype() + " " + myurl;
+		StylesheetCache.Entry entry = StylesheetCache.get(key);
+		if (entry != null && !entry.containsAny(visited)) {
+			logger.info("Stylesheet " + myurl + " aus dem Zwischenspeicher übernommen.");
+			entry.addSourcesTo(sources, modified);
+			visited.addAll(sources);
+			this.stylesheet = entry.getStylesheet();
 			return getStylesheet();
 		}
 
+		importChain.add(url);
+		visited.add(url);
+		try {
+			parseStylesheet(url);
+		} finally {
+			importChain.remove(url);
+		}
+		
+		//Stylesheets mit übersprungenen Imports nur auf oberster Ebene ablegen, da sie sonst
+		//vom Rest des Baums abhängen - mit fehlenden Importen gar nicht
+		if (!failed && (!skipped || parent == null))
+			StylesheetCache.put(key, new StylesheetCache.Entry(getStylesheet(), sources, modified));
+		return getStylesheet();
+	}
+	
+	/**Lädt und parst ein Stylesheet
+	 * @param url
+	 * @throws TestelParserException
+	 * @throws IOException
+	 */
+	private void parseStylesheet(URL url) throws TestelParserException, IOException {
+		String myurl = url.toString();
+
 		//Instanzvariablen belegen
 		this.styleURL = url;
 		try {
@@ -131,13 +188,15 @@ public class SimpleCSSParser extends HandlerBase {
 			logger.warning("Basispfad von " + myurl + " konnte nicht bestimmt werden.");
 			throw new TestelParserException("Basispfad von " + myurl + " konnte nicht bestimmt werden.");
 		}
-		this.stylesheet = ""; //neu anlegen
 		
 		//Stylesheet laden
 		String sheet;
 		
 		try {
-			sheet = IOHelper.streamtoString(IOHelper.loadURL(url));
+			URLConnection connection = IOHelper.getConnection(url);
+			sources.add(url);
+			modified.add(connection.getLastModified());
+			sheet = IOHelper.streamtoString(connection.getInputStream());
 		} catch (IOException e1) {
 			logger.warning("Konnte Stylesheet " + myurl + " nicht laden.");
 			throw e1;
@@ -147,7 +206,7 @@ public class SimpleCSSParser extends HandlerBase {
 		//Überprüfung, ob die Datei tatsächlich CSS ist
 		if (IOHelper.HTMLcheck(sheet)) {
 			logger.warning(myurl + " ist eine HTML-Datei (evt. abgefangener 404-Fehler) - ignoriert.");
-			return getStylesheet();
+			return;
 		}
 		
 		//Parser starten
@@ -164,8 +223,6 @@ public class SimpleCSSParser extends HandlerBase {
 			logger.severe("CSS-Parser erzeugte Ausnahmefehler in " + myurl + ".");
 			throw new TestelParserException("CSS-Parser erzeugte Ausnahmefehler " + myurl + ".");
 		}
-		
-		return getStylesheet();
 	}
 	
 	/** Hauptmethode zum Parsen eines Stylesheets - String als Eingabe-Parameter
@@ -184,6 +241,15 @@ public class SimpleCSSParser extends HandlerBase {
 	}
 	
 	
+	/**Fügt die Dateien, aus denen das Stylesheet besteht, samt Änderungsdaten an Listen an
+	 * @param sources
+	 * @param modified
+	 */
+	private void addSourcesTo(ArrayList<URL> sources, ArrayList<Long> modified) {
+		sources.addAll(this.sources);
+		modified.addAll(this.modified);
+	}
+	
 	/* (Kein Javadoc)
 	 * @see com.steadystate.css.parser.HandlerBase#startDocument(org.w3c.css.sac.InputSource)
 	 */
@@ -236,14 +302,18 @@ public class SimpleCSSParser extends HandlerBase {
 		//Ok, nun Sheet laden
 		String newstylesheet = "";
 		logger.info("@import url(" + url.toString() + ")");
-		SimpleCSSParser parser = new SimpleCSSParser();
+		SimpleCSSParser parser = new SimpleCSSParser(this);
 		try {
 			newstylesheet = parser.parse(url);
+			parser.addSourcesTo(sources, modified);
+			if (parser.skipped) skipped = true;
+			if (parser.failed) failed = true;
 		} catch (TestelParserException e) {
 			logger.severe("Parse-Fehler in " + url.toString() + ".");
 			throw new CSSException();
 		} catch (IOException e) {
 			logger.info("Konnte " + url.toString() + " nicht laden - ignoriert.");
+			failed = true;
 			return;
 		}
 		
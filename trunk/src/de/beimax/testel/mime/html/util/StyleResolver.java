@@ -0,0 +1,653 @@
+/**
+ * Datei: StyleResolver.java
+ * Paket: de.beimax.testel.mime.html.util
+ * Projekt: TestEl
+ *
+ * Copyright (C) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package de.beimax.testel.mime.html.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.CSSException;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.InputSource;
+import org.w3c.css.sac.LexicalUnit;
+import org.w3c.css.sac.SACMediaList;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+
+import com.steadystate.css.parser.HandlerBase;
+import com.steadystate.css.parser.SACParser;
+
+import de.beimax.testel.config.Config;
+import de.beimax.testel.exception.TestelParserException;
+
+/**Kaskade für die wenigen CSS-Eigenschaften, die der HTMLStatistician auswertet (font-size,
+ * font-family, font-weight, font-style, text-decoration und die Kurzschreibweise font).
+ * Stylesheets werden mit dem SAC-Parser aus Cobra gelesen, wobei nur Deklarationen dieser
+ * Eigenschaften behalten werden. Die Regeln werden nach Id, Klasse bzw. Tag des letzten
+ * einfachen Selektors indiziert, so dass für ein Element nur die Regeln geprüft werden, die
+ * überhaupt passen können.
+ * 
+ * Unterstützt werden Tag, Id, Klassen, :link/:visited sowie Nachfahren- und Kind-Selektoren.
+ * Selektoren mit Attributen, Geschwistern oder anderen Pseudoklassen passen nie.
+ * @author mkalus
+ *
+ */
+public class StyleResolver {
+	//Logger
+	static final Logger logger = Logger.getLogger(StyleResolver.class.getName());
+
+	/**
+	 * Übersetzte Regeln zu Stylesheet-Texten - bleiben erhalten, solange der Text z.B. im
+	 * StylesheetCache liegt
+	 */
+	private static final Map<String, CompiledSheet> compiled = Collections.synchronizedMap(new WeakHashMap<String, CompiledSheet>());
+
+	/**
+	 * Regeln nach Schlüssel des letzten einfachen Selektors
+	 */
+	private final HashMap<String, ArrayList<Rule>> byId = new HashMap<String, ArrayList<Rule>>();
+	private final HashMap<String, ArrayList<Rule>> byClass = new HashMap<String, ArrayList<Rule>>();
+	private final HashMap<String, ArrayList<Rule>> byTag = new HashMap<String, ArrayList<Rule>>();
+	private final ArrayList<Rule> universal = new ArrayList<Rule>();
+
+	/**
+	 * Anzahl der bisher aufgenommenen Regeln (für die Reihenfolge in der Kaskade)
+	 */
+	private int ruleCount = 0;
+
+	/**Nimmt ein verlinktes Stylesheet auf - dieses wird über den SimpleCSSParser (und damit
+	 * den StylesheetCache) geladen
+	 * @param url
+	 */
+	public void addStylesheet(URL url) {
+		try {
+			addStylesheet(new SimpleCSSParser().parse(url), url);
+		} catch (TestelParserException e) {
+			logger.warning("CSS " + url + " konnte nicht korrekt geparst werden -- ignoriere es deshalb.");
+		} catch (IOException e) {
+			logger.warning("Konnte Stylesheet " + url + " nicht laden:\n" + e.getLocalizedMessage());
+		}
+	}
+
+	/**Nimmt die Regeln eines Stylesheets auf - spätere Stylesheets haben bei gleicher
+	 * Spezifität Vorrang. @import-Anweisungen werden zuerst aufgenommen.
+	 * @param stylesheet CSS-Text
+	 * @param base URL, gegen die @import-Anweisungen aufgelöst werden
+	 */
+	public void addStylesheet(String stylesheet, URL base) {
+		CompiledSheet sheet = compiled.get(stylesheet);
+		if (sheet == null) {
+			sheet = compile(stylesheet);
+			compiled.put(stylesheet, sheet);
+		}
+
+		for (int i = 0; i < sheet.imports.length; i++) {
+			try {
+				addStylesheet(base == null?new URL(sheet.imports[i]):new URL(base, sheet.imports[i]));
+			} catch (MalformedURLException e) {
+				logger.info("Fehlerhafte URL " + sheet.imports[i] + " - ignoriert.");
+			}
+		}
+
+		Rule[] rules = sheet.rules;
+		for (int i = 0; i < rules.length; i++) {
+			Rule rule = rules[i];
+			Compound key = rule.compounds[rule.compounds.length - 1];
+			int order = ruleCount++;
+			if (key.id != null) addIndexed(byId, key.id, rule, order);
+			else if (key.classes.length > 0) addIndexed(byClass, key.classes[0], rule, order);
+			else if (key.tag != null) addIndexed(byTag, key.tag, rule, order);
+			else universal.add(rule.at(order));
+		}
+	}
+
+	/**Fügt eine Regel einem Index hinzu
+	 * @param index
+	 * @param key
+	 * @param rule
+	 * @param order
+	 */
+	private static void addIndexed(HashMap<String, ArrayList<Rule>> index, String key, Rule rule, int order) {
+		ArrayList<Rule> list = index.get(key);
+		if (list == null) {
+			list = new ArrayList<Rule>();
+			index.put(key, list);
+		}
+		list.add(rule.at(order));
+	}
+
+	/**
+	 * @return true, falls keine Regeln vorhanden sind
+	 */
+	public boolean isEmpty() {
+		return ruleCount == 0;
+	}
+
+	/**Sucht alle Deklarationen, die für ein Element gelten, in der Reihenfolge der Kaskade:
+	 * zuerst alle normalen, dann alle mit !important, jeweils nach Spezifität und Reihenfolge
+	 * @param node Element
+	 * @return
+	 */
+	public ArrayList<Declaration> match(Node node) {
+		ArrayList<Rule> matches = new ArrayList<Rule>();
+		if (node.id != null) collect(byId.get(node.id), node, matches);
+		for (int i = 0; i < node.classes.length; i++)
+			collect(byClass.get(node.classes[i]), node, matches);
+		collect(byTag.get(node.name), node, matches);
+		collect(universal, node, matches);
+
+		ArrayList<Declaration> declarations = new ArrayList<Declaration>();
+		if (matches.isEmpty()) return declarations;
+		Collections.sort(matches);
+		for (int pass = 0; pass < 2; pass++)
+			for (int i = 0; i < matches.size(); i++) {
+				Declaration[] decls = matches.get(i).declarations;
+				for (int j = 0; j < decls.length; j++)
+					if (decls[j].important == (pass == 1)) declarations.add(decls[j]);
+			}
+		return declarations;
+	}
+
+	/**Nimmt passende Regeln aus einer Liste auf - jede Regel steht nur in einem Index und
+	 * die Klassen eines Elements sind eindeutig, daher gibt es keine doppelten Treffer
+	 * @param rules
+	 * @param node
+	 * @param matches
+	 */
+	private static void collect(ArrayList<Rule> rules, Node node, ArrayList<Rule> matches) {
+		if (rules == null) return;
+		for (int i = 0; i < rules.size(); i++) {
+			Rule rule = rules.get(i);
+			if (rule.matches(node)) matches.add(rule);
+		}
+	}
+
+	/**Prüft ein media-Attribut gegen den Medientyp aus CSS_mediatype
+	 * @param media Wert des Attributs oder null
+	 * @return true, falls das Stylesheet gilt
+	 */
+	public static boolean acceptMedia(String media) {
+		if (media == null || media.trim().length() == 0) return true;
+		String mediatype = getMediatype();
+		String[] types = media.split(",");
+		for (int i = 0; i < types.length; i++) {
+			String type = types[i].trim();
+			if (type.equalsIgnoreCase(mediatype) || type.equalsIgnoreCase("all")) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return Medientyp aus der Konfiguration (Standard: screen)
+	 */
+	private static String getMediatype() {
+		String mediatype = Config.getConfig("CSS_mediatype");
+		return mediatype == null?"screen":mediatype;
+	}
+
+	/**Übersetzt ein Stylesheet in Regeln
+	 * @param stylesheet
+	 * @return
+	 */
+	private static CompiledSheet compile(String stylesheet) {
+		RuleCollector collector = new RuleCollector();
+		try {
+			SACParser parser = new SACParser();
+			parser.setDocumentHandler(collector);
+			parser.parseStyleSheet(new InputSource(new StringReader(stylesheet)));
+		} catch (Exception e) {
+			logger.warning("CSS-Parser erzeugte Ausnahmefehler - verwende die bis dahin gelesenen Regeln:\n" + e.getLocalizedMessage());
+		}
+		return new CompiledSheet(collector.rules.toArray(new Rule[collector.rules.size()]),
+				collector.imports.toArray(new String[collector.imports.size()]));
+	}
+
+	/**Übersetztes Stylesheet: Regeln und URIs der @import-Anweisungen
+	 * @author mkalus
+	 *
+	 */
+	private static class CompiledSheet {
+		final Rule[] rules;
+		final String[] imports;
+
+		CompiledSheet(Rule[] rules, String[] imports) {
+			this.rules = rules;
+			this.imports = imports;
+		}
+	}
+
+	/**Element, für das Regeln gesucht werden
+	 * @author mkalus
+	 *
+	 */
+	public static class Node {
+		final String name;
+		final String id;
+		final String[] classes;
+		final boolean link;
+		final Node parent;
+
+		/** Konstruktor
+		 * @param name Tagname (klein geschrieben)
+		 * @param id Wert des id-Attributs oder null
+		 * @param classes Wert des class-Attributs oder null
+		 * @param link true für Verweise (a mit href)
+		 * @param parent Elternelement oder null
+		 */
+		public Node(String name, String id, String classes, boolean link, Node parent) {
+			this.name = name;
+			this.id = id == null || id.trim().length() == 0?null:id.trim();
+			if (classes == null || classes.trim().length() == 0) this.classes = new String[0];
+			else {
+				ArrayList<String> list = new ArrayList<String>();
+				String[] split = classes.trim().split("\\s+");
+				for (int i = 0; i < split.length; i++)
+					if (!list.contains(split[i])) list.add(split[i]);
+				this.classes = list.toArray(new String[list.size()]);
+			}
+			this.link = link;
+			this.parent = parent;
+		}
+
+		/**
+		 * @param clazz
+		 * @return true, falls das Element die Klasse hat
+		 */
+		boolean hasClass(String clazz) {
+			for (int i = 0; i < classes.length; i++)
+				if (classes[i].equals(clazz)) return true;
+			return false;
+		}
+	}
+
+	/**Eine Deklaration (Eigenschaft und Wert)
+	 * @author mkalus
+	 *
+	 */
+	public static class Declaration {
+		private final String property;
+		private final String value;
+		private final boolean important;
+
+		Declaration(String property, String value, boolean important) {
+			this.property = property;
+			this.value = value;
+			this.important = important;
+		}
+
+		/**Getter für property
+		 * @return
+		 */
+		public String getProperty() {
+			return property;
+		}
+
+		/**Getter für value
+		 * @return
+		 */
+		public String getValue() {
+			return value;
+		}
+
+		/**Getter für important
+		 * @return
+		 */
+		public boolean isImportant() {
+			return important;
+		}
+	}
+
+	/**Einfacher Selektor: Tag, Id, Klassen
+	 * @author mkalus
+	 *
+	 */
+	private static class Compound {
+		String tag = null;
+		String id = null;
+		String[] classes = new String[0];
+		boolean link = false;
+		boolean never = false; //nicht unterstützte Bedingung
+
+		/**
+		 * @param node
+		 * @return true, falls der Selektor auf das Element passt
+		 */
+		boolean matches(Node node) {
+			if (never) return false;
+			if (tag != null && !tag.equals(node.name)) return false;
+			if (id != null && !id.equals(node.id)) return false;
+			if (link && !node.link) return false;
+			for (int i = 0; i < classes.length; i++)
+				if (!node.hasClass(classes[i])) return false;
+			return true;
+		}
+
+		/**
+		 * @return Spezifität (Ids, Klassen, Tags jeweils mit 8 Bit)
+		 */
+		int specificity() {
+			return (id != null?1 << 16:0) + ((classes.length + (link?1:0)) << 8) + (tag != null?1:0);
+		}
+	}
+
+	/**Regel mit einem Selektor (Selektorlisten werden aufgeteilt)
+	 * @author mkalus
+	 *
+	 */
+	private static class Rule implements Comparable<Rule> {
+		/**
+		 * einfache Selektoren von links nach rechts
+		 */
+		final Compound[] compounds;
+		/**
+		 * child[i] ist true, falls compounds[i] Elternelement (nicht nur Vorfahre) von
+		 * compounds[i + 1] sein muss
+		 */
+		final boolean[] child;
+		final Declaration[] declarations;
+		final int specificity;
+		final int order;
+
+		Rule(Compound[] compounds, boolean[] child, Declaration[] declarations, int order) {
+			this.compounds = compounds;
+			this.child = child;
+			this.declarations = declarations;
+			int s = 0;
+			for (int i = 0; i < compounds.length; i++) s += compounds[i].specificity();
+			this.specificity = s;
+			this.order = order;
+		}
+
+		/**Kopie mit neuer Position in der Kaskade (übersetzte Regeln werden geteilt)
+		 * @param order
+		 * @return
+		 */
+		Rule at(int order) {
+			return new Rule(compounds, child, declarations, order);
+		}
+
+		/**
+		 * @param node
+		 * @return true, falls der Selektor auf das Element passt
+		 */
+		boolean matches(Node node) {
+			int last = compounds.length - 1;
+			if (!compounds[last].matches(node)) return false;
+			return matchesAncestors(last - 1, node.parent);
+		}
+
+		/**Prüft die Selektoren links von einem Element gegen dessen Vorfahren
+		 * @param index zu prüfender Selektor
+		 * @param node Elternelement
+		 * @return
+		 */
+		private boolean matchesAncestors(int index, Node node) {
+			if (index < 0) return true;
+			if (child[index]) return node != null && compounds[index].matches(node) && matchesAncestors(index - 1, node.parent);
+			for (; node != null; node = node.parent)
+				if (compounds[index].matches(node) && matchesAncestors(index - 1, node.parent)) return true;
+			return false;
+		}
+
+		/* (Kein Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo(Rule o) {
+			if (specificity != o.specificity) return specificity < o.specificity?-1:1;
+			return order < o.order?-1:(order == o.order?0:1);
+		}
+	}
+
+	/**Sammelt beim Parsen die Regeln mit den relevanten Eigenschaften
+	 * @author mkalus
+	 *
+	 */
+	private static class RuleCollector extends HandlerBase {
+		final ArrayList<Rule> rules = new ArrayList<Rule>();
+		final ArrayList<String> imports = new ArrayList<String>();
+		private final String mediatype;
+		private ArrayList<Declaration> declarations = null;
+		private int depthIgnored = 0; //Verschachtelung in ausgeschlossenen @media/@page/@font-face
+
+		RuleCollector() {
+			mediatype = getMediatype();
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#importStyle(java.lang.String, org.w3c.css.sac.SACMediaList, java.lang.String)
+		 */
+		@Override
+		public void importStyle(String uri, SACMediaList media, String defaultNamespaceURI) throws CSSException {
+			if (acceptMedia(media)) imports.add(uri);
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#startMedia(org.w3c.css.sac.SACMediaList)
+		 */
+		@Override
+		public void startMedia(SACMediaList media) throws CSSException {
+			if (depthIgnored > 0 || !acceptMedia(media)) depthIgnored++;
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#endMedia(org.w3c.css.sac.SACMediaList)
+		 */
+		@Override
+		public void endMedia(SACMediaList media) throws CSSException {
+			if (depthIgnored > 0) depthIgnored--;
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#startPage(java.lang.String, java.lang.String)
+		 */
+		@Override
+		public void startPage(String name, String pseudo_page) throws CSSException {
+			depthIgnored++;
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#endPage(java.lang.String, java.lang.String)
+		 */
+		@Override
+		public void endPage(String name, String pseudo_page) throws CSSException {
+			depthIgnored--;
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#startFontFace()
+		 */
+		@Override
+		public void startFontFace() throws CSSException {
+			depthIgnored++;
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#endFontFace()
+		 */
+		@Override
+		public void endFontFace() throws CSSException {
+			depthIgnored--;
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#startSelector(org.w3c.css.sac.SelectorList)
+		 */
+		@Override
+		public void startSelector(SelectorList selectors) throws CSSException {
+			declarations = new ArrayList<Declaration>();
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#property(java.lang.String, org.w3c.css.sac.LexicalUnit, boolean)
+		 */
+		@Override
+		public void property(String name, LexicalUnit value, boolean important) throws CSSException {
+			if (declarations == null || depthIgnored > 0) return;
+			name = name.toLowerCase();
+			if (!name.startsWith("font") && !name.startsWith("text-decoration")) return;
+			declarations.add(new Declaration(name, valueToString(value), important));
+		}
+
+		/* (Kein Javadoc)
+		 * @see com.steadystate.css.parser.HandlerBase#endSelector(org.w3c.css.sac.SelectorList)
+		 */
+		@Override
+		public void endSelector(SelectorList selectors) throws CSSException {
+			if (depthIgnored == 0 && !declarations.isEmpty()) {
+				Declaration[] decls = declarations.toArray(new Declaration[declarations.size()]);
+				for (int i = 0; i < selectors.getLength(); i++) {
+					Rule rule = compileSelector(selectors.item(i), decls);
+					if (rule != null) rules.add(rule);
+				}
+			}
+			declarations = null;
+		}
+
+		/**Prüft, ob eine Medienliste den Medientyp (oder all) enthält
+		 * @param media
+		 * @return
+		 */
+		private boolean acceptMedia(SACMediaList media) {
+			if (media.getLength() == 0) return true;
+			for (int i = 0; i < media.getLength(); i++)
+				if (media.item(i).equalsIgnoreCase(mediatype) || media.item(i).equalsIgnoreCase("all"))
+					return true;
+			return false;
+		}
+	}
+
+	/**Wert einer Deklaration als Text - Kommas und Schrägstriche ohne Leerzeichen davor
+	 * @param value
+	 * @return
+	 */
+	static String valueToString(LexicalUnit value) {
+		StringBuilder buffer = new StringBuilder();
+		boolean space = false;
+		for (LexicalUnit unit = value; unit != null; unit = unit.getNextLexicalUnit()) {
+			short type = unit.getLexicalUnitType();
+			if (type == LexicalUnit.SAC_OPERATOR_COMMA) {
+				buffer.append(',');
+				space = true;
+			} else if (type == LexicalUnit.SAC_OPERATOR_SLASH) {
+				buffer.append('/');
+				space = false;
+			} else {
+				if (space) buffer.append(' ');
+				buffer.append(unit.toString());
+				space = true;
+			}
+		}
+		return buffer.toString();
+	}
+
+	/**Übersetzt einen Selektor
+	 * @param selector
+	 * @param declarations
+	 * @return Regel oder null, falls der Selektor nicht unterstützt wird
+	 */
+	private static Rule compileSelector(Selector selector, Declaration[] declarations) {
+		ArrayList<Compound> compounds = new ArrayList<Compound>();
+		ArrayList<Boolean> child = new ArrayList<Boolean>();
+
+		//von rechts nach links durch die Kombinatoren
+		while (selector.getSelectorType() == Selector.SAC_DESCENDANT_SELECTOR
+				|| selector.getSelectorType() == Selector.SAC_CHILD_SELECTOR) {
+			DescendantSelector descendant = (DescendantSelector) selector;
+			Compound compound = compileSimple(descendant.getSimpleSelector());
+			if (compound == null) return null;
+			compounds.add(0, compound);
+			child.add(0, selector.getSelectorType() == Selector.SAC_CHILD_SELECTOR);
+			selector = descendant.getAncestorSelector();
+		}
+		Compound compound = compileSimple(selector);
+		if (compound == null) return null;
+		compounds.add(0, compound);
+		for (int i = 0; i < compounds.size(); i++)
+			if (compounds.get(i).never) return null;
+
+		boolean[] childArray = new boolean[child.size()];
+		for (int i = 0; i < childArray.length; i++) childArray[i] = child.get(i);
+		return new Rule(compounds.toArray(new Compound[compounds.size()]), childArray, declarations, 0);
+	}
+
+	/**Übersetzt einen einfachen Selektor
+	 * @param selector
+	 * @return
+	 */
+	private static Compound compileSimple(Selector selector) {
+		Compound compound = new Compound();
+		if (selector.getSelectorType() == Selector.SAC_CONDITIONAL_SELECTOR) {
+			ConditionalSelector conditional = (ConditionalSelector) selector;
+			addCondition(compound, conditional.getCondition());
+			selector = conditional.getSimpleSelector();
+		}
+		if (selector.getSelectorType() != Selector.SAC_ELEMENT_NODE_SELECTOR) return null;
+		String tag = ((ElementSelector) selector).getLocalName();
+		if (tag != null && !tag.equals("*")) compound.tag = tag.toLowerCase();
+		return compound;
+	}
+
+	/**Übernimmt eine Bedingung in einen einfachen Selektor
+	 * @param compound
+	 * @param condition
+	 */
+	private static void addCondition(Compound compound, Condition condition) {
+		switch (condition.getConditionType()) {
+		case Condition.SAC_AND_CONDITION:
+			addCondition(compound, ((CombinatorCondition) condition).getFirstCondition());
+			addCondition(compound, ((CombinatorCondition) condition).getSecondCondition());
+			break;
+		case Condition.SAC_ID_CONDITION:
+			String id = ((AttributeCondition) condition).getValue();
+			if (compound.id != null && !compound.id.equals(id)) compound.never = true;
+			compound.id = id;
+			break;
+		case Condition.SAC_CLASS_CONDITION:
+			String[] classes = new String[compound.classes.length + 1];
+			System.arraycopy(compound.classes, 0, classes, 0, compound.classes.length);
+			classes[compound.classes.length] = ((AttributeCondition) condition).getValue();
+			compound.classes = classes;
+			break;
+		case Condition.SAC_PSEUDO_CLASS_CONDITION:
+			String pseudo = ((AttributeCondition) condition).getValue();
+			if (pseudo != null && (pseudo.equalsIgnoreCase("link") || pseudo.equalsIgnoreCase("visited")))
+				compound.link = true;
+			else compound.never = true; //dynamische und strukturelle Pseudoklassen
+			break;
+		default:
+			compound.never = true;
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/**
+ * Datei: StylesheetCache.java
+ * Paket: de.beimax.testel.mime.html.util
+ * Projekt: TestEl
+ *
+ * Copyright (C) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ */
+package de.beimax.testel.mime.html.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import de.beimax.testel.config.Config;
+
+/**Zwischenspeicher für geladene und geparste Stylesheets, den sich alle Normalisierer
+ * teilen. Schlüssel ist die absolute URL (samt Medientyp), gespeichert wird das Stylesheet
+ * mit allen aufgelösten @import-Anweisungen. Der Speicher hält höchstens CSS_cachesize
+ * Einträge und verwirft die am längsten nicht benutzten zuerst.
+ * 
+ * Ein Eintrag wird CSS_cachecheck ms lang ohne Prüfung verwendet, danach wird anhand
+ * von Änderungsdatum bzw. Last-Modified aller beteiligten Dateien geprüft, ob er noch
+ * aktuell ist. Einträge ohne Änderungsdatum werden dann verworfen.
+ * @author mkalus
+ *
+ */
+public class StylesheetCache {
+	//Logger
+	static final Logger logger = Logger.getLogger(StylesheetCache.class.getName());
+
+	/**
+	 * Einträge in der Reihenfolge des letzten Zugriffs
+	 */
+	private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, StylesheetCache.Entry> eldest) {
+			return size() > getCacheSize();
+		}
+	};
+
+	/**Gibt einen gültigen Eintrag zurück oder null
+	 * @param key
+	 * @return
+	 */
+	public static Entry get(String key) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry == null) return null;
+
+		//Prüfung außerhalb der Sperre, da dafür evt. Anfragen an den Server gehen
+		if (entry.isValid()) return entry;
+		logger.fine("Stylesheet " + key + " hat sich geändert - lade neu");
+		synchronized (entries) {
+			if (entries.get(key) == entry) entries.remove(key);
+		}
+		return null;
+	}
+
+	/**Legt einen Eintrag ab
+	 * @param key
+	 * @param entry
+	 */
+	public static void put(String key, Entry entry) {
+		synchronized (entries) {
+			entries.put(key, entry);
+		}
+	}
+
+	/**
+	 * Leert den Zwischenspeicher
+	 */
+	public static void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return maximale Anzahl der Einträge
+	 */
+	private static int getCacheSize() {
+		return Math.max(1, Config.getConfigInt("CSS_cachesize", 64));
+	}
+
+	/**Änderungsdatum einer Datei bzw. Last-Modified einer URL
+	 * @param url
+	 * @return Datum, 0 falls unbekannt oder -1 bei Fehlern
+	 */
+	static long getLastModified(URL url) {
+		//lokale Datei direkt abfragen - der Pfad muss dabei wie beim Laden dekodiert werden
+		//(%20 usw.), sonst stimmt das Datum nie mit dem gespeicherten überein
+		if (url.getProtocol().equals("file")) {
+			try {
+				return new File(url.toURI()).lastModified();
+			} catch (URISyntaxException e) {
+				//ungültige URI: über die Verbindung abfragen
+			} catch (IllegalArgumentException e) {
+				//keine lokale Datei: über die Verbindung abfragen
+			}
+		}
+		try {
+			URLConnection connection = url.openConnection();
+			if (connection instanceof HttpURLConnection) {
+				HttpURLConnection hc = (HttpURLConnection) connection;
+				hc.setRequestMethod("HEAD");
+				hc.setRequestProperty("User-Agent", "Mozilla/4.0 (compatible;) Testel");
+				long modified = hc.getLastModified();
+				hc.disconnect();
+				return modified;
+			}
+			return connection.getLastModified();
+		} catch (IOException e) {
+			logger.fine("Konnte Änderungsdatum von " + url + " nicht abfragen:\n" + e.getLocalizedMessage());
+			return -1;
+		}
+	}
+
+	/**Ein gespeichertes Stylesheet samt den Dateien, aus denen es besteht
+	 * @author mkalus
+	 *
+	 */
+	public static class Entry {
+		private final String stylesheet;
+		private final URL[] sources;
+		private final long[] modified;
+
+		/**
+		 * Zeitpunkt der letzten Prüfung
+		 */
+		private volatile long checked;
+
+		/** Konstruktor
+		 * @param stylesheet
+		 * @param sources beteiligte Dateien (Stylesheet und Importe)
+		 * @param modified deren Änderungsdaten
+		 */
+		public Entry(String stylesheet, List<URL> sources, List<Long> modified) {
+			this.stylesheet = stylesheet;
+			this.sources = sources.toArray(new URL[sources.size()]);
+			this.modified = new long[modified.size()];
+			for (int i = 0; i < this.modified.length; i++) this.modified[i] = modified.get(i);
+			this.checked = System.currentTimeMillis();
+		}
+
+		/**Getter für stylesheet
+		 * @return
+		 */
+		public String getStylesheet() {
+			return stylesheet;
+		}
+
+		/**Fügt die beteiligten Dateien und deren Änderungsdaten an Listen an
+		 * @param sources
+		 * @param modified
+		 */
+		public void addSourcesTo(List<URL> sources, List<Long> modified) {
+			for (int i = 0; i < this.sources.length; i++) {
+				sources.add(this.sources[i]);
+				modified.add(this.modified[i]);
+			}
+		}
+
+		/**Prüft, ob eine der Dateien an dem Stylesheet beteiligt ist
+		 * @param urls
+		 * @return
+		 */
+		public boolean containsAny(Collection<URL> urls) {
+			if (urls.isEmpty()) return false;
+			for (int i = 0; i < sources.length; i++)
+				if (urls.contains(sources[i])) return true;
+			return false;
+		}
+
+		/**Prüft, ob der Eintrag noch aktuell ist
+		 * @return
+		 */
+		boolean isValid() {
+			long now = System.currentTimeMillis();
+			if (now - checked < Config.getConfigInt("CSS_cachecheck", 60000)) return true;
+
+			for (int i = 0; i < sources.length; i++)
+				if (modified[i] <= 0 || getLastModified(sources[i]) != modified[i]) return false;
+			checked = now;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * Datei: AnnotationIndex.java
+ * Paket: de.beimax.testel.token
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.token;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import de.beimax.testel.token.impl.TestElTag;
+
+/**Standoff-Annotationsschicht eines Dokuments: ein Intervallindex über die Zeichenpositionen
+ * aller TestEl-Annotationen (tag, match, ref). Eine Annotation wird durch ihr Starttag
+ * vertreten, das über getReference() mit dem Endtag verbunden ist - das Intervall reicht
+ * vom Anfang des Starttags bis zum Ende des Endtags.
+ * Da der Index nur Zeichenpositionen und keine Listenpositionen enthält, muss beim Einfügen
+ * in die TokenList nichts verschoben werden: eine neue Annotation wird einfach angehängt.
+ * Die Tags selbst bleiben zusätzlich in der Liste, weil die Klassifizierer innere Tags als
+ * Merkmale verwenden.
+ * @author mkalus
+ *
+ */
+public class AnnotationIndex {
+	/**
+	 * Dokumentreihenfolge: nach Anfang aufsteigend, bei gleichem Anfang die äußere
+	 * Annotation zuerst
+	 */
+	private static final Comparator<Token> DOCUMENT_ORDER = new Comparator<Token>() {
+		public int compare(Token o1, Token o2) {
+			int b1 = o1.getTextPosition().getBpos(), b2 = o2.getTextPosition().getBpos();
+			if (b1 != b2) return b1 < b2?-1:1;
+			int e1 = end(o1), e2 = end(o2);
+			return e1 > e2?-1:(e1 == e2?0:1);
+		}
+	};
+
+	/**
+	 * Starttags aller Annotationen, sortiert, falls sorted gesetzt ist
+	 */
+	private final ArrayList<Token> annotations = new ArrayList<Token>();
+	private boolean sorted = true;
+
+	/**
+	 * Starttags nach Klassen
+	 */
+	private final HashMap<String, ArrayList<Token>> classes = new HashMap<String, ArrayList<Token>>();
+
+	/**Konstruktor - übernimmt die Annotationen, die schon in der Liste stehen (z.B. aus
+	 * dem Markup des Dokuments)
+	 * @param list
+	 */
+	AnnotationIndex(TokenList list) {
+		for (int i = 0; i < list.size(); i++) {
+			Token tok = list.get(i);
+			if (tok instanceof TestElTag && tok.getName().charAt(0) != '/' && tok.getReference() != null
+					&& tok.getTextPosition() != null && tok.getReference().getTextPosition() != null)
+				add(tok);
+		}
+	}
+
+	/**Nimmt eine Annotation auf - Start- und Endtag müssen schon Positionen und
+	 * gegenseitige Referenzen besitzen
+	 * @param startTag
+	 */
+	public void add(Token startTag) {
+		if (sorted && !annotations.isEmpty() && DOCUMENT_ORDER.compare(annotations.get(annotations.size()-1), startTag) > 0)
+			sorted = false;
+		annotations.add(startTag);
+
+		ArrayList<Token> list = classes.get(startTag.getClassName());
+		if (list == null) {
+			list = new ArrayList<Token>();
+			classes.put(startTag.getClassName(), list);
+		}
+		list.add(startTag);
+	}
+
+	/**Anzahl der Annotationen
+	 * @return
+	 */
+	public int size() {
+		return annotations.size();
+	}
+
+	/**Gibt die Starttags aller Annotationen in Dokumentreihenfolge zurück
+	 * @return
+	 */
+	public List<Token> getAnnotations() {
+		if (!sorted) {
+			//stabil sortieren: gleiche Intervalle bleiben in der Reihenfolge ihres Einfügens
+			Collections.sort(annotations, DOCUMENT_ORDER);
+			sorted = true;
+		}
+		return Collections.unmodifiableList(annotations);
+	}
+
+	/**Prüft, ob ein Token, das an der Zeichenposition beginnt, innerhalb eines Tags oder
+	 * Matches der Klasse liegt, nach dessen Anfang keine Annotation dieser Klasse mehr
+	 * geendet hat. Treffen Ende und Anfang an einer Stelle zusammen, zählt das Ende als
+	 * früher - wie in der Liste, wo Endtags hinter dem letzten und Starttags vor dem ersten
+	 * Token ihres Bereichs stehen.
+	 * @param className
+	 * @param position
+	 * @return
+	 */
+	public boolean isNested(String className, int position) {
+		ArrayList<Token> list = classes.get(className);
+		if (list == null) return false;
+
+		//letztes Ende einer Annotation der Klasse vor der Position
+		int lastEnd = -1;
+		for (int i = 0; i < list.size(); i++) {
+			int end = end(list.get(i));
+			if (end <= position && end > lastEnd) lastEnd = end;
+		}
+		//einschließendes Tag danach?
+		for (int i = 0; i < list.size(); i++) {
+			Token tok = list.get(i);
+			int type = TestElTag.getTestElTagType(tok);
+			if (type != TestElTag.TAG_TAG && type != TestElTag.TAG_MATCH) continue;
+			int start = tok.getTextPosition().getBpos();
+			if (start >= lastEnd && start <= position) return true;
+		}
+
+		return false;
+	}
+
+	/**Ende des Intervalls einer Annotation
+	 * @param startTag
+	 * @return
+	 */
+	private static int end(Token startTag) {
+		return startTag.getReference().getTextPosition().getEpos();
+	}
+}
@@ -0,0 +1,324 @@
+/**
+ * Datei: Attributes.java
+ * Paket: de.beimax.testel.token
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.token;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**Unveränderliche Attributmenge eines Tokens: Schlüssel und Werte stehen sortiert in zwei
+ * parallelen Arrays, die Schlüssel werden internalisiert. Gleiche Mengen werden über einen
+ * Zwischenspeicher pro Thread zusammengelegt (hash-consing) - die 5000 gleichen
+ * <code>&lt;td class=...&gt;</code> einer Tabelle teilen sich also eine Instanz. Änderungen
+ * (with, without) erzeugen eine neue Menge (copy-on-write), die Instanz selbst ändert sich nie
+ * und kann daher gefahrlos zwischen Tokens geteilt werden.
+ * @author mkalus
+ *
+ */
+public final class Attributes {
+	/**
+	 * Leere Menge
+	 */
+	public static final Attributes EMPTY = new Attributes(new String[0], new String[0]);
+	
+	/**
+	 * Maximale Größe des Zwischenspeichers pro Thread, danach wird er geleert
+	 */
+	private static final int MAX_CACHE = 4096;
+	
+	/**
+	 * Zwischenspeicher für gleiche Mengen (pro Thread, damit Parser in mehreren Threads
+	 * sich nicht gegenseitig blockieren)
+	 */
+	private static final ThreadLocal<HashMap<Attributes, Attributes>> cache = new ThreadLocal<HashMap<Attributes, Attributes>>() {
+		protected HashMap<Attributes, Attributes> initialValue() {
+			return new HashMap<Attributes, Attributes>();
+		}
+	};
+	
+	/**
+	 * Schlüssel (sortiert und internalisiert) und Werte
+	 */
+	private final String[] keys;
+	private final String[] values;
+	
+	/**
+	 * Hash-Wert (wird bei Bedarf berechnet)
+	 */
+	private int hash;
+
+	/**Konstruktor
+	 * @param keys
+	 * @param values
+	 */
+	private Attributes(String[] keys, String[] values) {
+		this.keys = keys;
+		this.values = values;
+	}
+	
+	/**Gibt die gemeinsam genutzte Instanz einer Menge zurück
+	 * @param attributes
+	 * @return
+	 */
+	private static Attributes canonical(Attributes attributes) {
+		if (attributes.keys.length == 0) return EMPTY;
+		HashMap<Attributes, Attributes> map = cache.get();
+		Attributes shared = map.get(attributes);
+		if (shared != null) return shared;
+		if (map.size() >= MAX_CACHE) map.clear();
+		map.put(attributes, attributes);
+		return attributes;
+	}
+	
+	/**Anzahl der Attribute
+	 * @return
+	 */
+	public int size() {
+		return keys.length;
+	}
+	
+	/**Schlüssel des i-ten Attributs (in sortierter Reihenfolge)
+	 * @param i
+	 * @return
+	 */
+	public String getKey(int i) {
+		return keys[i];
+	}
+	
+	/**Wert des i-ten Attributs (in sortierter Reihenfolge)
+	 * @param i
+	 * @return
+	 */
+	public String getValue(int i) {
+		return values[i];
+	}
+	
+	/**Sucht einen Schlüssel
+	 * @param key
+	 * @return Index oder (-(Einfügeposition) - 1), wie Arrays.binarySearch
+	 */
+	private int indexOf(String key) {
+		int low = 0, high = keys.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			String k = keys[mid];
+			if (k == key) return mid; //internalisierte Schlüssel
+			int cmp = k.compareTo(key);
+			if (cmp < 0) low = mid + 1;
+			else if (cmp > 0) high = mid - 1;
+			else return mid;
+		}
+		return -(low + 1);
+	}
+	
+	/**Gibt den Wert eines Attributs zurück oder null, falls nicht gefunden
+	 * @param key
+	 * @return
+	 */
+	public String get(String key) {
+		int i = indexOf(key);
+		if (i < 0) return null;
+		return values[i];
+	}
+	
+	/**True, falls das Attribut existiert
+	 * @param key
+	 * @return
+	 */
+	public boolean containsKey(String key) {
+		return indexOf(key) >= 0;
+	}
+	
+	/**Gibt eine Menge mit dem zusätzlichen bzw. geänderten Attribut zurück
+	 * @param key
+	 * @param value
+	 * @return
+	 */
+	public Attributes with(String key, String value) {
+		if (key == null || value == null) throw new NullPointerException();
+		int i = indexOf(key);
+		String[] newKeys, newValues;
+		if (i >= 0) { //ändern
+			if (values[i].equals(value)) return this;
+			newKeys = keys;
+			newValues = values.clone();
+			newValues[i] = value;
+		} else { //einfügen
+			i = -i - 1;
+			int n = keys.length;
+			newKeys = new String[n + 1];
+			newValues = new String[n + 1];
+			System.arraycopy(keys, 0, newKeys, 0, i);
+			System.arraycopy(values, 0, newValues, 0, i);
+			newKeys[i] = key.intern();
+			newValues[i] = value;
+			System.arraycopy(keys, i, newKeys, i + 1, n - i);
+			System.arraycopy(values, i, newValues, i + 1, n - i);
+		}
+		return canonical(new Attributes(newKeys, newValues));
+	}
+	
+	/**Gibt eine Menge ohne das Attribut zurück
+	 * @param key
+	 * @return
+	 */
+	public Attributes without(String key) {
+		int i = indexOf(key);
+		if (i < 0) return this;
+		int n = keys.length;
+		String[] newKeys = new String[n - 1];
+		String[] newValues = new String[n - 1];
+		System.arraycopy(keys, 0, newKeys, 0, i);
+		System.arraycopy(values, 0, newValues, 0, i);
+		System.arraycopy(keys, i + 1, newKeys, i, n - i - 1);
+		System.arraycopy(values, i + 1, newValues, i, n - i - 1);
+		return canonical(new Attributes(newKeys, newValues));
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int h = hash;
+		if (h == 0 && keys.length > 0) {
+			h = 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+			hash = h;
+		}
+		return h;
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Attributes)) return false;
+		Attributes a = (Attributes) o;
+		if (hashCode() != a.hashCode()) return false;
+		return Arrays.equals(keys, a.keys) && Arrays.equals(values, a.values);
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuffer buffer = new StringBuffer();
+		for (int i = 0; i < keys.length; i++) {
+			if (buffer.length() != 0) buffer.append(';');
+			buffer.append(keys[i]);
+			buffer.append('=');
+			buffer.append(values[i]);
+		}
+		return buffer.toString();
+	}
+	
+	/**Hilfsklasse zum Aufbau einer Menge mit mehreren Attributen auf einmal (z.B. beim Parsen),
+	 * ohne für jedes Attribut eine Zwischenmenge zu erzeugen. Spätere Werte überschreiben
+	 * frühere mit gleichem Schlüssel.
+	 * @author mkalus
+	 *
+	 */
+	public static class Builder {
+		private String[] keys = new String[8];
+		private String[] values = new String[8];
+		private int size = 0;
+		
+		/**Fügt ein Attribut hinzu
+		 * @param key
+		 * @param value
+		 * @return this
+		 */
+		public Builder add(String key, String value) {
+			if (key == null || value == null) throw new NullPointerException();
+			for (int i = 0; i < size; i++)
+				if (keys[i].equals(key)) {
+					values[i] = value;
+					return this;
+				}
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			keys[size] = key;
+			values[size++] = value;
+			return this;
+		}
+		
+		/**Gibt den Wert eines Attributs zurück oder null
+		 * @param key
+		 * @return
+		 */
+		public String get(String key) {
+			for (int i = 0; i < size; i++)
+				if (keys[i].equals(key)) return values[i];
+			return null;
+		}
+		
+		/**Entfernt ein Attribut und gibt dessen Wert zurück (oder null)
+		 * @param key
+		 * @return
+		 */
+		public String remove(String key) {
+			for (int i = 0; i < size; i++)
+				if (keys[i].equals(key)) {
+					String value = values[i];
+					//Reihenfolge spielt keine Rolle, build() sortiert
+					size--;
+					keys[i] = keys[size];
+					values[i] = values[size];
+					keys[size] = values[size] = null;
+					return value;
+				}
+			return null;
+		}
+		
+		/**True, falls noch kein Attribut hinzugefügt wurde
+		 * @return
+		 */
+		public boolean isEmpty() {
+			return size == 0;
+		}
+		
+		/**Erzeugt die (gemeinsam genutzte) Menge
+		 * @return
+		 */
+		public Attributes build() {
+			if (size == 0) return EMPTY;
+			//sortieren (die Mengen sind klein, daher durch Einfügen)
+			String[] k = new String[size];
+			String[] v = new String[size];
+			for (int i = 0; i < size; i++) {
+				String key = keys[i].intern();
+				int j = i;
+				while (j > 0 && k[j - 1].compareTo(key) > 0) {
+					k[j] = k[j - 1];
+					v[j] = v[j - 1];
+					j--;
+				}
+				k[j] = key;
+				v[j] = values[i];
+			}
+			return canonical(new Attributes(k, v));
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Datei: LineIndex.java
+ * Paket: de.beimax.testel.token
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.token;
+
+/**Zeilenindex eines Dokuments: hält die Anfangspositionen aller Zeilen fest, damit
+ * Zeile und Spalte einer Textposition erst bei Bedarf (XML-Beschreibung, Log) per
+ * binärer Suche aus der Zeichenposition berechnet werden müssen.
+ * Zeilen und Spalten beginnen wie beim RowColumnNumerReader bei 1, Zeilen werden
+ * durch '\n' getrennt.
+ * @author mkalus
+ *
+ */
+public final class LineIndex {
+	/**
+	 * Anfangspositionen der Zeilen, aufsteigend sortiert
+	 */
+	private final int[] starts;
+	
+	/**
+	 * Anzahl der Zeilen
+	 */
+	private final int lines;
+
+	/**Konstruktor
+	 * @param document
+	 */
+	public LineIndex(CharSequence document) {
+		int[] s = new int[64];
+		int n = 1; //erste Zeile beginnt bei 0
+		for (int i = 0, len = document.length(); i < len; i++)
+			if (document.charAt(i) == '\n') {
+				if (n == s.length) {
+					int[] grown = new int[n * 2];
+					System.arraycopy(s, 0, grown, 0, n);
+					s = grown;
+				}
+				s[n++] = i + 1;
+			}
+		this.starts = s;
+		this.lines = n;
+	}
+
+	/**Gibt die Anzahl der Zeilen zurück
+	 * @return
+	 */
+	public int getLineCount() {
+		return lines;
+	}
+
+	/**Gibt die Zeile (ab 1) zur Zeichenposition zurück
+	 * @param pos
+	 * @return
+	 */
+	public int getRow(int pos) {
+		return lineOf(pos) + 1;
+	}
+
+	/**Gibt die Spalte (ab 1) zur Zeichenposition zurück
+	 * @param pos
+	 * @return
+	 */
+	public int getCol(int pos) {
+		return pos - starts[lineOf(pos)] + 1;
+	}
+
+	/**Binäre Suche nach der letzten Zeile, die vor oder an pos beginnt
+	 * @param pos
+	 * @return Index der Zeile (ab 0)
+	 */
+	private int lineOf(int pos) {
+		int lo = 0, hi = lines - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (starts[mid] <= pos) lo = mid;
+			else hi = mid - 1;
+		}
+		return lo;
+	}
+}
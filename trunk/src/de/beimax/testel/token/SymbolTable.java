@@ -0,0 +1,130 @@
+/**
+ * Datei: SymbolTable.java
+ * Paket: de.beimax.testel.token
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.token;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**Symboltabelle für Klassifizierer-Schlüssel (s. Token#getClassifierName()). Jeder Schlüssel
+ * erhält einmalig eine Nummer, danach können Tokens und Klassifizierer Ganzzahlen vergleichen,
+ * statt Strings zusammenzusetzen und zu vergleichen.
+ * Die Tabelle wird von allen Dokumenten und Threads gemeinsam genutzt, damit die Nummern der
+ * geteilten Klassifizierer-Kollektionen überall gelten. Neue Schlüssel legen daher nur die
+ * Klassifizierer an (intern) - Tokens schlagen ihren Schlüssel nur nach (lookup) und erhalten
+ * OTHER, wenn ihn kein Klassifizierer kennt. So wächst die Tabelle nur mit den Modellen und
+ * nicht mit den Wörtern und Markup-Namen der getaggten Dokumente.
+ * Die Nummern beginnen bei 1, 0 steht für "noch nicht berechnet" (so sind auch per XStream
+ * geladene Objekte ohne Konstruktoraufruf richtig initialisiert).
+ * @author mkalus
+ *
+ */
+public class SymbolTable {
+	/**
+	 * Nummer für nicht berechnete Schlüssel
+	 */
+	public static final int UNKNOWN = 0;
+	
+	/**
+	 * Nummer für null
+	 */
+	public static final int NONE = -1;
+	
+	/**
+	 * Nummer für Schlüssel, die nicht in der Tabelle stehen - ist keinem anderen Schlüssel
+	 * gleich, auch nicht einem anderen unbekannten
+	 */
+	public static final int OTHER = -2;
+	
+	/**
+	 * Nummern nach Schlüssel
+	 */
+	private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	
+	/**
+	 * Schlüssel nach Nummer
+	 */
+	private static volatile String[] symbols = new String[256];
+	private static volatile int count = 1;
+	
+	/**Gibt die Nummer eines Schlüssels zurück und legt ihn ggf. neu an - nur für Schlüssel
+	 * von Klassifizierern
+	 * @param symbol
+	 * @return Nummer oder NONE für null
+	 */
+	public static int intern(String symbol) {
+		if (symbol == null) return NONE;
+		Integer id = ids.get(symbol);
+		if (id != null) return id;
+		
+		synchronized (SymbolTable.class) {
+			id = ids.get(symbol);
+			if (id != null) return id;
+			String[] s = symbols;
+			if (count == s.length) s = Arrays.copyOf(s, count * 2);
+			s[count] = symbol;
+			symbols = s;
+			id = count;
+			ids.put(symbol, id);
+			count++; //erst nach dem Eintragen, s. getOtherMark()
+			return id;
+		}
+	}
+	
+	/**Gibt die Nummer eines Schlüssels zurück, ohne ihn neu anzulegen
+	 * @param symbol
+	 * @return Nummer, OTHER falls der Schlüssel unbekannt ist oder NONE für null
+	 */
+	public static int lookup(String symbol) {
+		if (symbol == null) return NONE;
+		Integer id = ids.get(symbol);
+		if (id == null) return OTHER;
+		return id;
+	}
+	
+	/**Gibt eine Markierung für den aktuellen Stand der Tabelle zurück (immer kleiner als NONE).
+	 * Ein Token kann sich damit merken, dass sein Schlüssel unbekannt war - die Markierung
+	 * ändert sich, sobald ein neuer Schlüssel angelegt wird. Die Markierung muss vor dem
+	 * Nachschlagen geholt werden.
+	 * @return
+	 */
+	public static int getOtherMark() {
+		return NONE - count;
+	}
+	
+	/**Gibt den Schlüssel zu einer Nummer zurück
+	 * @param id
+	 * @return Schlüssel oder null
+	 */
+	public static String getSymbol(int id) {
+		if (id <= UNKNOWN) return null;
+		return symbols[id];
+	}
+	
+	/**Anzahl der vergebenen Nummern (die größte Nummer ist size() - 1)
+	 * @return
+	 */
+	public static int size() {
+		return count;
+	}
+}
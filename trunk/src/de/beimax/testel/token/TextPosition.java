@@ -24,6 +24,10 @@
 package de.beimax.testel.token;
 
 /**Hilfsklasse zum Festhalten von Textpositionen.
+ * Eine Textposition kann entweder Zeilen und Spalten explizit festhalten oder nur die
+ * Zeichenpositionen zusammen mit dem Zeilenindex des Dokuments - dann werden Zeilen und
+ * Spalten erst beim Abfragen berechnet. Wird eine Zeile oder Spalte auf einen Wert gesetzt,
+ * der nicht zur Zeichenposition passt, werden die Werte explizit übernommen.
  * @author mkalus
  *
  */
@@ -31,35 +35,62 @@ public class TextPosition {
 	
 	/**Positionsangaben der Textposition:
 	 * bpos = Anfangsposition (Bytes)
-	 * brow = Anfangszeile
-	 * bcol = Anfangsspalte
 	 * epos = Endposition (Bytes)
-	 * erow = Endzeile
-	 * ecol = Endspalte
 	 */
-	private int bpos, brow, bcol, epos, erow, ecol;
+	private int bpos, epos;
+	
+	/**
+	 * Zeilenindex, aus dem Zeilen und Spalten berechnet werden (oder null)
+	 */
+	private LineIndex lines;
+	
+	/**
+	 * Explizite Zeilen und Spalten: brow, bcol, erow, ecol (oder null, falls lines gesetzt ist)
+	 */
+	private int[] rowcol;
 
 	public TextPosition(int bpos, int brow, int bcol, int epos, int erow, int ecol) {
-		setBpos(bpos);
-		setBrow(brow);
-		setBcol(bcol);
-		setEpos(epos);
-		setErow(erow);
-		setEcol(ecol);
+		this.bpos = bpos;
+		this.epos = epos;
+		this.rowcol = new int[] {brow, bcol, erow, ecol};
+	}
+
+	/**Konstruktor für Textpositionen, deren Zeilen und Spalten aus dem Zeilenindex
+	 * berechnet werden
+	 * @param lines
+	 * @param bpos
+	 * @param epos
+	 */
+	public TextPosition(LineIndex lines, int bpos, int epos) {
+		this.bpos = bpos;
+		this.epos = epos;
+		this.lines = lines;
+	}
+
+	/**Gibt den Zeilenindex zurück oder null, falls Zeilen und Spalten explizit festgehalten werden
+	 * @return
+	 */
+	public LineIndex getLineIndex() {
+		return lines;
 	}
 
 	/**
 	 * @return bcol
 	 */
 	public int getBcol() {
-		return bcol;
+		if (lines != null) return lines.getCol(bpos);
+		return rowcol[1];
 	}
 
 	/**
 	 * @param bcol Festzulegender bcol
 	 */
 	public void setBcol(int bcol) {
-		this.bcol = bcol;
+		if (lines != null) {
+			if (bcol == lines.getCol(bpos)) return;
+			materialize();
+		}
+		rowcol[1] = bcol;
 	}
 
 	/**
@@ -80,28 +111,38 @@ public class TextPosition {
 	 * @return brow
 	 */
 	public int getBrow() {
-		return brow;
+		if (lines != null) return lines.getRow(bpos);
+		return rowcol[0];
 	}
 
 	/**
 	 * @param brow Festzulegender brow
 	 */
 	public void setBrow(int brow) {
-		this.brow = brow;
+		if (lines != null) {
+			if (brow == lines.getRow(bpos)) return;
+			materialize();
+		}
+		rowcol[0] = brow;
 	}
 
 	/**
 	 * @return ecol
 	 */
 	public int getEcol() {
-		return ecol;
+		if (lines != null) return lines.getCol(epos);
+		return rowcol[3];
 	}
 
 	/**
 	 * @param ecol Festzulegender ecol
 	 */
 	public void setEcol(int ecol) {
-		this.ecol = ecol;
+		if (lines != null) {
+			if (ecol == lines.getCol(epos)) return;
+			materialize();
+		}
+		rowcol[3] = ecol;
 	}
 
 	/**
@@ -122,14 +163,27 @@ public class TextPosition {
 	 * @return erow
 	 */
 	public int getErow() {
-		return erow;
+		if (lines != null) return lines.getRow(epos);
+		return rowcol[2];
 	}
 
 	/**
 	 * @param erow Festzulegender erow
 	 */
 	public void setErow(int erow) {
-		this.erow = erow;
+		if (lines != null) {
+			if (erow == lines.getRow(epos)) return;
+			materialize();
+		}
+		rowcol[2] = erow;
+	}
+	
+	/**
+	 * Übernimmt die aus dem Zeilenindex berechneten Zeilen und Spalten als explizite Werte
+	 */
+	private void materialize() {
+		rowcol = new int[] {lines.getRow(bpos), lines.getCol(bpos), lines.getRow(epos), lines.getCol(epos)};
+		lines = null;
 	}
 	
 	/**Gibt true zurück, wenn übergebene Position vollständig enhalten ist.
@@ -171,14 +225,40 @@ public class TextPosition {
 	 * @return
 	 */
 	public TextPosition copy() {
-		return new TextPosition(bpos, brow, bcol, epos, erow, ecol);
+		if (lines != null) return new TextPosition(lines, bpos, epos);
+		return new TextPosition(bpos, rowcol[0], rowcol[1], epos, rowcol[2], rowcol[3]);
+	}
+	
+	/**Erzeugt eine leere Textposition am Anfang dieser Position (z.B. für Starttags)
+	 * @return
+	 */
+	public TextPosition beginning() {
+		if (lines != null) return new TextPosition(lines, bpos, bpos);
+		return new TextPosition(bpos, rowcol[0], rowcol[1], bpos, rowcol[0], rowcol[1]);
+	}
+	
+	/**Erzeugt eine leere Textposition am Ende dieser Position (z.B. für Endtags)
+	 * @return
+	 */
+	public TextPosition ending() {
+		if (lines != null) return new TextPosition(lines, epos, epos);
+		return new TextPosition(epos, rowcol[2], rowcol[3], epos, rowcol[2], rowcol[3]);
+	}
+	
+	/**Erzeugt eine Textposition vom Anfang dieser Position bis zum Ende von end
+	 * @param end
+	 * @return
+	 */
+	public TextPosition to(TextPosition end) {
+		if (lines != null && lines == end.lines) return new TextPosition(lines, bpos, end.epos);
+		return new TextPosition(bpos, getBrow(), getBcol(), end.epos, end.getErow(), end.getEcol());
 	}
 
 	/**Gibt Delimiter-String (r:c-r:c) zurück.
 	 * @return
 	 */
 	protected String delimToString() {
-		return "(pos=" + this.bpos + "-" + this.epos + ";rowcol=" + this.brow + ":" + this.bcol + "-" + this.erow + ":" + this.ecol + ")";
+		return "(pos=" + this.bpos + "-" + this.epos + ";rowcol=" + getBrow() + ":" + getBcol() + "-" + getErow() + ":" + getEcol() + ")";
 	}
 
 	/* (Kein Javadoc)
@@ -23,11 +23,8 @@
  */
 package de.beimax.testel.token;
 
-import java.util.Hashtable;
-import java.util.Map.Entry;
 import java.util.logging.Logger;
 
-import de.beimax.testel.TestElHandler;
 
 /**Basisklasse für Tokens. Die Klasse besitzt drei Attribute, Typ, Name und Sorte (Variety, fakultativ).
  * Das Token wird nur beachtet, wenn <code>isMeaningful</code> auf True gesetzt wurde. Dann wird der Typ
@@ -39,7 +36,6 @@ import de.beimax.testel.TestElHandler;
 public class Token {
 	protected static Logger logger =  Logger.getLogger(Token.class.getName());
 	
-	protected static TestElHandler handler;
 	
 	/**Kopiert die AttributListe von einem Token zum anderen
 	 * @param from
@@ -50,23 +46,19 @@ public class Token {
 		if (from.className != null) to.className = new String(from.className);
 		else to.className = null;
 
-		//Attribute kopieren
-		if (from.attributeSet != null)
-			for (Entry<String, String> entry : from.attributeSet.entrySet())
-				to.addAttribute(new String(entry.getKey()), new String(entry.getValue()));
-	}
-	
-	/**Setzt Handler - wird von TestElHandler beim Starten aufgerufen
-	 * @param handler
-	 */
-	public static void setHandler(TestElHandler handler) {
-		Token.handler = handler;
+		//Attribute übernehmen - die Menge ist unveränderlich und kann geteilt werden
+		if (from.attributeSet != null) {
+			if (to.attributeSet == null || to.attributeSet.size() == 0)
+				to.setAttributes(from.attributeSet);
+			else for (int i = 0; i < from.attributeSet.size(); i++)
+				to.addAttribute(from.attributeSet.getKey(i), from.attributeSet.getValue(i));
+		}
 	}
 	
 	/**
-	 * Enthält die Attribute des Tokens
+	 * Enthält die Attribute des Tokens (unveränderlich und ggf. mit anderen Tokens geteilt)
 	 */
-	private Hashtable<String, String> attributeSet;
+	private Attributes attributeSet;
 	private String name, className;
 	
 	/**
@@ -78,6 +70,12 @@ public class Token {
 	 * Referenz-Token (oder null - muss gesetzt werden!) 
 	 */
 	protected Token reference = null;
+	
+	/**
+	 * Nummer des Klassifizierer-Schlüssels in der SymbolTable (UNKNOWN = noch nicht berechnet,
+	 * kleiner als NONE = unbekannter Schlüssel, s. SymbolTable#getOtherMark())
+	 */
+	private transient int classifierKey = SymbolTable.UNKNOWN;
 
 	/**Konstruktor mit Typ und Name (können null sein)
 	 * @param type
@@ -139,6 +137,7 @@ public class Token {
 	 */
 	public void setName(String name) {
 		this.name = name;
+		classifierKey = SymbolTable.UNKNOWN;
 	}
 
 	/**Setzt einen neuen Typen (null = Typ wird entfernt)
@@ -146,6 +145,7 @@ public class Token {
 	 */
 	public void setClassName(String className) {
 		this.className = className;
+		classifierKey = SymbolTable.UNKNOWN;
 	}
 
 	/**True, falls tok und this mit dem selben Namen
@@ -178,8 +178,17 @@ public class Token {
 	 * @param val
 	 */
 	public void addAttribute(String key, String val) {
-		if (attributeSet == null) attributeSet = new Hashtable<String, String>();
-		attributeSet.put(key, val);
+		if (attributeSet == null) attributeSet = Attributes.EMPTY;
+		attributeSet = attributeSet.with(key, val);
+		classifierKey = SymbolTable.UNKNOWN;
+	}
+	
+	/**Setzt alle Attribute auf einmal (z.B. aus einem Attributes.Builder)
+	 * @param attributes
+	 */
+	public void setAttributes(Attributes attributes) {
+		attributeSet = attributes;
+		classifierKey = SymbolTable.UNKNOWN;
 	}
 	
 	/**Ändert das Attribut, falls es existiert (sonst nicht)
@@ -208,12 +217,20 @@ public class Token {
 		return attributeSet.get(key);
 	}
 	
+	/**Gibt die Attributmenge zurück (oder null, falls keine Attribute gesetzt wurden)
+	 * @return
+	 */
+	public Attributes getAttributes() {
+		return attributeSet;
+	}
+	
 	/**Entfernt ein Attribut aus der Attributmenge
 	 * @param key
 	 */
 	public void removeAttribute(String key) {
 		if (attributeSet != null) {
-			attributeSet.remove(key);
+			attributeSet = attributeSet.without(key);
+			classifierKey = SymbolTable.UNKNOWN;
 		}
 	}
 	
@@ -240,20 +257,23 @@ public class Token {
 	 * @param as
 	 * @return
 	 */
-	protected double compareAttributes(Hashtable<String, String> compareSet) {
+	protected double compareAttributes(Attributes compareSet) {
 		double hits = 0;
-		if (attributeSet.size() == 0) {
+		Attributes mySet = attributeSet != null?attributeSet:Attributes.EMPTY;
+		if (compareSet == null) compareSet = Attributes.EMPTY;
+		if (mySet.size() == 0) {
 			if (compareSet.size() == 0) return 1;
 			else return 0;
 		}
+		if (mySet == compareSet) return 1; //geteilte Menge
 		
-		for (Entry<String, String> entry : attributeSet.entrySet()) {
-			String myValue = entry.getValue();
-			String theirValue = compareSet.get(entry.getKey());
+		for (int i = 0; i < mySet.size(); i++) {
+			String myValue = mySet.getValue(i);
+			String theirValue = compareSet.get(mySet.getKey(i));
 			if (myValue.equals(theirValue)) hits++;
 		}
 		
-		return hits / attributeSet.size();
+		return hits / mySet.size();
 	}
 
 	/** Getter für reference
@@ -268,6 +288,7 @@ public class Token {
 	 */
 	public void setReference(Token reference) {
 		this.reference = reference;
+		classifierKey = SymbolTable.UNKNOWN;
 	}
 
 	/**Erzeugt einen Klon des Tokens
@@ -304,19 +325,9 @@ public class Token {
 	 * @return
 	 */
 	protected String attribsToString() {
-		if (attributeSet == null) return "";
-		
-		StringBuffer buffer = new StringBuffer();
+		if (attributeSet == null || attributeSet.size() == 0) return "";
 		
-		for (Entry<String, String> entry : attributeSet.entrySet()) {
-			if (buffer.length() != 0) buffer.append(';');
-			buffer.append(entry.getKey());
-			buffer.append('=');
-			buffer.append(entry.getValue());
-		}
-		
-		if (buffer.length() == 0) return "";
-		return "{" + buffer.toString() + "}";
+		return "{" + attributeSet.toString() + "}";
 	}
 	
 	/**Gibt Attribute zurück: zum Überschreiben.
@@ -359,9 +370,7 @@ public class Token {
 	 * @param position
 	 */
 	public void initTextPosition(TextPosition position) {
-		if (position != null)
-		initTextPosition(position.getBpos(), position.getBrow(), position.getBcol(),
-				position.getEpos(), position.getErow(), position.getEcol());
+		if (position != null) pos = position.copy();
 	}
 	
 	/**
@@ -384,6 +393,10 @@ public class Token {
 	 * @return
 	 */
 	public TextPosition posAtIndex(int index) {
+		//mit Zeilenindex werden Zeile und Spalte bei Bedarf berechnet
+		LineIndex lines = pos.getLineIndex();
+		if (lines != null) return new TextPosition(lines, pos.getBpos() + index, pos.getEpos());
+
 		String name = getName();
 		TextPosition back = new TextPosition(pos.getBpos() + index,pos.getBrow(), pos.getBcol(), pos.getEpos(), pos.getBrow(), pos.getEcol());
 
@@ -455,6 +468,26 @@ public class Token {
 		return getName();
 	}
 	
+	/**Gibt die Nummer von getClassifierName() in der SymbolTable zurück (NONE bei null, OTHER,
+	 * falls kein Klassifizierer den Schlüssel kennt). Die Nummer wird beim ersten Aufruf
+	 * berechnet und bei Änderungen von Name, Klasse, Attributen oder Referenz dieses Tokens
+	 * verworfen, OTHER zusätzlich, sobald ein Klassifizierer einen neuen Schlüssel anlegt -
+	 * Änderungen an den Attributen des Referenz-Tokens werden nicht verfolgt, der Schlüssel
+	 * sollte daher erst nach dem Parsen abgefragt werden.
+	 * @return
+	 */
+	public int getClassifierKey() {
+		int key = classifierKey;
+		if (key < SymbolTable.NONE) { //unbekannt, solange die Tabelle nicht gewachsen ist
+			if (key == SymbolTable.getOtherMark()) return SymbolTable.OTHER;
+		} else if (key != SymbolTable.UNKNOWN) return key;
+		
+		int mark = SymbolTable.getOtherMark();
+		key = SymbolTable.lookup(getClassifierName());
+		classifierKey = key == SymbolTable.OTHER?mark:key;
+		return key;
+	}
+	
 	/**Gibt einen Klassifiziererzusatz über den Namen eines Attributs oder leer zurück.
 	 * Beim Nicht-Finden wird auch die Referenz gefragt...
 	 * Beim Überschreiben ist es übrigens möglich, die Rückgabe auf null zu setzen - solche
@@ -23,18 +23,318 @@
  */
 package de.beimax.testel.token;
 
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 import de.beimax.testel.token.impl.NumberToken;
 import de.beimax.testel.token.impl.TestElTag;
-/**
+/**Liste der Tokens eines Dokuments.
+ * Die Liste ist als Lückenpuffer (gap buffer) implementiert: die Tokens liegen in einem Array,
+ * in dem eine Lücke an der zuletzt bearbeiteten Stelle offengehalten wird. Damit sind
+ * get(i), set(i) und listIterator(i) O(1), und Einfügen/Löschen kostet nur das Verschieben
+ * der Lücke - bei den Taggern, die die Liste von hinten nach vorne bearbeiten, also kaum etwas.
+ * Die Methoden von LinkedList, die im Projekt verwendet werden (getFirst, pollLast,
+ * descendingIterator, etc.), werden ebenfalls angeboten.
  * @author mkalus
  *
  */
-public class TokenList extends LinkedList<Token> {
-	private static final long serialVersionUID = -3046024476621444921L;
+public class TokenList extends AbstractList<Token> implements RandomAccess {
+	/**
+	 * Anfangsgröße des Puffers
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	/**
+	 * Puffer: die Lücke liegt zwischen gapStart (inklusive) und gapEnd (exklusive)
+	 */
+	private Token[] buffer;
+	private int gapStart;
+	private int gapEnd;
+	
+	/**
+	 * Annotationsschicht (wird beim ersten Zugriff aufgebaut)
+	 */
+	private AnnotationIndex annotations;
+	
+	/**
+	 * Konstruktor
+	 */
+	public TokenList() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**Konstruktor mit Anfangsgröße
+	 * @param capacity
+	 */
+	public TokenList(int capacity) {
+		if (capacity < 1) capacity = 1;
+		buffer = new Token[capacity];
+		gapStart = 0;
+		gapEnd = capacity;
+	}
+	
+	/**Konstruktor mit Anfangselementen
+	 * @param c
+	 */
+	public TokenList(Collection<? extends Token> c) {
+		this(c.size() + DEFAULT_CAPACITY);
+		addAll(c);
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	public int size() {
+		return buffer.length - (gapEnd - gapStart);
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	public Token get(int index) {
+		if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + size());
+		if (index < gapStart) return buffer[index];
+		return buffer[index + gapEnd - gapStart];
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractList#set(int, java.lang.Object)
+	 */
+	public Token set(int index, Token element) {
+		if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + size());
+		int pos = index < gapStart?index:index + gapEnd - gapStart;
+		Token old = buffer[pos];
+		buffer[pos] = element;
+		return old;
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractList#add(int, java.lang.Object)
+	 */
+	public void add(int index, Token element) {
+		if (index < 0 || index > size()) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + size());
+		ensureGap(1);
+		moveGap(index);
+		buffer[gapStart++] = element;
+		modCount++;
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractList#add(java.lang.Object)
+	 */
+	public boolean add(Token element) {
+		add(size(), element);
+		return true;
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractList#addAll(int, java.util.Collection)
+	 */
+	public boolean addAll(int index, Collection<? extends Token> c) {
+		if (index < 0 || index > size()) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + size());
+		int count = c.size();
+		if (count == 0) return false;
+		ensureGap(count);
+		moveGap(index);
+		Iterator<? extends Token> it = c.iterator();
+		while (it.hasNext())
+			buffer[gapStart++] = it.next();
+		modCount++;
+		return true;
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractCollection#addAll(java.util.Collection)
+	 */
+	public boolean addAll(Collection<? extends Token> c) {
+		return addAll(size(), c);
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractList#remove(int)
+	 */
+	public Token remove(int index) {
+		if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + size());
+		moveGap(index);
+		Token old = buffer[gapEnd];
+		buffer[gapEnd++] = null;
+		modCount++;
+		return old;
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractList#removeRange(int, int)
+	 */
+	protected void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex >= toIndex) return;
+		moveGap(fromIndex);
+		int newEnd = gapEnd + toIndex - fromIndex;
+		Arrays.fill(buffer, gapEnd, newEnd, null);
+		gapEnd = newEnd;
+		modCount++;
+	}
+	
+	/* (Kein Javadoc)
+	 * @see java.util.AbstractList#clear()
+	 */
+	public void clear() {
+		Arrays.fill(buffer, null);
+		gapStart = 0;
+		gapEnd = buffer.length;
+		modCount++;
+	}
+	
+	/**Gibt eine Nur-Lese-Ansicht auf den Bereich von start (inklusive) bis stop (exklusive)
+	 * zurück - anders als bei subList wird nichts kopiert (s. TokenSpan).
+	 * @param start
+	 * @param stop
+	 * @return
+	 */
+	public TokenSpan view(int start, int stop) {
+		if (start < 0 || stop > size() || start > stop) throw new IndexOutOfBoundsException("Bereich: " + start + "-" + stop + ", Größe: " + size());
+		return new TokenSpan(this, start, stop);
+	}
+	
+	/**Gibt die Annotationsschicht des Dokuments zurück - beim ersten Aufruf werden die
+	 * TestEl-Tags übernommen, die schon in der Liste stehen, danach tragen die Tagger ihre
+	 * Treffer selbst ein (s. AnnotationIndex).
+	 * @return
+	 */
+	public AnnotationIndex getAnnotationIndex() {
+		if (annotations == null) annotations = new AnnotationIndex(this);
+		return annotations;
+	}
+	
+	/**Änderungszähler der Liste für Ansichten (TokenSpan)
+	 * @return
+	 */
+	int getModCount() {
+		return modCount;
+	}
+	
+	/**Verschiebt die Lücke an die angegebene Position
+	 * @param index
+	 */
+	private void moveGap(int index) {
+		if (index == gapStart) return;
+		int gapLength = gapEnd - gapStart;
+		if (index < gapStart) { //Elemente vor der Lücke nach hinten schieben
+			int count = gapStart - index;
+			System.arraycopy(buffer, index, buffer, gapEnd - count, count);
+			Arrays.fill(buffer, index, Math.min(gapEnd - count, gapStart), null);
+		} else { //Elemente nach der Lücke nach vorne schieben
+			int count = index - gapStart;
+			System.arraycopy(buffer, gapEnd, buffer, gapStart, count);
+			Arrays.fill(buffer, Math.max(gapEnd, index), gapEnd + count, null);
+		}
+		gapStart = index;
+		gapEnd = index + gapLength;
+	}
+	
+	/**Stellt sicher, dass die Lücke mindestens die angegebene Größe hat
+	 * @param needed
+	 */
+	private void ensureGap(int needed) {
+		if (gapEnd - gapStart >= needed) return;
+		int size = size();
+		int capacity = Math.max(buffer.length + (buffer.length >> 1) + 1, size + needed);
+		Token[] newBuffer = new Token[capacity];
+		int tail = buffer.length - gapEnd;
+		System.arraycopy(buffer, 0, newBuffer, 0, gapStart);
+		System.arraycopy(buffer, gapEnd, newBuffer, capacity - tail, tail);
+		buffer = newBuffer;
+		gapEnd = capacity - tail;
+	}
+	
+	/**Erstes Element (wie LinkedList)
+	 * @return
+	 * @throws NoSuchElementException falls die Liste leer ist
+	 */
+	public Token getFirst() {
+		if (size() == 0) throw new NoSuchElementException();
+		return get(0);
+	}
+	
+	/**Letztes Element (wie LinkedList)
+	 * @return
+	 * @throws NoSuchElementException falls die Liste leer ist
+	 */
+	public Token getLast() {
+		if (size() == 0) throw new NoSuchElementException();
+		return get(size() - 1);
+	}
+	
+	/**Element am Anfang einfügen (wie LinkedList)
+	 * @param element
+	 */
+	public void addFirst(Token element) {
+		add(0, element);
+	}
+	
+	/**Element am Ende anhängen (wie LinkedList)
+	 * @param element
+	 */
+	public void addLast(Token element) {
+		add(size(), element);
+	}
+	
+	/**Erstes Element entfernen (wie LinkedList)
+	 * @return
+	 * @throws NoSuchElementException falls die Liste leer ist
+	 */
+	public Token removeFirst() {
+		if (size() == 0) throw new NoSuchElementException();
+		return remove(0);
+	}
+	
+	/**Letztes Element entfernen (wie LinkedList)
+	 * @return
+	 * @throws NoSuchElementException falls die Liste leer ist
+	 */
+	public Token removeLast() {
+		if (size() == 0) throw new NoSuchElementException();
+		return remove(size() - 1);
+	}
+	
+	/**Erstes Element entfernen oder null bei leerer Liste (wie LinkedList)
+	 * @return
+	 */
+	public Token pollFirst() {
+		if (size() == 0) return null;
+		return remove(0);
+	}
+	
+	/**Letztes Element entfernen oder null bei leerer Liste (wie LinkedList)
+	 * @return
+	 */
+	public Token pollLast() {
+		if (size() == 0) return null;
+		return remove(size() - 1);
+	}
+	
+	/**Iterator von hinten nach vorne (wie LinkedList) - remove() wird unterstützt
+	 * @return
+	 */
+	public Iterator<Token> descendingIterator() {
+		final ListIterator<Token> it = listIterator(size());
+		return new Iterator<Token>() {
+			public boolean hasNext() {
+				return it.hasPrevious();
+			}
+			public Token next() {
+				return it.previous();
+			}
+			public void remove() {
+				it.remove();
+			}
+		};
+	}
 
 	/* (Kein Javadoc)
 	 * @see de.beimax.testel.tokens.list.TextElement#toString()
@@ -54,7 +354,7 @@ public class TokenList extends LinkedList<Token> {
 	 * @return
 	 */
 	public TokenList copy() {
-		TokenList newlist = new TokenList();
+		TokenList newlist = new TokenList(size() + DEFAULT_CAPACITY);
 		
 		Iterator<Token> li = iterator();
 		while (li.hasNext())
@@ -69,19 +369,34 @@ public class TokenList extends LinkedList<Token> {
 	 * @return
 	 */
 	public int countTestElTags() {
-		//Menge zur Reduzierung der Doubletten
-		HashSet<String> set = new HashSet<String>();
+		//Nummern der Klassifizierer-Schlüssel sammeln, sortieren und Doubletten nicht zählen -
+		//Schlüssel, die nicht in der SymbolTable stehen, werden als String gesammelt
+		int[] keys = new int[8];
+		int count = 0;
+		HashSet<String> others = null;
 		
 		Iterator<Token> li = iterator();
 		while (li.hasNext()) {
 			Token tok = li.next();
 			//nur TestElTags und keine EndTags
 			if (tok instanceof TestElTag && tok.getName().charAt(0) != '/') {
-				set.add(tok.getClassifierName());
+				int key = tok.getClassifierKey();
+				if (key == SymbolTable.OTHER) {
+					if (others == null) others = new HashSet<String>();
+					others.add(tok.getClassifierName());
+					continue;
+				}
+				if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+				keys[count++] = key;
 			}
 		}
+		
+		Arrays.sort(keys, 0, count);
+		int distinct = others == null?0:others.size();
+		for (int i = 0; i < count; i++)
+			if (i == 0 || keys[i] != keys[i - 1]) distinct++;
 
-		return set.size(); //Mächtigkeit der Menge zurückgeben
+		return distinct; //Mächtigkeit der Menge zurückgeben
 	}
 	
 	/**Vergleicht zwei Listen und gibt true zurück, wenn die Tokens beider Listen vergleichbar sind.
@@ -140,7 +455,9 @@ public class TokenList extends LinkedList<Token> {
 		Iterator<Token> it = iterator();
 		
 		while (it.hasNext()) { //einzelne Klassifizierer an die Liste anhängen
-			String classified = it.next().getClassifierName();
+			Token tok = it.next();
+			int key = tok.getClassifierKey();
+			String classified = key == SymbolTable.OTHER?tok.getClassifierName():SymbolTable.getSymbol(key);
 			if (classified != null) {
 				if (buffer.length() > 0) buffer.append(' ');
 				buffer.append(classified);
@@ -154,12 +471,11 @@ public class TokenList extends LinkedList<Token> {
 	 * @see java.util.AbstractList#subList(int, int)
 	 */
 	public TokenList subList(int start, int stop) {
-		TokenList backList = new TokenList();
-		
-		Iterator<Token> it = super.subList(start, stop).iterator();
+		if (start < 0 || stop > size() || start > stop) throw new IndexOutOfBoundsException("Bereich: " + start + "-" + stop + ", Größe: " + size());
+		TokenList backList = new TokenList(stop - start + DEFAULT_CAPACITY);
 		
-		while (it.hasNext())
-			backList.add(it.next());
+		for (int i = start; i < stop; i++)
+			backList.add(get(i));
 		
 		return backList;
 	}
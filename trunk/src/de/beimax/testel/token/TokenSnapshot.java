@@ -0,0 +1,603 @@
+/**
+ * Datei: TokenSnapshot.java
+ * Paket: de.beimax.testel.token
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.token;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import de.beimax.testel.token.impl.EOLToken;
+import de.beimax.testel.token.impl.ImageToken;
+import de.beimax.testel.token.impl.MarkupToken;
+import de.beimax.testel.token.impl.NumberToken;
+import de.beimax.testel.token.impl.PunctuationToken;
+import de.beimax.testel.token.impl.SomeToken;
+import de.beimax.testel.token.impl.TestElTag;
+import de.beimax.testel.token.impl.TextToken;
+
+/**Kompakter, spaltenweise organisierter Schnappschuss einer getaggten Tokenliste, um
+ * Ergebnisse aufzubewahren oder weiterzugeben (s. TestElPipeline#setKeepTokens). Statt eines
+ * Objekts pro Token (mit Attributmenge, TextPosition und Strings) werden parallele Arrays
+ * verwendet: Art, Name, Klassenname, Positionen und Referenz als Index. Namen, Klassennamen
+ * und Attribute werden in einer gemeinsamen Symboltabelle nur einmal abgelegt, die Attribute
+ * stehen in einer Nebentabelle.
+ * Der Schnappschuss wird erst nach dem Taggen aus der TokenList erstellt (s. fromList) und
+ * ist unveränderlich - Parser, Tagger und Klassifizierer arbeiten weiterhin auf Token-Objekten.
+ * Die Felder können direkt über den Index oder über eine wiederverwendbare Sicht (s. view())
+ * gelesen werden, ohne dass Objekte erzeugt werden. Code, der echte Token-Objekte braucht,
+ * holt sich mit copy(i) eine Kopie eines einzelnen Tokens oder mit toTokenList() wieder eine
+ * vollständige Liste.
+ * @author mkalus
+ *
+ */
+public class TokenSnapshot {
+	/**
+	 * Arten der Tokens - KIND_OTHER steht für unbekannte Unterklassen, die als Objekt
+	 * abgelegt werden
+	 */
+	public static final byte KIND_TOKEN = 0;
+	public static final byte KIND_TEXT = 1;
+	public static final byte KIND_NUMBER = 2;
+	public static final byte KIND_PUNCTUATION = 3;
+	public static final byte KIND_SOME = 4;
+	public static final byte KIND_MARKUP = 5;
+	public static final byte KIND_IMAGE = 6;
+	public static final byte KIND_EOL = 7;
+	public static final byte KIND_TESTELTAG = 8;
+	public static final byte KIND_OTHER = 9;
+	
+	/**
+	 * Markierung für fehlende Symbole, Positionen und Referenzen
+	 */
+	public static final int NONE = -1;
+	
+	/**
+	 * Markierung für Referenzen auf Tokens außerhalb der Liste
+	 */
+	private static final int EXTERNAL = -2;
+	
+	/**
+	 * Anzahl der Tokens
+	 */
+	private int size;
+	
+	/**
+	 * Attributname, unter dem der Zahlwert eines NumberToken in der Nebentabelle steht
+	 */
+	private static final String NUMBER_KEY = "_TOK:number";
+	
+	/**
+	 * Art, Name und Klassenname pro Token
+	 */
+	private byte[] kinds;
+	private int[] names;
+	private int[] classNames;
+	
+	/**
+	 * Positionen (je sechs Werte: bpos, brow, bcol, epos, erow, ecol) - bpos = NONE, falls
+	 * das Token keine Position hat
+	 */
+	private int[] positions;
+	
+	/**
+	 * Index des Referenz-Tokens (NONE = keine Referenz, EXTERNAL = s. externals)
+	 */
+	private int[] references;
+	
+	/**
+	 * Nebentabelle der Attribute: die Attribute von Token i stehen in attrKeys/attrValues
+	 * von attrStart[i] bis attrStart[i+1] (exklusive)
+	 */
+	private int[] attrStart;
+	private int[] attrKeys;
+	private int[] attrValues;
+	private int attrCount;
+	
+	/**
+	 * Symboltabelle
+	 */
+	private String[] symbols;
+	private int symbolCount;
+	private HashMap<String, Integer> symbolIds;
+	
+	/**
+	 * Tokens unbekannter Art und Referenzen auf Tokens außerhalb der Liste (nach Index)
+	 */
+	private HashMap<Integer, Token> others;
+	private HashMap<Integer, Token> externals;
+
+	/**Konstruktor
+	 * @param capacity
+	 */
+	private TokenSnapshot(int capacity) {
+		if (capacity < 1) capacity = 1;
+		kinds = new byte[capacity];
+		names = new int[capacity];
+		classNames = new int[capacity];
+		positions = new int[capacity * 6];
+		references = new int[capacity];
+		attrStart = new int[capacity + 1];
+		attrKeys = new int[capacity];
+		attrValues = new int[capacity];
+		symbols = new String[64];
+		symbolIds = new HashMap<String, Integer>();
+	}
+	
+	/**Erzeugt einen Schnappschuss einer Tokenliste - Referenzen zwischen Tokens der Liste
+	 * werden als Index abgelegt
+	 * @param list
+	 * @return
+	 */
+	public static TokenSnapshot fromList(List<Token> list) {
+		int max = list.size();
+		TokenSnapshot snapshot = new TokenSnapshot(max);
+		IdentityHashMap<Token, Integer> indexes = new IdentityHashMap<Token, Integer>();
+		
+		for (int i = 0; i < max; i++) {
+			Token tok = list.get(i);
+			snapshot.append(tok);
+			indexes.put(tok, i);
+		}
+		
+		//Referenzen auflösen
+		for (int i = 0; i < max; i++) {
+			Token ref = list.get(i).getReference();
+			if (ref == null) continue;
+			Integer index = indexes.get(ref);
+			if (index != null) snapshot.references[i] = index;
+			else {
+				if (snapshot.externals == null) snapshot.externals = new HashMap<Integer, Token>();
+				snapshot.externals.put(i, ref);
+				snapshot.references[i] = EXTERNAL;
+			}
+		}
+		
+		//Nebentabelle auf die tatsächliche Größe kürzen
+		snapshot.attrKeys = Arrays.copyOf(snapshot.attrKeys, snapshot.attrCount);
+		snapshot.attrValues = Arrays.copyOf(snapshot.attrValues, snapshot.attrCount);
+		
+		return snapshot;
+	}
+	
+	/**Hängt ein Token an (ohne Referenz)
+	 * @param tok
+	 */
+	private void append(Token tok) {
+		int i = size++;
+		byte kind = kindOf(tok);
+		kinds[i] = kind;
+		names[i] = symbol(tok.getName());
+		classNames[i] = symbol(tok.getClassName());
+		references[i] = NONE;
+		
+		TextPosition pos = tok.getTextPosition();
+		int p = i * 6;
+		if (pos == null) positions[p] = NONE;
+		else {
+			positions[p] = pos.getBpos();
+			positions[p + 1] = pos.getBrow();
+			positions[p + 2] = pos.getBcol();
+			positions[p + 3] = pos.getEpos();
+			positions[p + 4] = pos.getErow();
+			positions[p + 5] = pos.getEcol();
+		}
+		
+		//Attribute in die Nebentabelle - der Zahlwert eines NumberToken steht dort als
+		//zusätzliches Attribut, damit er keine eigene Spalte für alle Tokens braucht
+		Attributes attributes = tok.getAttributes();
+		int count = attributes == null?0:attributes.size();
+		String number = kind == KIND_NUMBER?tok.getAttributeValue(NUMBER_KEY):null;
+		if (number != null) count++;
+		attrStart[i] = attrCount;
+		if (count > 0) {
+			if (attrCount + count > attrKeys.length) {
+				int newCapacity = Math.max(attrCount + count, attrKeys.length * 2);
+				attrKeys = Arrays.copyOf(attrKeys, newCapacity);
+				attrValues = Arrays.copyOf(attrValues, newCapacity);
+			}
+			if (number != null) {
+				attrKeys[attrCount] = symbol(NUMBER_KEY);
+				attrValues[attrCount++] = symbol(number);
+			}
+			if (attributes != null)
+				for (int a = 0; a < attributes.size(); a++) {
+					attrKeys[attrCount] = symbol(attributes.getKey(a));
+					attrValues[attrCount++] = symbol(attributes.getValue(a));
+				}
+		}
+		attrStart[i + 1] = attrCount;
+		
+		if (kind == KIND_OTHER) {
+			if (others == null) others = new HashMap<Integer, Token>();
+			others.put(i, tok);
+		}
+	}
+	
+	/**Gibt die Art eines Tokens zurück
+	 * @param tok
+	 * @return
+	 */
+	private static byte kindOf(Token tok) {
+		Class<?> c = tok.getClass();
+		if (c == TextToken.class) return KIND_TEXT;
+		if (c == MarkupToken.class) return KIND_MARKUP;
+		if (c == PunctuationToken.class) return KIND_PUNCTUATION;
+		if (c == SomeToken.class) return KIND_SOME;
+		if (c == EOLToken.class) return KIND_EOL;
+		if (c == NumberToken.class) return KIND_NUMBER;
+		if (c == TestElTag.class) return KIND_TESTELTAG;
+		if (c == ImageToken.class) return KIND_IMAGE;
+		if (c == Token.class) return KIND_TOKEN;
+		return KIND_OTHER;
+	}
+	
+	/**Gibt die Nummer eines Symbols zurück und legt es ggf. an
+	 * @param s
+	 * @return
+	 */
+	private int symbol(String s) {
+		if (s == null) return NONE;
+		Integer id = symbolIds.get(s);
+		if (id != null) return id;
+		if (symbolCount == symbols.length) symbols = Arrays.copyOf(symbols, symbolCount * 2);
+		symbols[symbolCount] = s;
+		symbolIds.put(s, symbolCount);
+		return symbolCount++;
+	}
+	
+	/**Gibt ein Symbol zurück
+	 * @param id
+	 * @return
+	 */
+	private String symbolAt(int id) {
+		if (id == NONE) return null;
+		return symbols[id];
+	}
+	
+	/**Prüft den Index
+	 * @param index
+	 */
+	private void check(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + size);
+	}
+	
+	/**Anzahl der Tokens
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**Anzahl der verschiedenen Symbole (Namen, Klassennamen, Attribute)
+	 * @return
+	 */
+	public int getSymbolCount() {
+		return symbolCount;
+	}
+	
+	/**Art des Tokens (s. KIND_*)
+	 * @param index
+	 * @return
+	 */
+	public byte getKind(int index) {
+		check(index);
+		return kinds[index];
+	}
+	
+	/**Name des Tokens
+	 * @param index
+	 * @return
+	 */
+	public String getName(int index) {
+		check(index);
+		return symbolAt(names[index]);
+	}
+	
+	/**Klassenname des Tokens oder null
+	 * @param index
+	 * @return
+	 */
+	public String getClassName(int index) {
+		check(index);
+		return symbolAt(classNames[index]);
+	}
+	
+	/**Wert eines Attributs oder null
+	 * @param index
+	 * @param key
+	 * @return
+	 */
+	public String getAttributeValue(int index, String key) {
+		check(index);
+		return attributeValue(index, key);
+	}
+	
+	/**Sucht den Wert eines Attributs in der Nebentabelle
+	 * @param index
+	 * @param key
+	 * @return
+	 */
+	private String attributeValue(int index, String key) {
+		Integer keyId = symbolIds.get(key);
+		if (keyId == null) return null;
+		for (int a = attrStart[index]; a < attrStart[index + 1]; a++)
+			if (attrKeys[a] == keyId) return symbols[attrValues[a]];
+		return null;
+	}
+	
+	/**True, falls das Token eine Textposition hat
+	 * @param index
+	 * @return
+	 */
+	public boolean hasTextPosition(int index) {
+		check(index);
+		return positions[index * 6] != NONE;
+	}
+	
+	/**Anfangsposition des Tokens (oder NONE)
+	 * @param index
+	 * @return
+	 */
+	public int getBpos(int index) {
+		check(index);
+		return positions[index * 6];
+	}
+	
+	/**Endposition des Tokens (oder undefiniert, falls hasTextPosition false ist)
+	 * @param index
+	 * @return
+	 */
+	public int getEpos(int index) {
+		check(index);
+		return positions[index * 6 + 3];
+	}
+	
+	/**Gibt eine neue Textposition des Tokens zurück oder null
+	 * @param index
+	 * @return
+	 */
+	public TextPosition getTextPosition(int index) {
+		check(index);
+		int p = index * 6;
+		if (positions[p] == NONE) return null;
+		return new TextPosition(positions[p], positions[p + 1], positions[p + 2],
+				positions[p + 3], positions[p + 4], positions[p + 5]);
+	}
+	
+	/**Index des Referenz-Tokens in diesem Schnappschuss oder NONE (auch bei Referenzen auf
+	 * Tokens außerhalb der Liste)
+	 * @param index
+	 * @return
+	 */
+	public int getReferenceIndex(int index) {
+		check(index);
+		return references[index] == EXTERNAL?NONE:references[index];
+	}
+	
+	/**Erzeugt eine neue Sicht auf diesen Schnappschuss. Eine Sicht ist ein wiederverwendbarer
+	 * Zeiger auf ein Token (s. View#moveTo) - beim Durchlaufen des Schnappschusses genügt eine
+	 * einzige Sicht für alle Tokens.
+	 * @return
+	 */
+	public View view() {
+		return new View();
+	}
+	
+	/**Gibt eine Kopie eines einzelnen Tokens zurück: ein neues Token-Objekt mit den Daten aus
+	 * dem Schnappschuss. Jeder Aufruf erzeugt neue Objekte - zum Lesen sollte view() verwendet
+	 * werden. Änderungen an der Kopie wirken sich nicht auf den Schnappschuss aus. Eine Referenz
+	 * innerhalb der Liste wird ebenfalls als neues Token (ohne eigene Referenz) erzeugt -
+	 * zusammenhängende Referenzen liefert toTokenList().
+	 * @param index
+	 * @return
+	 */
+	public Token copy(int index) {
+		check(index);
+		Token tok = create(index);
+		int ref = references[index];
+		if (ref >= 0) tok.setReference(create(ref));
+		else if (ref == EXTERNAL) tok.setReference(externals.get(index));
+		return tok;
+	}
+	
+	/**Erzeugt wieder eine vollständige Tokenliste mit neuen Token-Objekten
+	 * @return
+	 */
+	public TokenList toTokenList() {
+		Token[] tokens = new Token[size];
+		for (int i = 0; i < size; i++) tokens[i] = create(i);
+		for (int i = 0; i < size; i++) {
+			int ref = references[i];
+			if (ref >= 0) tokens[i].setReference(tokens[ref]);
+			else if (ref == EXTERNAL) tokens[i].setReference(externals.get(i));
+		}
+		return new TokenList(Arrays.asList(tokens));
+	}
+	
+	/**Erzeugt ein Token ohne Referenz
+	 * @param index
+	 * @return
+	 */
+	private Token create(int index) {
+		String name = symbolAt(names[index]);
+		String className = symbolAt(classNames[index]);
+		Token tok;
+		switch (kinds[index]) {
+		case KIND_TEXT: tok = new TextToken(name, className); break;
+		case KIND_NUMBER: tok = new NumberToken(name, attributeValue(index, NUMBER_KEY)); break;
+		case KIND_PUNCTUATION: tok = new PunctuationToken(name, className); break;
+		case KIND_SOME: tok = new SomeToken(name); break;
+		case KIND_MARKUP: tok = new MarkupToken(name); break;
+		case KIND_IMAGE: tok = new ImageToken(name); break;
+		case KIND_EOL: tok = new EOLToken(); break;
+		case KIND_TESTELTAG: tok = new TestElTag(name, className); break;
+		case KIND_OTHER: //unbekannte Unterklasse: Kopie des abgelegten Objekts
+			tok = others.get(index).copy();
+			tok.setReference(null);
+			return tok;
+		default: tok = new Token(name, className);
+		}
+		tok.setName(name);
+		tok.setClassName(className);
+		
+		//Attribute übernehmen (ohne den Zahlwert, der schon im NumberToken steht)
+		int first = attrStart[index];
+		if (kinds[index] == KIND_NUMBER && first < attrStart[index + 1] &&
+				symbols[attrKeys[first]].equals(NUMBER_KEY)) first++;
+		if (first < attrStart[index + 1]) {
+			Attributes.Builder attributes = new Attributes.Builder();
+			for (int a = first; a < attrStart[index + 1]; a++)
+				attributes.add(symbols[attrKeys[a]], symbols[attrValues[a]]);
+			tok.setAttributes(attributes.build());
+		}
+		
+		int p = index * 6;
+		if (positions[p] != NONE)
+			tok.initTextPosition(positions[p], positions[p + 1], positions[p + 2],
+					positions[p + 3], positions[p + 4], positions[p + 5]);
+		
+		return tok;
+	}
+	
+	/**Wiederverwendbare Sicht auf ein Token des Schnappschusses: liest die Spalten des Tokens, auf
+	 * das die Sicht gerade zeigt, ohne Objekte zu erzeugen. Die Sicht wird mit moveTo auf
+	 * ein anderes Token gesetzt.
+	 * @author mkalus
+	 *
+	 */
+	public class View {
+		/**
+		 * Index des aktuellen Tokens
+		 */
+		private int index = NONE;
+		
+		/**Konstruktor
+		 */
+		private View() {
+		}
+		
+		/**Setzt die Sicht auf das Token mit dem angegebenen Index
+		 * @param index
+		 * @return this
+		 */
+		public View moveTo(int index) {
+			check(index);
+			this.index = index;
+			return this;
+		}
+		
+		/**Getter für index
+		 * @return
+		 */
+		public int getIndex() {
+			return index;
+		}
+		
+		/**Art des Tokens (s. KIND_*)
+		 * @return
+		 */
+		public byte getKind() {
+			return kinds[index];
+		}
+		
+		/**Name des Tokens
+		 * @return
+		 */
+		public String getName() {
+			return symbolAt(names[index]);
+		}
+		
+		/**Klassenname des Tokens oder null
+		 * @return
+		 */
+		public String getClassName() {
+			return symbolAt(classNames[index]);
+		}
+		
+		/**Wert eines Attributs oder null
+		 * @param key
+		 * @return
+		 */
+		public String getAttributeValue(String key) {
+			return attributeValue(index, key);
+		}
+		
+		/**True, falls das Token eine Textposition hat
+		 * @return
+		 */
+		public boolean hasTextPosition() {
+			return positions[index * 6] != NONE;
+		}
+		
+		/**Getter für bpos
+		 * @return
+		 */
+		public int getBpos() {
+			return positions[index * 6];
+		}
+		
+		/**Getter für brow
+		 * @return
+		 */
+		public int getBrow() {
+			return positions[index * 6 + 1];
+		}
+		
+		/**Getter für bcol
+		 * @return
+		 */
+		public int getBcol() {
+			return positions[index * 6 + 2];
+		}
+		
+		/**Getter für epos
+		 * @return
+		 */
+		public int getEpos() {
+			return positions[index * 6 + 3];
+		}
+		
+		/**Getter für erow
+		 * @return
+		 */
+		public int getErow() {
+			return positions[index * 6 + 4];
+		}
+		
+		/**Getter für ecol
+		 * @return
+		 */
+		public int getEcol() {
+			return positions[index * 6 + 5];
+		}
+		
+		/**Index des Referenz-Tokens in diesem Schnappschuss oder NONE
+		 * @return
+		 */
+		public int getReferenceIndex() {
+			return references[index] == EXTERNAL?NONE:references[index];
+		}
+	}
+}
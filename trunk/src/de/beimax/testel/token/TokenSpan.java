@@ -0,0 +1,161 @@
+/**
+ * Datei: TokenSpan.java
+ * Paket: de.beimax.testel.token
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.token;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+
+/**Nur-Lese-Ansicht auf einen Bereich einer TokenList. Im Gegensatz zu TokenList.subList
+ * werden weder die Liste noch die Tokens kopiert - die Ansicht kostet also unabhängig von
+ * der Länge des Bereichs immer gleich viel. Gedacht ist sie für die Kandidaten, die beim
+ * Matchen und Einfügen von Klassifizierern bewertet werden.
+ * Die Ansicht ist nur so lange gültig, wie die zugrunde liegende Liste nicht verändert wird,
+ * danach wird eine ConcurrentModificationException geworfen. Alle verändernden Methoden
+ * werfen eine UnsupportedOperationException.
+ * @author mkalus
+ *
+ */
+public class TokenSpan extends TokenList {
+	/**
+	 * zugrunde liegende Liste
+	 */
+	private final TokenList base;
+	
+	/**
+	 * Anfang des Bereichs in der Liste und Länge
+	 */
+	private final int offset, length;
+	
+	/**
+	 * Änderungszähler der Liste beim Erstellen der Ansicht
+	 */
+	private final int expectedModCount;
+
+	/**Konstruktor
+	 * @param base
+	 * @param start
+	 * @param stop
+	 */
+	TokenSpan(TokenList base, int start, int stop) {
+		super(1);
+		this.base = base;
+		this.offset = start;
+		this.length = stop - start;
+		this.expectedModCount = base.getModCount();
+	}
+	
+	/**Getter für die zugrunde liegende Liste
+	 * @return
+	 */
+	public TokenList getBaseList() {
+		return base;
+	}
+	
+	/**Getter für den Anfang des Bereichs in der zugrunde liegenden Liste
+	 * @return
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#size()
+	 */
+	public int size() {
+		return length;
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#get(int)
+	 */
+	public Token get(int index) {
+		if (index < 0 || index >= length) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + length);
+		if (base.getModCount() != expectedModCount) throw new ConcurrentModificationException();
+		return base.get(offset + index);
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#view(int, int)
+	 */
+	public TokenSpan view(int start, int stop) {
+		if (start < 0 || stop > length || start > stop) throw new IndexOutOfBoundsException("Bereich: " + start + "-" + stop + ", Größe: " + length);
+		return new TokenSpan(base, offset + start, offset + stop);
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#getAnnotationIndex()
+	 */
+	public AnnotationIndex getAnnotationIndex() {
+		return base.getAnnotationIndex();
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#getModCount()
+	 */
+	int getModCount() {
+		return base.getModCount();
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#set(int, de.beimax.testel.token.Token)
+	 */
+	public Token set(int index, Token element) {
+		throw new UnsupportedOperationException("TokenSpan kann nicht verändert werden");
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#add(int, de.beimax.testel.token.Token)
+	 */
+	public void add(int index, Token element) {
+		throw new UnsupportedOperationException("TokenSpan kann nicht verändert werden");
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#addAll(int, java.util.Collection)
+	 */
+	public boolean addAll(int index, Collection<? extends Token> c) {
+		throw new UnsupportedOperationException("TokenSpan kann nicht verändert werden");
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#remove(int)
+	 */
+	public Token remove(int index) {
+		throw new UnsupportedOperationException("TokenSpan kann nicht verändert werden");
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#removeRange(int, int)
+	 */
+	protected void removeRange(int fromIndex, int toIndex) {
+		throw new UnsupportedOperationException("TokenSpan kann nicht verändert werden");
+	}
+
+	/* (Kein Javadoc)
+	 * @see de.beimax.testel.token.TokenList#clear()
+	 */
+	public void clear() {
+		throw new UnsupportedOperationException("TokenSpan kann nicht verändert werden");
+	}
+}
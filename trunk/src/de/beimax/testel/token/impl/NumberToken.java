@@ -39,9 +39,14 @@ public class NumberToken extends Token {
 		//addAttribute("_TOK:number", value);
 	}
 	
-	public NumberToken(String name) {
+	/**Konstruktor, der den Namen mit Hilfe des Nummernparsers der aktuellen Sprache
+	 * in eine Zahl umwandelt
+	 * @param name
+	 * @param numParser Nummernparser des Handlers (kann null sein)
+	 */
+	public NumberToken(String name, AbstractNumberParser numParser) {
 		super(name);
-		parseNumber(name);
+		parseNumber(name, numParser);
 	}
 	
 	/* (Kein Javadoc)
@@ -60,14 +65,12 @@ public class NumberToken extends Token {
 
 	/**<code>name</code> oder ein anderer String wird auf numerische Elemente hin überprüft.
 	 * @param strnum
+	 * @param numParser
 	 * @return Nummer
 	 */
-	public String parseNumber(String strnum) {
-		AbstractNumberParser numParser = null;
-		try {
-			numParser = handler.getLangFactory().createNumberParser(handler);
-		} catch (Exception e) {
-			logger.warning("NumberToken: Konnte NumberParser nicht erstellen! Nummer wurde nicht geparst!");
+	public String parseNumber(String strnum, AbstractNumberParser numParser) {
+		if (numParser == null) {
+			logger.warning("NumberToken: Kein NumberParser vorhanden! Nummer wurde nicht geparst!");
 			return null;
 		}
 		
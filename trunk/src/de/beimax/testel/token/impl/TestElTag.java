@@ -53,7 +53,14 @@ public class TestElTag extends Token {
 	 * @return
 	 */
 	public static int getTestElTagType (Token tok) {
-		String name = tok.getName();
+		return getTestElTagType(tok.getName());
+	}
+
+	/**Gibt einen numerischen Typ eines Tagnamens wieder (z.B. für TokenSnapshot)
+	 * @param name
+	 * @return
+	 */
+	public static int getTestElTagType (String name) {
 		if (name.charAt(0) == '/') name = name.substring(1); //End-Tag-Erkenner weg
 		for (int i = 0; i < TAG_NAMES.length; i++)
 			if (TAG_NAMES[i].equalsIgnoreCase(name)) return i;
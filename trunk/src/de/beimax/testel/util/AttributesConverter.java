@@ -0,0 +1,88 @@
+/**
+ * Datei: AttributesConverter.java
+ * Paket: de.beimax.testel.util
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.util;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+import de.beimax.testel.token.Attributes;
+
+/**XStream-Konverter für die Attribute der Tokens: schreibt und liest das Format, das XStream
+ * für die frühere Hashtable erzeugt hat (entry-Elemente mit Schlüssel und Wert als string) -
+ * bestehende Korpus-Dateien bleiben damit lesbar.
+ * @author mkalus
+ *
+ */
+public class AttributesConverter implements Converter {
+
+	/* (Kein Javadoc)
+	 * @see com.thoughtworks.xstream.converters.ConverterMatcher#canConvert(java.lang.Class)
+	 */
+	@SuppressWarnings("rawtypes")
+	public boolean canConvert(Class type) {
+		return type.equals(Attributes.class);
+	}
+
+	/* (Kein Javadoc)
+	 * @see com.thoughtworks.xstream.converters.Converter#marshal(java.lang.Object, com.thoughtworks.xstream.io.HierarchicalStreamWriter, com.thoughtworks.xstream.converters.MarshallingContext)
+	 */
+	public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+		Attributes attributes = (Attributes) source;
+		
+		for (int i = 0; i < attributes.size(); i++) {
+			writer.startNode("entry");
+			writer.startNode("string");
+			writer.setValue(attributes.getKey(i));
+			writer.endNode();
+			writer.startNode("string");
+			writer.setValue(attributes.getValue(i));
+			writer.endNode();
+			writer.endNode();
+		}
+	}
+
+	/* (Kein Javadoc)
+	 * @see com.thoughtworks.xstream.converters.Converter#unmarshal(com.thoughtworks.xstream.io.HierarchicalStreamReader, com.thoughtworks.xstream.converters.UnmarshallingContext)
+	 */
+	public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+		Attributes.Builder attributes = new Attributes.Builder();
+		
+		while (reader.hasMoreChildren()) {
+			reader.moveDown(); //entry
+			reader.moveDown();
+			String key = reader.getValue();
+			reader.moveUp();
+			reader.moveDown();
+			String value = reader.getValue();
+			reader.moveUp();
+			attributes.add(key, value);
+			reader.moveUp();
+		}
+		
+		return attributes.build();
+	}
+}
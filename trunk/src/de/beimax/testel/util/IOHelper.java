@@ -24,6 +24,13 @@ package de.beimax.testel.util;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.logging.*;
@@ -122,6 +129,22 @@ public class IOHelper {
 		return false;
 	}
 	
+	/**Gibt die lokale Datei einer file-URL zurück - der Pfad wird dabei dekodiert (%20,
+	 * Umlaute usw.), anders als bei new File(url.getPath())
+	 * @param url
+	 * @return Datei oder null, falls die URL keine lokale Datei bezeichnet
+	 */
+	static public File toFile(URL url) {
+		if (!isFile(url)) return null;
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException e) {
+			return null;
+		} catch (IllegalArgumentException e) { //z.B. mit Host-Angabe
+			return null;
+		}
+	}
+	
 	/**Gibt Pfadanteil zurück
 	 * @param file
 	 * @return
@@ -328,6 +351,109 @@ public class IOHelper {
 		return fileData.toString();
 	}
     
+    /**
+     * Blockgröße und wiederverwendeter direkter Puffer pro Thread für channelFiletoString
+     */
+    private static final int CHANNEL_BLOCKSIZE = 65536;
+    private static final ThreadLocal<ByteBuffer> channelBuffer = new ThreadLocal<ByteBuffer>() {
+    	@Override
+    	protected ByteBuffer initialValue() {
+    		return ByteBuffer.allocateDirect(CHANNEL_BLOCKSIZE);
+    	}
+    };
+    
+    /**Lese lokale Datei über den FileChannel als String ein. Die Datei wird nicht
+     * zeilenweise kopiert, sondern blockweise in einen wiederverwendeten Puffer gelesen und
+     * direkt dekodiert; Zeilenenden werden dabei wie in streamtoString zu '\n' vereinheitlicht,
+     * das Ergebnis ist also identisch. Die Datei wird nicht abgebildet, damit sie danach
+     * sofort gelöscht oder verschoben werden kann (Train-Modus).
+     * Das Dokument entsteht trotzdem vollständig als String (Normalisierer, Parser und
+     * DocumentTagger arbeiten auf dem ganzen Dokument) - gespart werden nur die Kopien
+     * und der Zeilenpuffer von streamtoString.
+     * @param file
+     * @param charset darf null sein, dann wird das Standard-Encoding verwendet
+     * @return
+     * @throws java.io.IOException
+     */
+    public static String channelFiletoString(File file, String charset) throws java.io.IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size >= Integer.MAX_VALUE)
+				throw new IOException("Datei " + file + " ist zu groß (" + size + " Bytes)");
+
+			//Decoder wie InputStreamReader: fehlerhafte Eingaben werden ersetzt
+			Charset cs = charset == null?Charset.defaultCharset():Charset.forName(charset);
+			CharsetDecoder decoder = cs.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			logger.fine("Datei " + file + " wird gelesen - Encoding " + cs.name() + " wird verwendet");
+
+			//Puffer gleich in passender Größe anlegen, damit er nicht wachsen muss
+			StringBuilder outputBuilder = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 16, size * (double) decoder.maxCharsPerByte()) + 1);
+			ByteBuffer bytes = channelBuffer.get();
+			bytes.clear();
+			CharBuffer chars = CharBuffer.allocate(CHANNEL_BLOCKSIZE);
+			boolean skipLF = false, eof = false;
+			CoderResult result;
+			while (!eof) {
+				eof = channel.read(bytes) == -1;
+				bytes.flip();
+				//Block dekodieren, bis die Bytes verbraucht sind (unvollständige Zeichen
+				//bleiben für den nächsten Block stehen)
+				do {
+					result = decoder.decode(bytes, chars, eof);
+					if (result.isError()) result.throwException();
+					chars.flip();
+					skipLF = appendLines(outputBuilder, chars, skipLF);
+					chars.clear();
+				} while (result.isOverflow());
+				bytes.compact();
+			}
+			while (decoder.flush(chars).isOverflow()) {
+				chars.flip();
+				skipLF = appendLines(outputBuilder, chars, skipLF);
+				chars.clear();
+			}
+			chars.flip();
+			appendLines(outputBuilder, chars, skipLF);
+
+			//letzte Zeile wie bei readLine abschließen
+			int length = outputBuilder.length();
+			if (length > 0 && outputBuilder.charAt(length-1) != '\n') outputBuilder.append('\n');
+
+			logger.info("Datei " + file + " gelesen.");
+			return outputBuilder.toString();
+		} finally {
+			in.close();
+		}
+    }
+    
+    /**Hängt einen dekodierten Block an und vereinheitlicht dabei die Zeilenenden (\r\n und \r zu \n)
+     * @param builder
+     * @param chars
+     * @param skipLF true, falls der vorherige Block mit \r endete
+     * @return true, falls dieser Block mit \r endet
+     */
+    private static boolean appendLines(StringBuilder builder, CharBuffer chars, boolean skipLF) {
+    	char[] buf = chars.array();
+    	int from = chars.position(), end = chars.limit();
+    	for (int i = from; i < end; i++) {
+    		char c = buf[i];
+    		if (c == '\r') { //Zeilenende \r oder \r\n
+    			builder.append(buf, from, i-from).append('\n');
+    			from = i+1;
+    		} else if (c == '\n' && skipLF) { //\n nach \r überspringen
+    			builder.append(buf, from, i-from);
+    			from = i+1;
+    		}
+    		skipLF = c == '\r';
+    	}
+    	builder.append(buf, from, end-from);
+    	return skipLF;
+    }
+    
     /**Lese gziped File als String ein
      * @param file
      * @return
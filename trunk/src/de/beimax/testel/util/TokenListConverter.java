@@ -0,0 +1,109 @@
+/**
+ * Datei: TokenListConverter.java
+ * Paket: de.beimax.testel.util
+ * Projekt: TestEl
+ *
+ * Copyright (c) 2008 Maximilian Kalus.  All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ * or visit: http://www.gnu.org/licenses/lgpl.html
+ *
+ */
+package de.beimax.testel.util;
+
+import java.util.Iterator;
+
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.converters.collections.AbstractCollectionConverter;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+import de.beimax.testel.token.Token;
+import de.beimax.testel.token.TokenList;
+
+/**XStream-Konverter für TokenList: schreibt und liest das Format, das XStream für die frühere,
+ * von LinkedList abgeleitete TokenList erzeugt hat - damit können bestehende Korpus-Dateien
+ * weiterhin geladen werden. Listen ohne die linked-list-Hülle werden ebenfalls gelesen.
+ * @author mkalus
+ *
+ */
+public class TokenListConverter extends AbstractCollectionConverter {
+
+	/**Konstruktor
+	 * @param mapper
+	 */
+	public TokenListConverter(Mapper mapper) {
+		super(mapper);
+	}
+
+	/* (Kein Javadoc)
+	 * @see com.thoughtworks.xstream.converters.collections.AbstractCollectionConverter#canConvert(java.lang.Class)
+	 */
+	@SuppressWarnings("rawtypes")
+	public boolean canConvert(Class type) {
+		return type.equals(TokenList.class);
+	}
+
+	/* (Kein Javadoc)
+	 * @see com.thoughtworks.xstream.converters.collections.AbstractCollectionConverter#marshal(java.lang.Object, com.thoughtworks.xstream.io.HierarchicalStreamWriter, com.thoughtworks.xstream.converters.MarshallingContext)
+	 */
+	public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+		TokenList list = (TokenList) source;
+		
+		//Format wie bei der Serialisierung von LinkedList
+		writer.addAttribute("serialization", "custom");
+		writer.startNode("unserializable-parents");
+		writer.endNode();
+		writer.startNode("linked-list");
+		writer.startNode("default");
+		writer.endNode();
+		writer.startNode("int");
+		writer.setValue(String.valueOf(list.size()));
+		writer.endNode();
+		
+		Iterator<Token> it = list.iterator();
+		while (it.hasNext())
+			writeItem(it.next(), context, writer);
+		
+		writer.endNode();
+	}
+
+	/* (Kein Javadoc)
+	 * @see com.thoughtworks.xstream.converters.collections.AbstractCollectionConverter#unmarshal(com.thoughtworks.xstream.io.HierarchicalStreamReader, com.thoughtworks.xstream.converters.UnmarshallingContext)
+	 */
+	public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+		TokenList list = new TokenList();
+		
+		while (reader.hasMoreChildren()) {
+			reader.moveDown();
+			String name = reader.getNodeName();
+			if (name.equals("linked-list")) { //Hülle der Serialisierung
+				while (reader.hasMoreChildren()) {
+					reader.moveDown();
+					String inner = reader.getNodeName();
+					if (!inner.equals("default") && !inner.equals("int"))
+						list.add((Token) readItem(reader, context, list));
+					reader.moveUp();
+				}
+			} else if (!name.equals("unserializable-parents")) //einfache Liste
+				list.add((Token) readItem(reader, context, list));
+			reader.moveUp();
+		}
+		
+		return list;
+	}
+}
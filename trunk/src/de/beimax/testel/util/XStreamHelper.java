@@ -100,6 +100,10 @@ public class XStreamHelper<E> {
 		xstream.alias("ReferenceList", de.beimax.testel.general.ReferenceList.class);
 		xstream.alias("ClassifierCollection", de.beimax.testel.classifier.ClassifierCollection.class);
 		xstream.alias("TestElVectorClassifier", de.beimax.testel.classifier.impl.TestElVectorClassifier.class);
+		//TokenList im Format der früheren LinkedList speichern
+		xstream.registerConverter(new TokenListConverter(xstream.getMapper()));
+		//Attribute der Tokens im Format der früheren Hashtable speichern
+		xstream.registerConverter(new AttributesConverter());
 		
 		return xstream;
 	}